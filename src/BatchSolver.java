@@ -0,0 +1,459 @@
+package src;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import src.logic.*;
+import src.logic.card.*;
+import src.logic.metrics.EngineMetrics;
+
+/**
+ * Headless interface for the clue solving logic. Reads games from a script instead of prompting for them
+ * and prints what was deduced without any menus.
+ * A script has one command per line, blank lines and lines starting with # are skipped:
+ *   player Alice 6                                    A player and how many cards they have, in turn order starting with the user
+ *   start Knife                                       A card the user has
+ *   suggest Bob: Hall, Professor Plum, Knife -> Carol  A suggestion and who disproved it, "none" if nobody could
+ *   card Carol: Knife                                 A card a player was seen to have
+ *   undo 2                                            Removes a move, numbered from 1 not counting the start cards
+ *   whatif Alice: Hall, Professor Plum, Knife          Prints what every way a suggestion could turn out would teach, without making it
+ *   why Rope                                          Prints who has a card, or who can not have it, and the moves and deductions that showed it
+ *   end                                               Ends the game, a new player line after moves also starts a new game
+ * Players may also be given by their number in turn order, starting from 1.
+**/
+class BatchSolver {
+	//Variables
+	private final PrintStream out; //Where the deductions are printed
+	private final boolean showDeltas; //Whether to print what each move taught
+	private final CardList cards; //The deck every game is played with
+	private ArrayList<Player> players; //The players of the current game
+	private ClueLogic game; //The current game, null until its first move
+	private int gamesFinished; //How many games have been printed
+	private int errors; //How many lines could not be used
+	private final EngineMetrics metrics; //Metrics of every game played
+
+	//Methods
+
+	/**
+	 * Creates a batch solver
+	 * @param out Where the deductions are printed
+	 * @param showDeltas Whether to print what is learned from each move as well as the final deductions
+	 * @param cards The deck every game is played with
+	**/
+	BatchSolver(PrintStream out, boolean showDeltas, CardList cards) {
+		this.out = out;
+		this.showDeltas = showDeltas;
+		this.cards = cards;
+		players = new ArrayList<Player>();
+		metrics = new EngineMetrics();
+	}
+
+	/**
+	 * Runs the batch solver on the scripts given as arguments, or standard input if there are none
+	 * Usage: --batch [--deltas] [--deck file] [--metrics file] [script ...], where a script named - is standard input
+	 * and scripts ending in .gz are decompressed. Games are played with the deck in the deck file (see CardList)
+	 * or the standard deck. The solver's metrics for every game are written to the metrics file in the
+	 * Prometheus text format at the end.
+	 * @param args The command line arguments
+	**/
+	static void main(String[] args) {
+		boolean showDeltas = false;
+		String metricsFile = null;
+		String deckFile = null;
+		ArrayList<String> scripts = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--deltas")) {
+				showDeltas = true;
+			} else if (args[i].equals("--metrics") && i + 1 < args.length) {
+				metricsFile = args[++i];
+			} else if (args[i].equals("--deck") && i + 1 < args.length) {
+				deckFile = args[++i];
+			} else if (!args[i].equals("--batch")) {
+				scripts.add(args[i]);
+			}
+		}
+		if (scripts.size() == 0) {
+			scripts.add("-");
+		}
+		CardList cards = new CardList();
+		if (deckFile != null) {
+			try {
+				cards = CardList.load(Paths.get(deckFile));
+			} catch (IOException | IllegalArgumentException e) {
+				System.err.println(String.format("%s: %s", deckFile, e.getMessage()));
+				System.exit(1);
+			}
+		}
+		PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+		BatchSolver solver = new BatchSolver(out, showDeltas, cards);
+		int errors = 0;
+		try {
+			for (String script : scripts) {
+				try (BufferedReader in = new BufferedReader(new InputStreamReader(open(script), "UTF-8"), 1 << 16)) {
+					errors += solver.run(in, script.equals("-") ? "stdin" : script);
+				} catch (IOException e) {
+					System.err.println(String.format("%s: %s", script, e.getMessage()));
+					errors++;
+				}
+			}
+		} finally {
+			out.flush(); //The games already finished are printed even if a script stops the solver
+		}
+		if (metricsFile != null) {
+			try {
+				solver.metrics.writePrometheusFile(Paths.get(metricsFile));
+			} catch (IOException e) {
+				System.err.println(String.format("%s: %s", metricsFile, e.getMessage()));
+				errors++;
+			}
+		}
+		if (errors > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Opens a script, decompressing it if its name ends in .gz
+	 * @param script The name of the script, - for standard input
+	 * @return in The script's contents
+	 * @throws IOException If the script can not be opened
+	**/
+	private static InputStream open(String script) throws IOException {
+		InputStream in = script.equals("-") ? System.in : new FileInputStream(script);
+		return script.endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+	}
+
+	/**
+	 * Plays every game in a script. Lines that can not be used are reported on standard error and skipped.
+	 * @param in The script
+	 * @param scriptName The name of the script used when reporting errors
+	 * @return errors How many lines could not be used
+	 * @throws IOException If the script can not be read
+	**/
+	int run(BufferedReader in, String scriptName) throws IOException {
+		errors = 0;
+		int lineNumber = 0;
+		for (String line = in.readLine(); line != null; line = in.readLine()) {
+			lineNumber++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			try {
+				readLine(line);
+			} catch (IllegalArgumentException e) {
+				System.err.println(String.format("%s:%d: %s", scriptName, lineNumber, e.getMessage()));
+				errors++;
+			}
+		}
+		try {
+			finishGame();
+		} catch (IllegalArgumentException e) { //The script ended partway through setting up a game
+			System.err.println(String.format("%s:%d: %s", scriptName, lineNumber, e.getMessage()));
+			errors++;
+		}
+		return errors;
+	}
+
+	/**
+	 * Carries out one line of a script
+	 * @param line The line, without surrounding whitespace
+	 * @throws IllegalArgumentException If the line is not a valid command
+	**/
+	private void readLine(String line) {
+		String[] parts = line.split("\\s+", 2);
+		String command = parts[0].toLowerCase();
+		String rest = parts.length > 1 ? parts[1] : "";
+		switch (command) {
+			case "player":
+				if (game != null) {
+					finishGame();
+				}
+				String[] player = rest.split("\\s+");
+				if (player.length != 2) {
+					throw new IllegalArgumentException("Expected: player <name> <number of cards>");
+				}
+				players.add(new Player(player[0], parseNumber(player[1])));
+				break;
+			case "start":
+				Card startCard = findCard(rest);
+				applyMove(Move.startCard(startCard.getIndex()), String.format("Added start card [%s]", startCard.getDescription()));
+				break;
+			case "suggest":
+				applySuggestion(rest);
+				break;
+			case "whatif":
+				String[] asked = splitPlayer(rest);
+				out.print(getGame().exploreSuggestion(findPlayer(asked[0]), readSuggestion(asked[1])));
+				break;
+			case "why":
+				for (String reason : getGame().explain(findCard(rest))) {
+					out.println(reason);
+				}
+				break;
+			case "card":
+				String[] seen = splitPlayer(rest);
+				Move move = Move.addCard(findCard(seen[1]), getGame().getPlayers().get(findPlayer(seen[0])));
+				applyMove(move, move.toString(getGame().getPlayerList()));
+				break;
+			case "undo":
+				int moveNumber = parseNumber(rest);
+				if (moveNumber < 1 || moveNumber > getGame().getMoves().size()) {
+					throw new IllegalArgumentException(String.format("There is no move %d to undo", moveNumber));
+				}
+				applyMove(Move.undo(moveNumber - 1), String.format("Undid move %d", moveNumber));
+				break;
+			case "end":
+				finishGame();
+				break;
+			default:
+				throw new IllegalArgumentException(String.format("Unknown command \"%s\"", parts[0]));
+		}
+	}
+
+	/**
+	 * Reads a suggestion of the form "player: card, card, card -> player" and adds it to the game
+	 * @param text The suggestion
+	 * @throws IllegalArgumentException If the suggestion is not valid
+	**/
+	private void applySuggestion(String text) {
+		String[] resolved = text.split("->");
+		if (resolved.length != 2) {
+			throw new IllegalArgumentException("Expected: suggest <player>: <room>, <suspect>, <weapon> -> <player or none>");
+		}
+		String[] suggested = splitPlayer(resolved[0]);
+		int suggestingPlayer = findPlayer(suggested[0]);
+		int resolvingPlayer = resolved[1].trim().equalsIgnoreCase("none") ? suggestingPlayer : findPlayer(resolved[1]);
+		Move move = Move.suggestion(suggestingPlayer, readSuggestion(suggested[1]), resolvingPlayer);
+		applyMove(move, move.toString(getGame().getPlayerList()));
+	}
+
+	/**
+	 * Reads the cards of a suggestion of the form "card, card, card" in any order
+	 * @param text The cards
+	 * @return suggestion The suggestion
+	 * @throws IllegalArgumentException If there is not one card of each type
+	**/
+	private Suggestion readSuggestion(String text) {
+		Card room = null;
+		Card suspect = null;
+		Card weapon = null;
+		for (String name : text.split(",")) {
+			Card card = findCard(name);
+			switch (card.getType()) {
+				case ROOM:
+					room = card;
+					break;
+				case SUSPECT:
+					suspect = card;
+					break;
+				default:
+					weapon = card;
+			}
+		}
+		if (room == null || suspect == null || weapon == null) {
+			throw new IllegalArgumentException("A suggestion needs a room, a suspect, and a weapon");
+		}
+		return new Suggestion(room, suspect, weapon);
+	}
+
+	/**
+	 * Makes a move, printing everything it changed if deltas are shown
+	 * @param move The move to make
+	 * @param description What to print for the move
+	**/
+	private void applyMove(Move move, String description) {
+		ClueLogic current = getGame();
+		if (!showDeltas) {
+			current.doMove(move);
+			return;
+		}
+		ArrayList<Player> holders = getHolders();
+		CardSet[] known = new CardSet[holders.size()];
+		CardSet[] notPossible = new CardSet[holders.size()];
+		for (int i = 0; i < holders.size(); i++) {
+			known[i] = holders.get(i).getKnownMask();
+			notPossible[i] = holders.get(i).getNotPossibleMask();
+		}
+		current.doMove(move);
+		out.println(description);
+		for (int i = 0; i < holders.size(); i++) {
+			Player holder = holders.get(i);
+			printChanges(getName(i) + " has", known[i], holder.getKnownMask());
+			printChanges(getName(i) + " does not have", notPossible[i], holder.getNotPossibleMask());
+		}
+	}
+
+	/**
+	 * Prints the cards that were added to or removed from a set of cards by a move
+	 * @param fact What is true of the cards in the set
+	 * @param before The set before the move
+	 * @param after The set after the move
+	**/
+	private void printChanges(String fact, CardSet before, CardSet after) {
+		for (int c = after.nextCard(0); c >= 0; c = after.nextCard(c + 1)) {
+			if (!before.contains(c)) {
+				out.println(String.format("  + %s %s", fact, cards.getCard(c).getDescription()));
+			}
+		}
+		for (int c = before.nextCard(0); c >= 0; c = before.nextCard(c + 1)) {
+			if (!after.contains(c)) {
+				out.println(String.format("  - %s %s", fact, cards.getCard(c).getDescription()));
+			}
+		}
+	}
+
+	/**
+	 * Prints the final deductions of the current game and gets ready for the next one
+	 * @throws IllegalArgumentException If the players read so far can not start a game, which are dropped
+	**/
+	private void finishGame() {
+		if (game == null && players.size() == 0) {
+			return;
+		}
+		ClueLogic finished;
+		try {
+			finished = getGame();
+		} catch (IllegalArgumentException e) {
+			players = new ArrayList<Player>(); //So they are not taken into the next game
+			throw e;
+		}
+		gamesFinished++;
+		out.println(String.format("== Game %d (%d moves) ==", gamesFinished, finished.getMoves().size()));
+		ArrayList<Player> holders = getHolders();
+		for (int i = 0; i < holders.size(); i++) {
+			CardSet known = holders.get(i).getKnownMask();
+			CardSet notPossible = holders.get(i).getNotPossibleMask();
+			String deductions = known.isEmpty() && notPossible.isEmpty() ? "nothing known" : "";
+			if (!known.isEmpty()) {
+				deductions += "has " + describe(known);
+			}
+			if (!notPossible.isEmpty()) {
+				deductions += (!known.isEmpty() ? "; " : "") + "does not have " + describe(notPossible);
+			}
+			out.println(String.format("%s: %s", getName(i), deductions));
+		}
+		game = null;
+		players = new ArrayList<Player>();
+	}
+
+	/**
+	 * Gives the descriptions of a set of cards
+	 * @param set The set of cards
+	 * @return description The descriptions separated by commas
+	**/
+	private String describe(CardSet set) {
+		String description = "";
+		for (int c = set.nextCard(0); c >= 0; c = set.nextCard(c + 1)) {
+			description += (description.length() == 0 ? "" : ", ") + cards.getCard(c).getDescription();
+		}
+		return description;
+	}
+
+	/**
+	 * Gives the current game, starting it with the players read so far if it has not started
+	 * @return game The current game
+	 * @throws IllegalArgumentException If there are not enough players to start a game
+	**/
+	private ClueLogic getGame() {
+		if (game == null) {
+			if (players.size() < 2) {
+				throw new IllegalArgumentException("A game needs at least two players before any moves");
+			}
+			game = new ClueLogic(cards, players, metrics);
+		}
+		return game;
+	}
+
+	/**
+	 * Gives the players of the current game followed by the solution
+	 * @return holders Everyone who can have cards
+	**/
+	private ArrayList<Player> getHolders() {
+		ArrayList<Player> holders = new ArrayList<Player>(getGame().getPlayers());
+		holders.add(getGame().getSolution());
+		return holders;
+	}
+
+	/**
+	 * Gives the name to print for a player or the solution
+	 * @param holder The index of the player, the number of players for the solution
+	 * @return name The player's name or "Envelope"
+	**/
+	private String getName(int holder) {
+		return holder == players.size() ? "Envelope" : players.get(holder).getName();
+	}
+
+	/**
+	 * Splits text of the form "player: rest" into the player and the rest
+	 * @param text The text to split
+	 * @return parts The player and the rest
+	 * @throws IllegalArgumentException If there is no colon
+	**/
+	private static String[] splitPlayer(String text) {
+		String[] parts = text.split(":", 2);
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Expected a player followed by a colon");
+		}
+		return parts;
+	}
+
+	/**
+	 * Finds a player of the current game by name or by number in turn order
+	 * @param name The player's name or number, starting from 1
+	 * @return index The index of the player
+	 * @throws IllegalArgumentException If there is no such player
+	**/
+	private int findPlayer(String name) {
+		ArrayList<Player> gamePlayers = getGame().getPlayers();
+		name = name.trim();
+		for (int i = 0; i < gamePlayers.size(); i++) {
+			if (gamePlayers.get(i).getName().equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		try {
+			int number = Integer.parseInt(name);
+			if (number >= 1 && number <= gamePlayers.size()) {
+				return number - 1;
+			}
+		} catch (NumberFormatException e) {
+			//Not a number either
+		}
+		throw new IllegalArgumentException(String.format("Unknown player \"%s\"", name));
+	}
+
+	/**
+	 * Finds a card by its description
+	 * @param description The description of the card
+	 * @return card The card
+	 * @throws IllegalArgumentException If there is no such card
+	**/
+	private Card findCard(String description) {
+		Card card = cards.findCard(description);
+		if (card == null) {
+			throw new IllegalArgumentException(String.format("Unknown card \"%s\"", description.trim()));
+		}
+		return card;
+	}
+
+	/**
+	 * Reads a whole number
+	 * @param text The number
+	 * @return number The number's value
+	 * @throws IllegalArgumentException If the text is not a number
+	**/
+	private static int parseNumber(String text) {
+		try {
+			return Integer.parseInt(text.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("Expected a number but got \"%s\"", text.trim()));
+		}
+	}
+}
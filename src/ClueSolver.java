@@ -2,8 +2,15 @@ package src;
 import java.util.Scanner;
 import src.logic.*;
 import src.logic.card.*;
+import src.logic.analysis.*;
+import src.logic.events.ConsoleEventSink;
+import src.simulation.GameSimulator;
+import src.server.GameServer;
 import java.util.InputMismatchException;
 import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Paths;
+import javax.management.JMException;
 
 /**
  * Command line interface for the clue solving logic
@@ -12,9 +19,9 @@ import java.util.ArrayList;
 class ClueSolver {
 	//Variables
 	//The least amount of people that can play clue
-	private static int MIN_PLAYERS = 3;
-	//The maximum number of players for clue
-	private static int MAX_PLAYERS = 6;
+	private static final int MIN_PLAYERS = 3;
+	//The chance the most likely envelope needs before the user is told to accuse
+	private static final double ACCUSATION_THRESHOLD = 0.9;
 	//The options for the play menu
 	enum MenuOption { SUGGESTION, ADD_KNOWN, VIEW_STATUS, UNDO, EXIT };
 
@@ -52,7 +59,7 @@ class ClueSolver {
 		int value = Integer.MAX_VALUE; //Default value for an incorrect input
 		while (value < min || value > max) {
 			value = promptForInt(prompt, scanner);
-			if (value != Integer.MAX_VALUE && (value < MIN_PLAYERS || value > MAX_PLAYERS)) {
+			if (value != Integer.MAX_VALUE && (value < min || value > max)) {
 				System.out.println(String.format("\033[31m%s\033[39m", errorMessage));
 			}
 		}
@@ -96,9 +103,35 @@ class ClueSolver {
 
 	/**
 	 * Starts the clue solver
-	 * @param args The command line arguments (should be none)
+	 * @param args The command line arguments, none to play interactively with the standard deck, --deck file to play
+	 * interactively with a deck loaded from a file (see CardList), --batch to read games from scripts (see BatchSolver),
+	 * --simulate to play automated games (see GameSimulator), or --serve to serve games over HTTP (see GameServer)
 	**/
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("--batch")) {
+			BatchSolver.main(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--simulate")) {
+			GameSimulator.main(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--serve")) {
+			GameServer.main(args);
+			return;
+		}
+		//Import the cards
+		CardList c = new CardList();
+		if (args.length > 1 && args[0].equals("--deck")) {
+			try {
+				c = CardList.load(Paths.get(args[1]));
+			} catch (IOException | IllegalArgumentException e) {
+				System.out.println(String.format("\033[31mCould not load the deck from %s: %s\033[39m", args[1], e.getMessage()));
+				return;
+			}
+		}
+		//Every player needs at least one card
+		int maxPlayers = Math.min(DealConstraints.MAX_PLAYERS, c.getNumberOfCards() - 3);
 		//Display a welcome message
 		System.out.println("\033[35m-----------------------------------------");
 		System.out.println("| \033[1mWelcome to the Clue Solving Assistant\033[0m |");
@@ -107,8 +140,8 @@ class ClueSolver {
 	    Scanner scanner = new Scanner(System.in);
 
 		//Get how many players
-		String numberOfPlayersError = String.format("Sorry, there must be %d to %d players to play Clue.", MIN_PLAYERS, MAX_PLAYERS);
-		int numberOfPlayers = verifiedInt("How many players will be playing? ", numberOfPlayersError, MIN_PLAYERS, MAX_PLAYERS, scanner);
+		String numberOfPlayersError = String.format("Sorry, there must be %d to %d players to play Clue.", MIN_PLAYERS, maxPlayers);
+		int numberOfPlayers = verifiedInt("How many players will be playing? ", numberOfPlayersError, MIN_PLAYERS, maxPlayers, scanner);
 
 		//Get player names
 
@@ -116,8 +149,6 @@ class ClueSolver {
     	// Get the user's name
     	System.out.print("\033[34mEnter your name:\033[39m ");
 		String name = scanner.next();
-		//Import the cards
-		CardList c = CardList.getCardList();
 		int totalCards = c.getNumberOfCards(); //Number of all the weapons, suspects, and rooms
 		// int cardsAccountedFor = 3; //Cards in the envelope and in people's hands
 		int CARDS_IN_ENVELOPE = 3;
@@ -146,10 +177,16 @@ class ClueSolver {
 	    	System.out.println(String.format("Player %d: %s\tCards: %s", i, name, numberOfCards));
 		}
 
-		ClueLogic solver = new ClueLogic(playerNames);
+		ClueLogic solver = new ClueLogic(c, playerNames);
+		solver.setEventSink(new ConsoleEventSink(System.out));
+		try { //Let the solver's metrics be watched through JMX
+			solver.getMetrics().register("game");
+		} catch (JMException e) {
+			System.out.println(String.format("\033[31mMetrics are not available through JMX: %s\033[39m", e.getMessage()));
+		}
 		//Get what cards you have
 		for (int i = 0; i<playerCards; ) {
-			int cardNumber = verifiedInt(createMenuList("Please select a card you have", solver.getAllCardNames()), "Please select a valid card", 1,
+			int cardNumber = verifiedInt(createMenuList("Please select a card you have", solver.getView().getAllCardNames()), "Please select a valid card", 1,
 				totalCards, scanner);
 			//Only continue if it is a new card
 			if (solver.doMove(Move.startCard(cardNumber-1))) {
@@ -157,6 +194,8 @@ class ClueSolver {
 			}
 		}
 
+		AccusationAdvisor advisor = new AccusationAdvisor(solver, ACCUSATION_THRESHOLD);
+
 		//Begin the game
 		String mainMenuText = "Main menu\033[39m\n\n1. Make a suggestion\n2. Add a known card\n3. View Current Status\n4. Undo a move\n5. Exit\n";
 		String mainMenuError = "Please choose a valid option";
@@ -167,31 +206,31 @@ class ClueSolver {
 			switch (mainMenuOption) {
 				case SUGGESTION: //Make a suggestion
 					//Get number of the player making the suggestion
-					int playerNumber = verifiedInt(createMenuList("Which player will make a suggestion? (Press 0 to go back)", solver.getPlayerList()),
+					int playerNumber = verifiedInt(createMenuList("Which player will make a suggestion? (Press 0 to go back)", solver.getView().getPlayerList()),
 							"Please select a valid player", 0, numberOfPlayers, scanner);
 					if (playerNumber == 0) {
 						break;
 					}
 					//Pick a room
-					int roomNumber = verifiedInt(createMenuList("Where did the murder occur? (Press 0 to go back)", solver.getRoomNames()),
+					int roomNumber = verifiedInt(createMenuList("Where did the murder occur? (Press 0 to go back)", solver.getView().getRoomNames()),
 							"Please select a valid player", 0, c.getNumberOfRooms(), scanner);
 					if (roomNumber == 0) {
 						break;
 					}
 					//Pick a suspect
-					int suspectNumber = verifiedInt(createMenuList("Who did it? (Press 0 to go back)", solver.getSuspectNames()),
+					int suspectNumber = verifiedInt(createMenuList("Who did it? (Press 0 to go back)", solver.getView().getSuspectNames()),
 							"Please select a valid player", 0, c.getNumberOfSuspects(), scanner);
 					if (suspectNumber == 0) {
 						break;
 					}
 					//Pick a weapon
-					int weaponNumber = verifiedInt(createMenuList("What weapon did they use? (Press 0 to go back)", solver.getWeaponNames()),
+					int weaponNumber = verifiedInt(createMenuList("What weapon did they use? (Press 0 to go back)", solver.getView().getWeaponNames()),
 							"Please select a valid player", 0, c.getNumberOfWeapons(), scanner);
 					if (weaponNumber == 0) {
 						break;
 					}
 					//Get number of the player making the suggestion
-					ArrayList<String> players = solver.getPlayerList();
+					ArrayList<String> players = solver.getView().getPlayerList();
 					players.set(playerNumber-1, "Nobody");
 					int endingPlayer = verifiedInt(createMenuList("Which player was able to disprove the suggestion? (Press 0 to go back)", players),
 							"Please select a valid player", 1, numberOfPlayers, scanner);
@@ -202,7 +241,7 @@ class ClueSolver {
 					solver.doMove(Move.suggestion(playerNumber-1, suggestion, endingPlayer-1));
 					break;
 				case ADD_KNOWN: //Add a known card
-					int knownPlayerNumber = verifiedInt(createMenuList("Which player's was learned? (Press 1 to go back)", solver.getPlayerList()),
+					int knownPlayerNumber = verifiedInt(createMenuList("Which player's was learned? (Press 1 to go back)", solver.getView().getPlayerList()),
 							"Please select a valid player", 1, numberOfPlayers, scanner);
 					if (knownPlayerNumber == 1) {
 						break;
@@ -213,11 +252,11 @@ class ClueSolver {
 					Card knownCard = null;
 					while (alreadyKnown) {
 						cardNumber = verifiedInt(createMenuList(String.format("Please select which card %s has: (Press 0 to go back)",
-							playerNames.get(knownPlayerNumber-1).getName()), solver.getAllCardNames()), "Please select a valid card", 0,
+							playerNames.get(knownPlayerNumber-1).getName()), solver.getView().getAllCardNames()), "Please select a valid card", 0,
 							totalCards, scanner);
 						if (cardNumber != 0) {
-							knownCard = CardList.getCardList().getCard(cardNumber-1);
-							alreadyKnown = knownCard.isKnown();
+							knownCard = c.getCard(cardNumber-1);
+							alreadyKnown = solver.isCardKnown(knownCard);
 						}
 					}
 					if (cardNumber != 0) {
@@ -230,13 +269,41 @@ class ClueSolver {
 					}
 					break;
 				case VIEW_STATUS: //View current status
-					System.out.println(solver.getSolution());
-					for (int i = 0; i<playerNames.size(); i++) {
-						System.out.println(playerNames.get(i).toString());
+					GameView view = solver.getView();
+					System.out.println(view.getSolution());
+					for (GameView.PlayerView player : view.getPlayers()) {
+						System.out.println(player);
+					}
+					//Show the chance of each card still in question being in the envelope
+					CardProbabilities probabilities;
+					String chanceTitle = "Chance of being in the envelope:";
+					try {
+						probabilities = solver.getCardProbabilities();
+					} catch (IllegalStateException e) { //Too much to count, estimate it instead
+						probabilities = solver.estimateCardProbabilities(500);
+						chanceTitle = "Estimated chance of being in the envelope:";
+					}
+					System.out.println(String.format("\033[33m%s\033[39m", chanceTitle));
+					for (Card card : c.getCards()) {
+						double probability = probabilities.getEnvelopeProbability(card);
+						if (probability > 0 && probability < 1) {
+							System.out.println(String.format("%s: %.1f%%", card.getDescription(), 100 * probability));
+						}
+					}
+					if (advisor.getBestEnvelope() != null) {
+						System.out.println(String.format("\033[33mMost likely envelope:\033[39m %s", advisor));
+					}
+					//Show the suggestions expected to reveal the most about the envelope
+					ArrayList<SuggestionScore> recommendations = solver.recommendSuggestions(3, 500);
+					if (recommendations.size() > 0) {
+						System.out.println("\033[33mBest suggestions to make:\033[39m");
+						for (SuggestionScore score : recommendations) {
+							System.out.println(score);
+						}
 					}
 					break;
 				case UNDO:
-					ArrayList<String> moves = solver.getMoves();
+					ArrayList<String> moves = solver.getView().getMoves();
 					if (moves.size() > 0) {
 						int moveNumber = verifiedInt(createMenuList("Which move would you like to remove? (Press 0 to go back)", moves),
 							"Please select a valid move", 0, moves.size(), scanner);
@@ -250,6 +317,9 @@ class ClueSolver {
 				default: //Quit
 					continueGame = false;
 			}
+			if (continueGame && advisor.update()) {
+				System.out.println(String.format("\033[32mTime to accuse: %s\033[39m", advisor));
+			}
 		}
 	}
 }
@@ -0,0 +1,47 @@
+package src.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import src.logic.*;
+import src.logic.analysis.*;
+
+/**
+ * Measures the exact probabilities of a position halfway through a recorded game when they are calculated
+ * and when they are found in the analysis cache, along with the cost of taking the state's key.
+**/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisCacheBenchmark {
+	//Variables
+	@Param({"4"})
+	public int numberOfPlayers;
+	private ClueLogic game;
+
+	//Methods
+
+	@Setup(Level.Trial)
+	public void prepareGame() {
+		RecordedGame recordedGame = new RecordedGame(numberOfPlayers, 40, 1);
+		game = recordedGame.replay(recordedGame.getNumberOfMoves() / 2);
+	}
+
+	@Benchmark
+	public CardProbabilities calculate() {
+		game.getAnalysisCache().clear();
+		return game.getCardProbabilities();
+	}
+
+	@Benchmark
+	public CardProbabilities cached() {
+		return game.getCardProbabilities();
+	}
+
+	@Benchmark
+	public StateKey stateKey() {
+		return new StateKey(game);
+	}
+}
@@ -0,0 +1,72 @@
+package src.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import src.logic.*;
+import src.logic.card.*;
+
+/**
+ * Measures replaying whole recorded games with decks and tables larger than the standard game,
+ * to show how the solver scales once card sets no longer fit in a single word
+**/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeckScalingBenchmark {
+	//Variables
+	@Param({"8", "16", "32", "64"})
+	public int cardsPerType;
+	@Param({"6", "10"})
+	public int numberOfPlayers;
+	@Param({"60"})
+	public int numberOfSuggestions;
+	private static final int NUMBER_OF_GAMES = 16; //Games replayed by each invocation
+	private RecordedGame[] recordedGames;
+
+	//Methods
+
+	/**
+	 * Creates a deck with the same number of cards of each type
+	 * @param cardsPerType How many suspects, weapons, and rooms there are
+	 * @return cards The deck
+	**/
+	static CardList createDeck(int cardsPerType) {
+		ArrayList<String> suspects = new ArrayList<String>();
+		ArrayList<String> weapons = new ArrayList<String>();
+		ArrayList<String> rooms = new ArrayList<String>();
+		for (int i = 1; i <= cardsPerType; i++) {
+			suspects.add(String.format("Suspect %d", i));
+			weapons.add(String.format("Weapon %d", i));
+			rooms.add(String.format("Room %d", i));
+		}
+		return new CardList(suspects, weapons, rooms);
+	}
+
+	@Setup(Level.Trial)
+	public void recordGames() {
+		CardList cards = createDeck(cardsPerType);
+		recordedGames = new RecordedGame[NUMBER_OF_GAMES];
+		for (int i = 0; i < NUMBER_OF_GAMES; i++) {
+			recordedGames[i] = new RecordedGame(cards, numberOfPlayers, numberOfSuggestions, 100 + i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_GAMES)
+	public int replay() {
+		int known = 0;
+		for (RecordedGame recordedGame : recordedGames) {
+			ClueLogic game = recordedGame.newGame();
+			ArrayList<Move> moves = recordedGame.getMoves(game);
+			for (Move move : moves) {
+				game.doMove(move);
+			}
+			known += game.getSolution().getNumberOfKnownCards();
+		}
+		return known;
+	}
+}
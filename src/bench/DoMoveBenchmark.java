@@ -0,0 +1,73 @@
+package src.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import src.logic.*;
+
+/**
+ * Measures ClueLogic.doMove for each type of move, made partway through a recorded game.
+ * A single move takes well under a microsecond, too little to time on its own or to set up a solver for each time,
+ * so each invocation makes the move in a batch of a thousand solvers that were all replayed to the same state before
+ * the trial. The score is the average time of one move, the inverse of the throughput, and the allocation per
+ * operation is that of the move alone.
+**/
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = DoMoveBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = DoMoveBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g") //Room for the games of every iteration
+public class DoMoveBenchmark {
+	//Variables
+	@Param({"START_CARD", "SUGGESTION", "ADD_CARD", "UNDO"})
+	public Move.MoveType moveType;
+	@Param({"4"})
+	public int numberOfPlayers;
+	static final int WARMUP_ITERATIONS = 30; //The JIT takes tens of thousands of moves to settle
+	static final int MEASUREMENT_ITERATIONS = 20;
+	private static final int NUMBER_OF_GAMES = 1000; //Games the move is made in by each invocation
+	private RecordedGame recordedGame;
+	private int moveNumber; //The number of the move to make, or how many moves are made before the undo
+	private Move undo;
+	private ReplayedGames replayedGames; //Games for every iteration
+	private ClueLogic[] games; //The games of this iteration
+	private Move[] moves; //The move for each game
+
+	//Methods
+
+	@Setup(Level.Trial)
+	public void recordGame() {
+		recordedGame = new RecordedGame(numberOfPlayers, 40, 1);
+		if (moveType == Move.MoveType.UNDO) { //Undo the suggestion halfway through the game
+			moveNumber = recordedGame.getNumberOfMoves();
+			undo = Move.undo(recordedGame.replay(moveNumber).getMoves().size() / 2);
+		} else {
+			int start = moveType == Move.MoveType.START_CARD ? 0 : recordedGame.getNumberOfMoves() / 2;
+			moveNumber = recordedGame.findMove(moveType, start);
+		}
+		replayedGames = new ReplayedGames(recordedGame, moveNumber, (WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS) * NUMBER_OF_GAMES);
+		games = new ClueLogic[NUMBER_OF_GAMES];
+		moves = new Move[NUMBER_OF_GAMES];
+	}
+
+	@Setup(Level.Iteration)
+	public void prepareGames() {
+		for (int i = 0; i < NUMBER_OF_GAMES; i++) {
+			games[i] = replayedGames.take();
+			moves[i] = moveType == Move.MoveType.UNDO ? undo : recordedGame.getMove(games[i], moveNumber);
+		}
+		System.gc(); //Collect the last iteration's games, so a collection does not land in this one's moves
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_GAMES)
+	public int doMove() {
+		int done = 0;
+		for (int i = 0; i < NUMBER_OF_GAMES; i++) {
+			if (games[i].doMove(moves[i])) {
+				done++;
+			}
+		}
+		return done;
+	}
+}
@@ -0,0 +1,61 @@
+package src.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import src.logic.*;
+
+/**
+ * Measures ClueLogic.makeSuggestion on its own, without recording the move,
+ * for games with different numbers of players. Each invocation makes the suggestion in a batch of a thousand games
+ * that were all replayed up to it before the trial, and the score is the average time of one suggestion.
+**/
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = MakeSuggestionBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = MakeSuggestionBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g") //Room for the games of every iteration
+public class MakeSuggestionBenchmark {
+	//Variables
+	@Param({"3", "4", "6"})
+	public int numberOfPlayers;
+	static final int WARMUP_ITERATIONS = 30; //The JIT takes tens of thousands of moves to settle
+	static final int MEASUREMENT_ITERATIONS = 20;
+	private static final int NUMBER_OF_GAMES = 1000; //Games the suggestion is made in by each invocation
+	private ReplayedGames replayedGames; //Games for every iteration
+	private ClueLogic[] games; //The games of this iteration
+	private Suggestion suggestion;
+	private int suggestingPlayer;
+	private int resolvingPlayer;
+
+	//Methods
+
+	@Setup(Level.Trial)
+	public void recordGame() {
+		RecordedGame recordedGame = new RecordedGame(numberOfPlayers, 40, 2);
+		int moveNumber = recordedGame.findMove(Move.MoveType.SUGGESTION, recordedGame.getNumberOfMoves() / 2);
+		replayedGames = new ReplayedGames(recordedGame, moveNumber, (WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS) * NUMBER_OF_GAMES);
+		games = new ClueLogic[NUMBER_OF_GAMES];
+		Move move = recordedGame.getMove(recordedGame.newGame(), moveNumber);
+		suggestion = move.getSugestion();
+		suggestingPlayer = move.getNumber();
+		resolvingPlayer = move.getResolvingPlayer();
+	}
+
+	@Setup(Level.Iteration)
+	public void prepareGames() {
+		for (int i = 0; i < NUMBER_OF_GAMES; i++) {
+			games[i] = replayedGames.take();
+		}
+		System.gc(); //Collect the last iteration's games, so a collection does not land in this one's moves
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_GAMES)
+	public ClueLogic[] makeSuggestion() {
+		for (ClueLogic game : games) {
+			game.makeSuggestion(suggestingPlayer, suggestion.getRoom(), suggestion.getSuspect(), suggestion.getWeapon(), resolvingPlayer);
+		}
+		return games;
+	}
+}
@@ -0,0 +1,49 @@
+package src.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import src.logic.*;
+import src.logic.card.*;
+
+/**
+ * Measures Player.getStatusOfCard, asking about every card for every player and the solution
+ * partway through a recorded game where players have open suggestions
+**/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark {
+	//Variables
+	@Param({"8", "32"})
+	public int numberOfSuggestions;
+	private ClueLogic game;
+	private Player[] holders; //The players followed by the solution
+	private Card[] cards;
+
+	//Methods
+
+	@Setup(Level.Trial)
+	public void prepareGame() {
+		RecordedGame recordedGame = new RecordedGame(4, numberOfSuggestions, 4);
+		game = recordedGame.replay(recordedGame.getNumberOfMoves());
+		holders = new Player[game.getPlayers().size() + 1];
+		for (int i = 0; i < game.getPlayers().size(); i++) {
+			holders[i] = game.getPlayers().get(i);
+		}
+		holders[holders.length - 1] = game.getSolution();
+		cards = game.getCards().getCards().toArray(new Card[0]);
+	}
+
+	@Benchmark
+	public void getStatusOfCard(Blackhole blackhole) {
+		for (Player player : holders) {
+			for (Card card : cards) {
+				blackhole.consume(player.getStatusOfCard(card));
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package src.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import src.logic.*;
+import src.logic.card.*;
+
+/**
+ * A game of clue played out from a random deal, kept so the same moves can be replayed into new solvers.
+ * Players are numbered in turn order and the user is player 0, who is shown a card when someone disproves
+ * their suggestion. Moves are kept as numbers since a Move holds on to the Player of one particular game.
+**/
+public class RecordedGame {
+	//Variables
+	private final CardList cards;
+	private final int[] handSizes; //How many cards each player has
+	private final int[] owners; //The holder of each card, numberOfPlayers for the envelope
+	private final ArrayList<int[]> moves; //Each move as {type, card or suggesting player, room, suspect, weapon, player}
+
+	//Methods
+
+	/**
+	 * Deals the standard deck and plays a game where every player makes random suggestions
+	 * @param numberOfPlayers How many players are in the game
+	 * @param numberOfSuggestions How many suggestions are made
+	 * @param seed The seed for the random deal and suggestions
+	**/
+	public RecordedGame(int numberOfPlayers, int numberOfSuggestions, long seed) {
+		this(new CardList(), numberOfPlayers, numberOfSuggestions, seed);
+	}
+
+	/**
+	 * Deals the cards and plays a game where every player makes random suggestions
+	 * @param cards The deck to deal
+	 * @param numberOfPlayers How many players are in the game
+	 * @param numberOfSuggestions How many suggestions are made
+	 * @param seed The seed for the random deal and suggestions
+	**/
+	public RecordedGame(CardList cards, int numberOfPlayers, int numberOfSuggestions, long seed) {
+		Random random = new Random(seed);
+		this.cards = cards;
+		owners = new int[cards.getNumberOfCards()];
+		handSizes = new int[numberOfPlayers];
+		moves = new ArrayList<int[]>();
+		//Pick the envelope and deal the rest of the cards
+		ArrayList<Integer> rest = new ArrayList<Integer>();
+		Card room = cards.getRoom(random.nextInt(cards.getNumberOfRooms()));
+		Card suspect = cards.getSuspect(random.nextInt(cards.getNumberOfSuspects()));
+		Card weapon = cards.getWeapon(random.nextInt(cards.getNumberOfWeapons()));
+		for (Card c : cards.getCards()) {
+			if (c.equals(room) || c.equals(suspect) || c.equals(weapon)) {
+				owners[c.getIndex()] = numberOfPlayers;
+			} else {
+				rest.add(c.getIndex());
+			}
+		}
+		Collections.shuffle(rest, random);
+		for (int i = 0; i < rest.size(); i++) {
+			owners[rest.get(i)] = i % numberOfPlayers;
+			handSizes[i % numberOfPlayers]++;
+		}
+		for (int c = 0; c < owners.length; c++) {
+			if (owners[c] == 0) {
+				moves.add(new int[] {Move.MoveType.START_CARD.ordinal(), c, 0, 0, 0, 0});
+			}
+		}
+		//Go around the table making suggestions
+		for (int turn = 0; turn < numberOfSuggestions; turn++) {
+			int suggestingPlayer = turn % numberOfPlayers;
+			int[] suggested = {cards.getRoom(random.nextInt(cards.getNumberOfRooms())).getIndex(),
+				cards.getSuspect(random.nextInt(cards.getNumberOfSuspects())).getIndex(),
+				cards.getWeapon(random.nextInt(cards.getNumberOfWeapons())).getIndex()};
+			int resolvingPlayer = suggestingPlayer;
+			int shownCard = -1;
+			for (int i = (suggestingPlayer + 1) % numberOfPlayers; i != suggestingPlayer && shownCard == -1; i = (i + 1) % numberOfPlayers) {
+				ArrayList<Integer> held = new ArrayList<Integer>();
+				for (int c : suggested) {
+					if (owners[c] == i) {
+						held.add(c);
+					}
+				}
+				if (held.size() > 0) {
+					resolvingPlayer = i;
+					shownCard = held.get(random.nextInt(held.size()));
+				}
+			}
+			moves.add(new int[] {Move.MoveType.SUGGESTION.ordinal(), suggestingPlayer, suggested[0], suggested[1], suggested[2], resolvingPlayer});
+			if (suggestingPlayer == 0 && shownCard != -1) {
+				moves.add(new int[] {Move.MoveType.ADD_CARD.ordinal(), shownCard, 0, 0, 0, resolvingPlayer});
+			}
+		}
+	}
+
+	/**
+	 * Creates a solver for the game with no moves made yet
+	 * @return game The new solver
+	**/
+	public ClueLogic newGame() {
+		ArrayList<Player> players = new ArrayList<Player>();
+		for (int p = 0; p < handSizes.length; p++) {
+			players.add(new Player(String.format("Player %d", p + 1), handSizes[p]));
+		}
+		return new ClueLogic(cards, players);
+	}
+
+	/**
+	 * Gives a move of the game for a solver created by newGame
+	 * @param game The solver the move is for
+	 * @param number The number of the move
+	 * @return move The move
+	**/
+	public Move getMove(ClueLogic game, int number) {
+		int[] move = moves.get(number);
+		switch (Move.MoveType.values()[move[0]]) {
+			case START_CARD:
+				return Move.startCard(move[1]);
+			case SUGGESTION:
+				Suggestion suggestion = new Suggestion(cards.getCard(move[2]), cards.getCard(move[3]), cards.getCard(move[4]));
+				return Move.suggestion(move[1], suggestion, move[5]);
+			default:
+				return Move.addCard(cards.getCard(move[1]), game.getPlayers().get(move[5]));
+		}
+	}
+
+	/**
+	 * Gives all the moves of the game for a solver created by newGame
+	 * @param game The solver the moves are for
+	 * @return moves The moves in the order they were made
+	**/
+	public ArrayList<Move> getMoves(ClueLogic game) {
+		ArrayList<Move> list = new ArrayList<Move>();
+		for (int i = 0; i < moves.size(); i++) {
+			list.add(getMove(game, i));
+		}
+		return list;
+	}
+
+	/**
+	 * Creates a solver and makes the first moves of the game
+	 * @param numberOfMoves How many moves to make
+	 * @return game The solver after the moves
+	**/
+	public ClueLogic replay(int numberOfMoves) {
+		ClueLogic game = newGame();
+		for (int i = 0; i < numberOfMoves && i < moves.size(); i++) {
+			game.doMove(getMove(game, i));
+		}
+		return game;
+	}
+
+	/**
+	 * Gives the number of the first move of a type at or after a move
+	 * @param type The type of move to find
+	 * @param from The number of the move to start looking at
+	 * @return number The number of the move or -1 if there is none
+	**/
+	public int findMove(Move.MoveType type, int from) {
+		for (int i = from; i < moves.size(); i++) {
+			if (moves.get(i)[0] == type.ordinal()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gives the number of moves in the game
+	 * @return numberOfMoves How many moves were recorded
+	**/
+	public int getNumberOfMoves() {
+		return moves.size();
+	}
+
+	/**
+	 * Gives the deck the game is played with
+	 * @return cards The deck
+	**/
+	public CardList getCards() {
+		return cards;
+	}
+
+	/**
+	 * Gives who really has each card
+	 * @return owners The holder of each card, the number of players for the envelope
+	**/
+	public int[] getOwners() {
+		return owners;
+	}
+}
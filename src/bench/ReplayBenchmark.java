@@ -0,0 +1,50 @@
+package src.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import src.logic.*;
+
+/**
+ * Measures replaying whole recorded games into a new solver, from the starting cards to the last suggestion
+**/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+	//Variables
+	@Param({"3", "4", "6"})
+	public int numberOfPlayers;
+	@Param({"40"})
+	public int numberOfSuggestions;
+	private static final int NUMBER_OF_GAMES = 16; //Games replayed by each invocation
+	private RecordedGame[] recordedGames;
+
+	//Methods
+
+	@Setup(Level.Trial)
+	public void recordGames() {
+		recordedGames = new RecordedGame[NUMBER_OF_GAMES];
+		for (int i = 0; i < NUMBER_OF_GAMES; i++) {
+			recordedGames[i] = new RecordedGame(numberOfPlayers, numberOfSuggestions, 100 + i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_GAMES)
+	public int replay() {
+		int known = 0;
+		for (RecordedGame recordedGame : recordedGames) {
+			ClueLogic game = recordedGame.newGame();
+			ArrayList<Move> moves = recordedGame.getMoves(game);
+			for (Move move : moves) {
+				game.doMove(move);
+			}
+			known += game.getSolution().getKnownCards().size();
+		}
+		return known;
+	}
+}
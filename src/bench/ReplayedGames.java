@@ -0,0 +1,46 @@
+package src.bench;
+
+import src.logic.*;
+
+/**
+ * Solvers replayed to the same move of a recorded game ahead of time, so a benchmark can make a move in a game that
+ * is ready without the replay being timed or counted by allocation profilers. Each game is given out only once.
+**/
+class ReplayedGames {
+	//Variables
+	private final RecordedGame recordedGame;
+	private final int numberOfMoves; //How many moves each game was replayed to
+	private final ClueLogic[] games;
+	private int next; //The next game to give out
+
+	//Methods
+
+	/**
+	 * Replays a recorded game into new solvers
+	 * @param recordedGame The game to replay
+	 * @param numberOfMoves How many of its moves to make
+	 * @param numberOfGames How many solvers to replay it into
+	**/
+	ReplayedGames(RecordedGame recordedGame, int numberOfMoves, int numberOfGames) {
+		this.recordedGame = recordedGame;
+		this.numberOfMoves = numberOfMoves;
+		games = new ClueLogic[numberOfGames];
+		for (int i = 0; i < numberOfGames; i++) {
+			games[i] = recordedGame.replay(numberOfMoves);
+		}
+	}
+
+	/**
+	 * Gives a game that was not given out before. Once the replayed games run out, which only happens when a benchmark
+	 * is run for more iterations than it asks for, each game is replayed when it is taken.
+	 * @return game A solver after the moves
+	**/
+	ClueLogic take() {
+		if (next == games.length) {
+			return recordedGame.replay(numberOfMoves);
+		}
+		ClueLogic game = games[next];
+		games[next++] = null; //Let the game be collected once the benchmark is done with it
+		return game;
+	}
+}
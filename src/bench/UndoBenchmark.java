@@ -0,0 +1,69 @@
+package src.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import src.logic.*;
+
+/**
+ * Measures undoing the first, middle, or last move of games of different lengths.
+ * An undo takes back only the deductions that depend on the move, so it shows how that grows with the length of the game.
+ * Each invocation undoes the move in a batch of a thousand games that were all replayed before the trial, so neither
+ * the time nor the allocation of the replays is counted. The score is the average time of one undo.
+**/
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = UndoBenchmark.WARMUP_ITERATIONS)
+@Measurement(iterations = UndoBenchmark.MEASUREMENT_ITERATIONS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g") //Room for the games of every iteration
+public class UndoBenchmark {
+	//Variables
+	public enum Position { FIRST, MIDDLE, LAST }
+	@Param({"8", "32", "128"})
+	public int numberOfSuggestions;
+	@Param({"FIRST", "MIDDLE", "LAST"})
+	public Position position;
+	static final int WARMUP_ITERATIONS = 30; //The JIT takes tens of thousands of moves to settle
+	static final int MEASUREMENT_ITERATIONS = 20;
+	private static final int NUMBER_OF_GAMES = 1000; //Games the move is undone in by each invocation
+	private ReplayedGames replayedGames; //Games for every iteration
+	private ClueLogic[] games; //The games of this iteration
+	private Move move;
+
+	//Methods
+
+	@Setup(Level.Trial)
+	public void recordGame() {
+		RecordedGame recordedGame = new RecordedGame(4, numberOfSuggestions, 3);
+		replayedGames = new ReplayedGames(recordedGame, recordedGame.getNumberOfMoves(), (WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS) * NUMBER_OF_GAMES);
+		games = new ClueLogic[NUMBER_OF_GAMES];
+		int numberOfMoves = recordedGame.replay(recordedGame.getNumberOfMoves()).getMoves().size();
+		switch (position) {
+			case FIRST:
+				move = Move.undo(0);
+				break;
+			case MIDDLE:
+				move = Move.undo(numberOfMoves / 2);
+				break;
+			default:
+				move = Move.undo(numberOfMoves - 1);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void prepareGames() {
+		for (int i = 0; i < NUMBER_OF_GAMES; i++) {
+			games[i] = replayedGames.take();
+		}
+		System.gc(); //Collect the last iteration's games, so a collection does not land in this one's moves
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_GAMES)
+	public ClueLogic[] undo() {
+		for (ClueLogic game : games) {
+			game.doMove(move);
+		}
+		return games;
+	}
+}
@@ -0,0 +1,290 @@
+package src.logic;
+
+import java.util.Arrays;
+import src.logic.card.*;
+
+/**
+ * Every open suggestion of every player and the solution in one place, each a clause saying the holder has at least
+ * one of its cards. Clauses are kept the way SAT solvers keep them: each clause watches two of its cards the holder may
+ * still have, and a card being ruled out only looks at the clauses watching it. Such a clause moves its watch to another
+ * card it may still have, and when there is none left to move to, the clause is down to its other watched card, which
+ * the holder must have. So finding what a clause resolves to does not depend on how many clauses there are, and clauses
+ * are never changed as cards are ruled out. A clause that has every card of a smaller clause of the same holder tells
+ * nothing more, so it is dropped, and a new clause like that is not kept at all.
+ * The clauses of every holder share the same arrays, and the slots of resolved clauses are reused.
+**/
+class ClauseStore {
+	//Variables
+	private final ClueLogic game; //The game the clauses are from
+	private final CardList cards; //The game's deck
+	private final int numberOfCards;
+	private CardSet[] clauseCards; //The cards of each clause once cards the holder could not have were left out
+	private CardSet[] clauseSources; //The cards of each clause when it was made, to justify what it resolves to
+	private int[] clauseHolder; //The index of the holder of each clause
+	private int[] clauseMove; //The id of the move each clause came from, -1 for the solution's types
+	private int[] firstWatch; //The cards each clause watches
+	private int[] secondWatch;
+	private int[] holderPosition; //Where each clause is in its holder's list
+	private int[] freeClauses; //Clauses not in use
+	private int numberOfFreeClauses;
+	private int[][] clausesOfHolder; //The clauses of each holder, indexed by holder index
+	private int[] numberOfClausesOfHolder;
+	private int[][] watchers; //The clauses watching each card of each holder, indexed by holder index * number of cards + card
+	private int[] numberOfWatchers;
+	private int[] occurrences; //How many clauses of each holder have each card, indexed like watchers
+
+	//Methods
+
+	/**
+	 * Creates an empty store for a game
+	 * @param game The game
+	 * @param numberOfHolders How many players the game has, plus one for the solution
+	**/
+	ClauseStore(ClueLogic game, int numberOfHolders) {
+		this.game = game;
+		cards = game.getCards();
+		numberOfCards = cards.getNumberOfCards();
+		clauseCards = new CardSet[0];
+		clauseSources = new CardSet[0];
+		clauseHolder = new int[0];
+		clauseMove = new int[0];
+		firstWatch = new int[0];
+		secondWatch = new int[0];
+		holderPosition = new int[0];
+		freeClauses = new int[0];
+		clausesOfHolder = new int[numberOfHolders][0];
+		numberOfClausesOfHolder = new int[numberOfHolders];
+		watchers = new int[numberOfHolders * numberOfCards][0];
+		numberOfWatchers = new int[numberOfHolders * numberOfCards];
+		occurrences = new int[numberOfHolders * numberOfCards];
+	}
+
+	/**
+	 * Adds a clause unless the holder already has a clause with only cards of it. Clauses of the holder that have
+	 * every card of the new one are dropped.
+	 * @param holder The player or solution
+	 * @param clause The cards the holder has at least one of, at least two and all of them still possible for the holder
+	 * @param source The cards of the clause when it was made
+	 * @param moveId The id of the move the clause came from, -1 if there is none
+	**/
+	void add(Player holder, CardSet clause, CardSet source, int moveId) {
+		int h = holder.getIndex();
+		CardSet possible = holder.getPossibleMask();
+		for (int i = numberOfClausesOfHolder[h] - 1; i >= 0; i--) {
+			int other = clausesOfHolder[h][i];
+			CardSet otherCards = new CardSet(clauseCards[other]);
+			otherCards.retainAll(possible);
+			if (clause.containsAll(otherCards)) {
+				return; //Nothing new, the holder has one of the other clause's cards
+			} else if (otherCards.containsAll(clause)) {
+				remove(other);
+			}
+		}
+		if (numberOfFreeClauses == 0) { //Double the number of clauses
+			int oldLength = clauseCards.length;
+			int length = Math.max(8, 2 * oldLength);
+			clauseCards = Arrays.copyOf(clauseCards, length);
+			clauseSources = Arrays.copyOf(clauseSources, length);
+			clauseHolder = Arrays.copyOf(clauseHolder, length);
+			clauseMove = Arrays.copyOf(clauseMove, length);
+			firstWatch = Arrays.copyOf(firstWatch, length);
+			secondWatch = Arrays.copyOf(secondWatch, length);
+			holderPosition = Arrays.copyOf(holderPosition, length);
+			freeClauses = new int[length];
+			for (int c = length - 1; c >= oldLength; c--) {
+				freeClauses[numberOfFreeClauses++] = c;
+			}
+		}
+		int c = freeClauses[--numberOfFreeClauses];
+		clauseCards[c] = clause;
+		clauseSources[c] = source;
+		clauseHolder[c] = h;
+		clauseMove[c] = moveId;
+		firstWatch[c] = clause.nextCard(0);
+		secondWatch[c] = clause.nextCard(firstWatch[c] + 1);
+		watch(h, firstWatch[c], c);
+		watch(h, secondWatch[c], c);
+		holderPosition[c] = numberOfClausesOfHolder[h];
+		clausesOfHolder[h] = append(clausesOfHolder[h], numberOfClausesOfHolder[h]++, c);
+		for (int card = clause.nextCard(0); card >= 0; card = clause.nextCard(card + 1)) {
+			occurrences[h * numberOfCards + card]++;
+		}
+	}
+
+	/**
+	 * Moves the watches of the clauses watching a card the holder was found not to have. A clause with no other card
+	 * to watch is down to its other watched card, which is queued as a card the holder has, and the clause is dropped.
+	 * @param holder The player or solution, who no longer has the card among their possible cards
+	 * @param card The index of the card
+	**/
+	void cardNotPossible(Player holder, int card) {
+		int h = holder.getIndex();
+		int w = h * numberOfCards + card;
+		int i = 0;
+		while (i < numberOfWatchers[w]) {
+			int c = watchers[w][i];
+			int other = firstWatch[c] == card ? secondWatch[c] : firstWatch[c];
+			int replacement = -1;
+			CardSet clause = clauseCards[c];
+			for (int next = clause.nextCard(0); next >= 0; next = clause.nextCard(next + 1)) {
+				if (next != card && next != other && holder.isPossible(next)) {
+					replacement = next;
+					break;
+				}
+			}
+			if (replacement >= 0) { //Watch another card
+				if (firstWatch[c] == card) {
+					firstWatch[c] = replacement;
+				} else {
+					secondWatch[c] = replacement;
+				}
+				watchers[w][i] = watchers[w][--numberOfWatchers[w]];
+				watch(h, replacement, c);
+			} else { //Learned something, the clause is resolved
+				if (holder.isPossible(other)) {
+					game.queueKnownCard(cards.getCard(other), holder, game.justifyClause(holder, clauseSources[c], other, clauseMove[c]));
+				}
+				remove(c); //Also takes it out of this list
+			}
+		}
+	}
+
+	/**
+	 * Drops the clauses with a card the holder was found to have, they are satisfied
+	 * @param holder The player or solution
+	 * @param card The index of the card
+	**/
+	void cardKnown(Player holder, int card) {
+		int h = holder.getIndex();
+		if (occurrences[h * numberOfCards + card] == 0) {
+			return;
+		}
+		for (int i = numberOfClausesOfHolder[h] - 1; i >= 0; i--) {
+			int c = clausesOfHolder[h][i];
+			if (clauseCards[c].contains(card)) {
+				remove(c);
+			}
+		}
+	}
+
+	/**
+	 * Drops every clause of a holder
+	 * @param holder The index of the player or solution
+	**/
+	void clear(int holder) {
+		while (numberOfClausesOfHolder[holder] > 0) {
+			remove(clausesOfHolder[holder][numberOfClausesOfHolder[holder] - 1]);
+		}
+	}
+
+	/**
+	 * Gives how many clauses a holder has
+	 * @param holder The index of the player or solution
+	 * @return numberOfClauses The number of clauses
+	**/
+	int size(int holder) {
+		return numberOfClausesOfHolder[holder];
+	}
+
+	/**
+	 * Whether a card is in any clause of a holder
+	 * @param holder The index of the player or solution
+	 * @param card The index of the card
+	 * @return inClause True if the card is in one
+	**/
+	boolean isInClause(int holder, int card) {
+		return occurrences[holder * numberOfCards + card] > 0;
+	}
+
+	/**
+	 * Gives the cards a holder may still have of each of their clauses. Clauses are only checked against each other
+	 * when they are added, and one may have every card of another once cards are ruled out, so clauses with every card
+	 * of another are left out here. The clauses given are then the same whatever order the cards were ruled out in.
+	 * @param holder The player or solution
+	 * @return clauses A new set for each clause that does not have every card of another
+	**/
+	CardSet[] getClauses(Player holder) {
+		int h = holder.getIndex();
+		CardSet possible = holder.getPossibleMask();
+		CardSet[] clauses = new CardSet[numberOfClausesOfHolder[h]];
+		for (int i = 0; i < clauses.length; i++) {
+			clauses[i] = new CardSet(clauseCards[clausesOfHolder[h][i]]);
+			clauses[i].retainAll(possible);
+		}
+		CardSet[] kept = new CardSet[clauses.length];
+		int numberKept = 0;
+		for (int i = 0; i < clauses.length; i++) {
+			boolean subsumed = false;
+			for (int j = 0; j < clauses.length && !subsumed; j++) {
+				//Of two clauses with the same cards the first is kept
+				subsumed = j != i && clauses[i].containsAll(clauses[j]) && (j < i || !clauses[j].containsAll(clauses[i]));
+			}
+			if (!subsumed) {
+				kept[numberKept++] = clauses[i];
+			}
+		}
+		return Arrays.copyOf(kept, numberKept);
+	}
+
+	/**
+	 * Adds a clause to the list of the clauses watching a card
+	 * @param holder The index of the holder of the clause
+	 * @param card The index of the card
+	 * @param clause The clause
+	**/
+	private void watch(int holder, int card, int clause) {
+		int w = holder * numberOfCards + card;
+		watchers[w] = append(watchers[w], numberOfWatchers[w]++, clause);
+	}
+
+	/**
+	 * Takes a clause out of the list of the clauses watching a card
+	 * @param holder The index of the holder of the clause
+	 * @param card The index of the card
+	 * @param clause The clause
+	**/
+	private void unwatch(int holder, int card, int clause) {
+		int w = holder * numberOfCards + card;
+		for (int i = 0; i < numberOfWatchers[w]; i++) {
+			if (watchers[w][i] == clause) {
+				watchers[w][i] = watchers[w][--numberOfWatchers[w]];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Drops a clause and frees it
+	 * @param clause The clause
+	**/
+	private void remove(int clause) {
+		int h = clauseHolder[clause];
+		unwatch(h, firstWatch[clause], clause);
+		unwatch(h, secondWatch[clause], clause);
+		CardSet removed = clauseCards[clause];
+		for (int card = removed.nextCard(0); card >= 0; card = removed.nextCard(card + 1)) {
+			occurrences[h * numberOfCards + card]--;
+		}
+		int last = clausesOfHolder[h][--numberOfClausesOfHolder[h]];
+		clausesOfHolder[h][holderPosition[clause]] = last;
+		holderPosition[last] = holderPosition[clause];
+		clauseCards[clause] = null;
+		clauseSources[clause] = null;
+		freeClauses[numberOfFreeClauses++] = clause;
+	}
+
+	/**
+	 * Puts a value at the end of a list, growing the list if it is full
+	 * @param list The list
+	 * @param length How many values are in the list
+	 * @param value The value
+	 * @return list The list, or a longer copy of it
+	**/
+	private static int[] append(int[] list, int length, int value) {
+		if (length == list.length) {
+			list = Arrays.copyOf(list, Math.max(4, 2 * length));
+		}
+		list[length] = value;
+		return list;
+	}
+}
@@ -1,86 +1,497 @@
 package src.logic;
 
 import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import src.logic.card.*;
+import src.logic.analysis.*;
+import src.logic.events.*;
+import src.logic.journal.MoveJournal;
+import src.logic.metrics.EngineMetrics;
 import java.util.HashSet;
 
 /**
  * Stores a list of players, cards, suggestions, and known cards in a clue game.
  * Performs deductions and resolves what cards may be owned by other players in the envelope.
- * Represented by a psuedo-singleton class because it must receive a list of players to be created
- * so it cannot be a pure singleton.
+ * Every deduction keeps a justification of the moves and deductions it came from, so it can be explained
+ * and undoing a move takes back only the deductions that depend on it.
+ * Each instance is a separate game that owns its players and solution and keeps no static state,
+ * so any number of games can be played at once as long as each game is used by one thread at a time.
+ * Threads that share a game submit their moves to a MoveQueue, and read the game's view.
 **/
 public class ClueLogic {
 	//Variables
 	ArrayList<Player> players; //List of players in the game
 	ArrayList<Move> moves;
 	ArrayList<Move> startingCards;
+	private ArrayList<Integer> moveIds; //The id of each move, which deductions name the moves they depend on by
+	private ArrayList<Integer> startingCardIds; //The id of each start card
+	private int nextMoveId;
+	private Move currentMove; //The move being made, null if there is none
+	private int currentMoveId; //The id of the move being made, -1 if there is none
 	CardList cards; //List of clue cards
 	private Player solution; //Player represting the envelope/solution
-	private static ClueLogic solver = null; //The singleton
+	private ClauseStore clauses; //The suggestions every player and the solution has said yes to
+	//Why each deduction was made, keyed by the deduction encoded like the queued deductions
+	private HashMap<Integer, Justification> justifications;
+	private boolean justified; //Whether every deduction has a justification, false after restoring a snapshot
+	private CardSet knownCards; //Cards anyone (including the solution) is known to have
+	//Deductions waiting to be applied. Each is the card index, the holder index shifted by HOLDER_SHIFT
+	//(the players in turn order followed by the solution), and the KNOWN_CARD flag or the NOT_POSSIBLE flag
+	private ArrayDeque<Integer> deductions;
+	private CardSet pendingKnownCards; //Cards queued to be added to a hand
+	private CardSet[] pendingNotPossible; //Cards queued to be ruled out for each holder
+	private int[] playersNotExcluded; //How many players have not ruled out each card, indexed by card index
+	private int[] cardsLeftOfType; //How many cards of each type no player is known to have, indexed by type
+	private int[] indexSumOfType; //Sum of the indices of those cards, the index of the last one once only one is left
+	private static final int KNOWN_CARD = 1 << 30;
+	private static final int NOT_POSSIBLE = 0;
+	private static final int HOLDER_SHIFT = 16;
+	private static final int HOLDER_BITS = 0x3FFF;
+	private static final int CARD_BITS = 0xFFFF;
+	private static final int MAX_RECOMMENDATION_DEALS = 20000; //Most deals drawn to rank suggestions
+	private static final int ANALYSIS_CACHE_SIZE = 64; //Most analysis results a game keeps unless it shares a cache
+	private final EngineMetrics metrics; //Counters and timers for the moves made
+	private long propagationEvents; //How many deductions have been applied
+	private int moveDepth; //How many calls to doMove are running, more than 1 while an undo replays moves
+	private MoveJournal journal; //Where the moves made are journaled, null if they are not
+	private EventSink events; //Where the game reports what happens, like moves being undone
+	private AnalysisCache analysisCache; //Results of analysis queries by the state they were calculated for
+	private volatile GameView view; //What the game showed after its last move, read by other threads without locking
+	private long viewVersion; //How many views were published
 
 	//Methods
 
 	/**
-	 * Gives the singleton for the ClueLogic class
-	 * @return solver Returns the singleton clue logic class
+	 * Creates a new game played with the standard deck
+	 * @param players The players in turn order starting with the user
 	**/
-	public static ClueLogic getClueLogic() {
-		return solver;
+	public ClueLogic(ArrayList<Player> players) {
+		this(new CardList(), players);
 	}
 
 	/**
-	 * Creates an instance of the ClueLogic solver. Updates the singleton for the class.
+	 * Creates a new game. The players join the game and can not be used in any other game.
+	 * @param cards The deck the game is played with
+	 * @param players The players in turn order starting with the user
 	**/
-	public ClueLogic(ArrayList<Player> players) {
+	public ClueLogic(CardList cards, ArrayList<Player> players) {
+		this(cards, players, new EngineMetrics());
+	}
+
+	/**
+	 * Creates a new game that adds to a set of metrics, which may be shared with other games
+	 * @param cards The deck the game is played with
+	 * @param players The players in turn order starting with the user
+	 * @param metrics The metrics to record the game's moves in
+	**/
+	public ClueLogic(CardList cards, ArrayList<Player> players, EngineMetrics metrics) {
 		this.players = players;
+		this.cards = cards;
+		this.metrics = metrics;
 		moves = new ArrayList<Move>();
 		startingCards = new ArrayList<Move>();
-		cards = CardList.getCardList();
+		moveIds = new ArrayList<Integer>();
+		startingCardIds = new ArrayList<Integer>();
+		currentMoveId = -1;
+		justifications = new HashMap<Integer, Justification>();
+		justified = true;
+		events = NoOpEventSink.INSTANCE;
+		analysisCache = new AnalysisCache(ANALYSIS_CACHE_SIZE);
+		knownCards = cards.newCardSet();
+		deductions = new ArrayDeque<Integer>();
+		pendingKnownCards = cards.newCardSet();
+		pendingNotPossible = new CardSet[players.size() + 1];
+		for (int i = 0; i < pendingNotPossible.length; i++) {
+			pendingNotPossible[i] = cards.newCardSet();
+		}
+		playersNotExcluded = new int[cards.getNumberOfCards()];
+		cardsLeftOfType = new int[TypeOfCard.values().length];
+		indexSumOfType = new int[TypeOfCard.values().length];
+		clauses = new ClauseStore(this, players.size() + 1);
+		for (int i = 0; i < players.size(); i++) {
+			players.get(i).joinGame(this, i);
+		}
 		solution = new Player("########### Solution ###########", 3);
-		solution.addPossibleSuggestion(new HashSet<Card>(cards.getRooms()));
-		solution.addPossibleSuggestion(new HashSet<Card>(cards.getSuspects()));
-		solution.addPossibleSuggestion(new HashSet<Card>(cards.getWeapons()));
-		solver = this;
+		solution.joinGame(this, players.size());
+		countCards();
+		addSolutionTypes();
+		propagate();
+		publishView();
+	}
+
+	/**
+	 * Gives where the game keeps the suggestions its players and solution have said yes to
+	 * @return clauses The game's clause store
+	**/
+	ClauseStore getClauseStore() {
+		return clauses;
+	}
+
+	/**
+	 * Gives the counters and timers the game records its moves in
+	 * @return metrics The game's metrics
+	**/
+	public EngineMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Journals every move made from now on. Used by MoveJournal when it creates or recovers a journal.
+	 * @param journal The journal, or null to stop journaling
+	**/
+	public void setJournal(MoveJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Gives the journal the game's moves are written to
+	 * @return journal The journal, null if the moves are not journaled
+	**/
+	public MoveJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Reports what happens in the game, like moves being undone, to a sink. Games report to a sink that drops
+	 * everything unless they are given another.
+	 * @param events The sink
+	**/
+	public void setEventSink(EventSink events) {
+		this.events = events;
+	}
+
+	/**
+	 * Gives the sink the game reports what happens to
+	 * @return events The sink
+	**/
+	public EventSink getEventSink() {
+		return events;
+	}
+
+	/**
+	 * Gives the deck the game is played with
+	 * @return cards The game's deck
+	**/
+	public CardList getCards() {
+		return cards;
+	}
+
+	/**
+	 * Gives whether or not a card is known to be in a player's hand or the envelope
+	 * @param card The card to check
+	 * @return known Boolean value of whether or not anyone is known to have the card
+	**/
+	public boolean isCardKnown(Card card) {
+		return knownCards.contains(card);
 	}
 
+	/**
+	 * Makes a move and records how much work it took in the game's metrics
+	 * @param move The move to make
+	 * @return done Whether the move could be made
+	**/
 	public boolean doMove(Move move) {
+		long start = System.nanoTime();
+		long eventsBefore = propagationEvents;
+		int knownBefore = knownCards.size();
+		moveDepth++;
+		try {
+			boolean done = applyMove(move);
+			//Moves replayed by an undo are journaled and published as the undo, and an undo that failed changed nothing
+			if (moveDepth == 1 && (done || move.getType() != Move.MoveType.UNDO)) {
+				if (journal != null && journal.append(move) % MoveJournal.SNAPSHOT_INTERVAL == 0) {
+					journal.saveSnapshot(takeSnapshot());
+				}
+				publishView();
+			}
+			return done;
+		} finally {
+			moveDepth--;
+			if (moveDepth == 0) { //Moves replayed by an undo count as part of the undo
+				metrics.recordMove(move.getType(), propagationEvents - eventsBefore, knownCards.size() - knownBefore,
+					System.nanoTime() - start);
+				int[] openSuggestions = new int[players.size()];
+				for (int i = 0; i < players.size(); i++) {
+					openSuggestions[i] = players.get(i).getNumberOfOpenSuggestions();
+				}
+				metrics.recordOpenSuggestions(openSuggestions);
+			}
+		}
+	}
+
+	/**
+	 * Makes a move
+	 * @param move The move to make
+	 * @return done Whether the move could be made
+	**/
+	private boolean applyMove(Move move) {
+		if (move.getType() == Move.MoveType.UNDO) {
+			return undo(move.getNumber());
+		}
+		currentMove = move;
+		currentMoveId = nextMoveId++;
+		try {
+			switch (move.getType()) {
+				case START_CARD:
+					startingCards.add(move);
+					startingCardIds.add(currentMoveId);
+					return addStartCard(move.getNumber());
+				case SUGGESTION:
+					moves.add(move);
+					moveIds.add(currentMoveId);
+					Suggestion suggestion = move.getSugestion();
+					makeSuggestion(move.getNumber(), suggestion.getRoom(), suggestion.getSuspect(), suggestion.getWeapon(), move.getResolvingPlayer());
+					return true;
+				case ADD_CARD:
+					moves.add(move);
+					moveIds.add(currentMoveId);
+					return addKnownCard(move.getCard(), move.getPlayer());
+				default:
+					return false;
+			}
+		} finally {
+			currentMove = null;
+			currentMoveId = -1;
+		}
+	}
+
+	/**
+	 * Removes a move from the game. Only the deductions that depend on the move are taken back, then the moves
+	 * and rules that could have made them some other way are checked again, so nothing else is redone.
+	 * @param moveNumber The index of the move to remove
+	 * @return done Whether there was a move with the index to remove
+	**/
+	public boolean undo(int moveNumber) {
+		if (moveNumber < 0 || moveNumber >= moves.size()) {
+			events.publish(new EngineEvent(EngineEvent.Type.INVALID_MOVE, "Error: invalid move"));
+			return false;
+		}
+		events.publish(new EngineEvent(EngineEvent.Type.MOVE_UNDONE, String.format("Removed %s", moves.get(moveNumber).toString(getPlayerList()))));
+		if (!justified) {
+			rebuildJustifications();
+		}
+		Move removed = moves.remove(moveNumber);
+		int removedId = moveIds.remove(moveNumber);
+		//Take back every deduction that depends on the move
+		boolean[] holdersAffected = new boolean[players.size() + 1];
+		CardSet cardsAffected = cards.newCardSet();
+		int retracted = 0;
+		Iterator<Map.Entry<Integer, Justification>> entries = justifications.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<Integer, Justification> entry = entries.next();
+			if (!entry.getValue().dependsOn(removedId)) {
+				continue;
+			}
+			entries.remove();
+			retracted++;
+			int deduction = entry.getKey();
+			Card card = cards.getCard(deduction & CARD_BITS);
+			int holder = (deduction >>> HOLDER_SHIFT) & HOLDER_BITS;
+			if ((deduction & KNOWN_CARD) != 0) {
+				getHolder(holder).retractCard(card);
+				knownCards.remove(card);
+			} else {
+				getHolder(holder).retractCardNotPossible(card);
+			}
+			holdersAffected[holder] = true;
+			cardsAffected.add(card);
+		}
+		if (removed.getType() == Move.MoveType.SUGGESTION) {
+			holdersAffected[removed.getResolvingPlayer()] = true; //Its suggestion is dropped
+		}
+		//Add the suggestions of the players that lost deductions again from the moves that are left
+		for (int h = 0; h < holdersAffected.length; h++) {
+			if (holdersAffected[h]) {
+				getHolder(h).reopen();
+			}
+		}
+		countCards();
+		if (holdersAffected[players.size()]) {
+			addSolutionTypes();
+		}
+		for (int i = 0; i < startingCards.size(); i++) {
+			restateMove(startingCards.get(i), startingCardIds.get(i), holdersAffected, cardsAffected);
+		}
+		for (int i = 0; i < moves.size(); i++) {
+			restateMove(moves.get(i), moveIds.get(i), holdersAffected, cardsAffected);
+		}
+		//Check the rules that could find the deductions that were taken back again
+		boolean[] typesAffected = new boolean[TypeOfCard.values().length];
+		for (int c = cardsAffected.nextCard(0); c >= 0; c = cardsAffected.nextCard(c + 1)) {
+			Card card = cards.getCard(c);
+			typesAffected[card.getType().ordinal()] = true;
+			int owner = findHolder(card);
+			if (owner >= 0) {
+				removeCardFromOtherPlayers(card, getHolder(owner));
+			}
+		}
+		for (TypeOfCard type : TypeOfCard.values()) {
+			if (!typesAffected[type.ordinal()]) {
+				continue;
+			}
+			for (Card card : cards.getCardsOfType(type)) {
+				if (solution.hasCard(card)) {
+					queueOtherCardsNotInSolution(card);
+				} else if (!isCardKnown(card) && playersNotExcluded[card.getIndex()] == 0) {
+					queueUnownedCard(card);
+				}
+			}
+			checkLastOfType(type.ordinal());
+		}
+		for (int h = 0; h < holdersAffected.length; h++) {
+			if (holdersAffected[h]) {
+				getHolder(h).checkHandSize();
+			}
+		}
+		propagate();
+		metrics.recordUndo(retracted);
+		return true;
+	}
+
+	/**
+	 * Queues again what a move that is still in the game says directly, if it may have been taken back by an undo
+	 * @param move The move
+	 * @param moveId The id of the move
+	 * @param holdersAffected Which holders lost deductions, by holder index
+	 * @param cardsAffected The cards deductions were taken back for
+	**/
+	private void restateMove(Move move, int moveId, boolean[] holdersAffected, CardSet cardsAffected) {
+		currentMove = move;
+		currentMoveId = moveId;
 		switch (move.getType()) {
 			case START_CARD:
-				startingCards.add(move);
-				return addStartCard(move.getNumber());
-			case SUGGESTION:
-				moves.add(move);
-				Suggestion suggestion = move.getSugestion();
-				makeSuggestion(move.getNumber(), suggestion.getRoom(), suggestion.getSuspect(), suggestion.getWeapon(), move.getResolvingPlayer());
-				return true;
+				if (cardsAffected.contains(move.getNumber())) {
+					queueKnownCard(cards.getCard(move.getNumber()), players.get(0), justifyMove(Justification.Rule.DEALT));
+				}
+				break;
 			case ADD_CARD:
-				moves.add(move);
-				return addKnownCard(move.getCard(), move.getPlayer());
-			case UNDO:
-				undo(move.getNumber());
-				return true;
+				if (cardsAffected.contains(move.getCard())) {
+					queueKnownCard(move.getCard(), move.getPlayer(), justifyMove(Justification.Rule.SHOWN));
+				}
+				break;
 			default:
-				return false;
+				Suggestion suggestion = move.getSugestion();
+				if (cardsAffected.contains(suggestion.getRoom()) || cardsAffected.contains(suggestion.getSuspect())
+						|| cardsAffected.contains(suggestion.getWeapon())) {
+					queuePassedSuggestion(move.getNumber(), suggestion, move.getResolvingPlayer());
+				}
+				if (move.getNumber() != move.getResolvingPlayer() && holdersAffected[move.getResolvingPlayer()]) {
+					players.get(move.getResolvingPlayer()).addPossibleSuggestion(suggestion, moveId);
+				}
 		}
+		currentMove = null;
+		currentMoveId = -1;
 	}
 
-	public void undo(int moveNumber) {
-		ArrayList<Move> newMoves = new ArrayList<Move>(moves);
-		System.out.println(String.format("Removed %s", moves.get(moveNumber)));
-		try {
-			newMoves.remove(moveNumber);
+	/**
+	 * Plays the game again from the start to justify every deduction, for games restored from a snapshot
+	**/
+	private void rebuildJustifications() {
+		ArrayList<Move> dealt = new ArrayList<Move>(startingCards);
+		ArrayList<Move> played = new ArrayList<Move>(moves);
+		clear();
+		startingCards.clear();
+		startingCardIds.clear();
+		for (Move move : dealt) {
+			applyMove(move);
+		}
+		for (Move move : played) {
+			applyMove(move);
+		}
+	}
 
-		} catch (IndexOutOfBoundsException e) {
-			System.out.println("\033[31mError: invalid move\033[39m");
+	/**
+	 * Puts every player and the solution in a saved state
+	 * @param playerStates The states of the players in turn order
+	 * @param solutionState The state of the solution
+	**/
+	private void restoreStates(ArrayList<Player.State> playerStates, Player.State solutionState) {
+		for (int i = 0; i < players.size(); i++) {
+			players.get(i).restoreState(playerStates.get(i));
+		}
+		solution.restoreState(solutionState);
+		//Cards are known exactly when someone is known to have them
+		knownCards = solution.getKnownMask();
+		for (Player p : players) {
+			knownCards.addAll(p.getKnownMask());
+		}
+		countCards();
+	}
+
+	/**
+	 * Gives an immutable copy of what the game showed after its last move. It can be read from any thread, even
+	 * while another thread makes the next move, and it does not change when the game does.
+	 * @return view The latest view
+	**/
+	public GameView getView() {
+		return view;
+	}
+
+	/**
+	 * Replaces the view other threads read with a copy of the game as it is now
+	**/
+	private void publishView() {
+		view = new GameView(this, viewVersion++);
+	}
 
+	/**
+	 * Takes a compact copy of the whole game, which can be restored without replaying its moves
+	 * @return snapshot The copy
+	**/
+	public GameSnapshot takeSnapshot() {
+		return new GameSnapshot(this);
+	}
+
+	/**
+	 * Puts a new game in the state of a snapshot without replaying its moves. Used by GameSnapshot.
+	 * The snapshot has no justifications, so the game is played again from the start the first time one is needed.
+	 * @param playerStates The states of the players in turn order
+	 * @param solutionState The state of the solution
+	 * @param startingCards The user's start cards
+	 * @param playedMoves The moves played in the game
+	**/
+	void restoreSnapshot(ArrayList<Player.State> playerStates, Player.State solutionState, ArrayList<Move> startingCards,
+			ArrayList<Move> playedMoves) {
+		restoreStates(playerStates, solutionState);
+		this.startingCards.addAll(startingCards);
+		for (int i = 0; i < startingCards.size(); i++) {
+			startingCardIds.add(nextMoveId++);
 		}
-		clear();
-		for (Move startingCard : startingCards) {
-			addKnownCard(cards.getCard(startingCard.getNumber()), players.get(0));
+		moves.addAll(playedMoves);
+		for (int i = 0; i < playedMoves.size(); i++) {
+			moveIds.add(nextMoveId++);
 		}
-		for (Move move : newMoves) {
-			doMove(move);
+		justifications.clear();
+		justified = false;
+		publishView();
+	}
+
+	/**
+	 * Counts the players that have not ruled out each card and the cards of each type no player is known to have
+	 * from scratch. The counts are kept up to date as deductions are made and only need counting again when
+	 * the players' deductions are replaced.
+	**/
+	private void countCards() {
+		for (Card c : cards.getCards()) {
+			playersNotExcluded[c.getIndex()] = 0;
+			for (Player p : players) {
+				if (p.getStatusOfCard(c) != Player.CardStatus.NOT_POSSIBLE) {
+					playersNotExcluded[c.getIndex()]++;
+				}
+			}
+		}
+		for (TypeOfCard type : TypeOfCard.values()) {
+			cardsLeftOfType[type.ordinal()] = 0;
+			indexSumOfType[type.ordinal()] = 0;
+			for (Card c : cards.getCardsOfType(type)) {
+				if (!isCardKnown(c) || solution.hasCard(c)) {
+					cardsLeftOfType[type.ordinal()]++;
+					indexSumOfType[type.ordinal()] += c.getIndex();
+				}
+			}
 		}
 	}
 
@@ -88,110 +499,254 @@ public class ClueLogic {
 		for (Player p : players) {
 			p.clear();
 		}
-		cards.resetCards();
+		knownCards.clear();
 		solution.clear();
+		justifications.clear();
+		justified = true;
+		countCards();
+		addSolutionTypes();
+		propagate();
+		moves.clear();
+		moveIds.clear();
+		publishView();
+	}
+
+	/**
+	 * Adds the suggestions that the solution has one room, one suspect, and one weapon
+	**/
+	private void addSolutionTypes() {
 		solution.addPossibleSuggestion(new HashSet<Card>(cards.getRooms()));
 		solution.addPossibleSuggestion(new HashSet<Card>(cards.getSuspects()));
 		solution.addPossibleSuggestion(new HashSet<Card>(cards.getWeapons()));
-		moves.clear();
 	}
+
 	public ArrayList<String> getMoves() {
 		ArrayList<String> moveDescriptions = new ArrayList<String>();
+		ArrayList<String> playerNames = getPlayerList();
 		for (Move m : moves) {
-			moveDescriptions.add(m.toString());
+			moveDescriptions.add(m.toString(playerNames));
 		}
 		return moveDescriptions;
 	}
 
 	/**
-	 * Checks if a card isn't owned by anyone (and thus is in the envelope) and adds it to the
-	 * solution if it is unowned.
-	 * @param card The card to check if it is unowned
+	 * Queues the deduction that a player has a card. Nothing happens if the card is already known
+	 * or another player is already queued to have it.
+	 * @param card The card the player has
+	 * @param player The player or solution that has the card
+	 * @param reason Why the player has the card, null if deductions are not being justified
 	**/
-	public void checkIfCardIsUnowned(Card card) {
-		//Make sure the card could not possibly be possesed by any player
-		for (Player p : players) {
-			if (p.getStatusOfCard(card) != Player.CardStatus.NOT_POSSIBLE) {
-				return;
-			}
+	void queueKnownCard(Card card, Player player, Justification reason) {
+		if (knownCards.contains(card) || pendingKnownCards.contains(card)) {
+			return;
 		}
-		//Add the card to the solution
-		addKnownCard(card, solution);ArrayList<Card> otherCardsOfSameType;
-		//Remove all other cards of the same type (room, suspect, or weapon) as possiblities from the solution
-		switch (card.getType()) {
-			case ROOM:
-				otherCardsOfSameType = CardList.getCardList().getRooms();
-				break;
-			case WEAPON:
-				otherCardsOfSameType = CardList.getCardList().getWeapons();
-				break;
-			case SUSPECT:
-				otherCardsOfSameType = CardList.getCardList().getSuspects();
-				break;
-			default:
-				System.out.println("Error: unknown type of card");
-				return;
+		pendingKnownCards.add(card);
+		int deduction = KNOWN_CARD | (player.getIndex() << HOLDER_SHIFT) | card.getIndex();
+		if (reason != null) {
+			justifications.put(deduction, reason);
 		}
-		for (Card otherCard : otherCardsOfSameType) {
-			if (!otherCard.equals(card)) {
-				solution.addCardNotPossible(otherCard);
+		deductions.add(deduction);
+	}
+
+	/**
+	 * Queues the deduction that a player does not have a card. Nothing happens if it is already known
+	 * whether the player has the card or the deduction is already queued.
+	 * @param card The card the player does not have
+	 * @param player The player or solution that does not have the card
+	 * @param reason Why the player does not have the card, null if deductions are not being justified
+	**/
+	void queueCardNotPossible(Card card, Player player, Justification reason) {
+		if (!player.isPossible(card) || pendingNotPossible[player.getIndex()].contains(card)) {
+			return;
+		}
+		pendingNotPossible[player.getIndex()].add(card);
+		int deduction = NOT_POSSIBLE | (player.getIndex() << HOLDER_SHIFT) | card.getIndex();
+		if (reason != null) {
+			justifications.put(deduction, reason);
+		}
+		deductions.add(deduction);
+	}
+
+	/**
+	 * Justifies a deduction that comes from the move being made alone
+	 * @param rule How the move shows it
+	 * @return reason The justification, null if deductions are not being justified
+	**/
+	private Justification justifyMove(Justification.Rule rule) {
+		return justify(rule, currentMove, currentMoveId, new int[0]);
+	}
+
+	/**
+	 * Justifies a deduction
+	 * @param rule The rule that made it
+	 * @param move The move it came from, null if there is none
+	 * @param moveId The id of the move, -1 if there is none
+	 * @param premises The deductions it followed from
+	 * @return reason The justification, null if deductions are not being justified
+	**/
+	private Justification justify(Justification.Rule rule, Move move, int moveId, int[] premises) {
+		return justified ? new Justification(rule, move, moveId, premises, justifications) : null;
+	}
+
+	/**
+	 * Justifies a deduction made from the size of a player's hand. It follows from the cards the player is known
+	 * to have, and if their hand is not full, from the cards they can not have.
+	 * @param player The player
+	 * @param rule HAND_FULL if every card in the player's hand is known, HAND_NEEDS if the cards they may have fill it
+	 * @return reason The justification, null if deductions are not being justified
+	**/
+	Justification justifyHand(Player player, Justification.Rule rule) {
+		if (!justified) {
+			return null;
+		}
+		CardSet known = player.getKnownMask();
+		CardSet notPossible = rule == Justification.Rule.HAND_NEEDS ? player.getNotPossibleMask() : cards.newCardSet();
+		int[] premises = new int[known.size() + notPossible.size()];
+		int numberOfPremises = 0;
+		for (int c = known.nextCard(0); c >= 0; c = known.nextCard(c + 1)) {
+			premises[numberOfPremises++] = KNOWN_CARD | (player.getIndex() << HOLDER_SHIFT) | c;
+		}
+		for (int c = notPossible.nextCard(0); c >= 0; c = notPossible.nextCard(c + 1)) {
+			premises[numberOfPremises++] = NOT_POSSIBLE | (player.getIndex() << HOLDER_SHIFT) | c;
+		}
+		return justify(rule, null, -1, premises);
+	}
+
+	/**
+	 * Justifies a player having the last card left of a suggestion they said yes to. It follows from the suggestion
+	 * and from each of its other cards being ruled out for the player or known to be in someone else's hand.
+	 * @param player The player
+	 * @param source The cards the suggestion had when it was made
+	 * @param card The index of the card left
+	 * @param moveId The id of the move the suggestion came from, -1 for the solution's types
+	 * @return reason The justification, null if deductions are not being justified
+	**/
+	Justification justifyClause(Player player, CardSet source, int card, int moveId) {
+		if (!justified) {
+			return null;
+		}
+		int[] premises = new int[source.size() - 1];
+		int numberOfPremises = 0;
+		CardSet notPossible = player.getNotPossibleMask();
+		for (int c = source.nextCard(0); c >= 0; c = source.nextCard(c + 1)) {
+			if (c == card) {
+				continue;
+			} else if (notPossible.contains(c)) {
+				premises[numberOfPremises++] = NOT_POSSIBLE | (player.getIndex() << HOLDER_SHIFT) | c;
+			} else {
+				premises[numberOfPremises++] = KNOWN_CARD | (findHolder(cards.getCard(c)) << HOLDER_SHIFT) | c;
 			}
 		}
+		int index = moveIds.indexOf(moveId);
+		return justify(Justification.Rule.CLAUSE, index >= 0 ? moves.get(index) : null, moveId, premises);
 	}
 
 	/**
-	 * Checks if all the cards of a type are possesed by someone other than the envelope.
-	 * If so, the card is added to the envelope.
-	 * @param card The card to check if it is the last unowned card of its type
+	 * Works through the queued deductions until nothing new can be learned. Each deduction may queue more,
+	 * but every card is added to a hand or ruled out for a player at most once.
 	**/
-	private void checkIfLastCard(Card card) {
-		ArrayList<Card> otherCards;
-		//Get the list of all other cards of the same type
-		switch (card.getType()) {
-			case SUSPECT:
-			otherCards = CardList.getCardList().getSuspects();
-			break;
-			case WEAPON:
-			otherCards = CardList.getCardList().getWeapons();
-			break;
-			case ROOM:
-			otherCards = CardList.getCardList().getRooms();
-			break;
-			default: //Error
-			System.out.println("Error: Invalid Card");
+	private void propagate() {
+		while (!deductions.isEmpty()) {
+			int deduction = deductions.remove();
+			propagationEvents++;
+			Card card = cards.getCard(deduction & CARD_BITS);
+			int holder = (deduction >>> HOLDER_SHIFT) & HOLDER_BITS;
+			Player player = holder == players.size() ? solution : players.get(holder);
+			if ((deduction & KNOWN_CARD) != 0) {
+				pendingKnownCards.remove(card);
+				applyKnownCard(card, player);
+			} else {
+				pendingNotPossible[holder].remove(card);
+				if (player.addCardNotPossible(card) && player != solution) {
+					long start = System.nanoTime();
+					checkIfCardIsUnowned(card);
+					metrics.addUnownedCheckTime(System.nanoTime() - start);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts a player ruling out a card. Once every player has, the card isn't owned by anyone
+	 * (and thus is in the envelope) and is added to the solution.
+	 * @param card The card a player was found not to have
+	**/
+	private void checkIfCardIsUnowned(Card card) {
+		//Make sure the card could not possibly be possesed by any player
+		if (--playersNotExcluded[card.getIndex()] > 0) {
 			return;
 		}
-		//Create a list of all the unowned cards of the specified type
-		HashSet<Card> unknownCards = new HashSet<Card>();
-		for (Card other : otherCards) {
-			if (!other.isKnown()) {
-				unknownCards.add(other);
+		queueUnownedCard(card);
+	}
+
+	/**
+	 * Adds a card every player has ruled out to the solution
+	 * @param card The card
+	**/
+	private void queueUnownedCard(Card card) {
+		Justification reason = null;
+		if (justified) {
+			int[] premises = new int[players.size()];
+			for (int i = 0; i < players.size(); i++) {
+				premises[i] = NOT_POSSIBLE | (i << HOLDER_SHIFT) | card.getIndex();
 			}
+			reason = justify(Justification.Rule.UNOWNED, null, -1, premises);
 		}
-		if (unknownCards.size() == 1) { //Card is part of the solution
-			Card solutionCard = unknownCards.iterator().next();
-			addKnownCard(solutionCard, solution);
-			ArrayList<Card> otherCardsOfSameType;
-			switch (solutionCard.getType()) {
-				case ROOM:
-					otherCardsOfSameType = CardList.getCardList().getRooms();
-					break;
-				case WEAPON:
-					otherCardsOfSameType = CardList.getCardList().getWeapons();
-					break;
-				case SUSPECT:
-					otherCardsOfSameType = CardList.getCardList().getSuspects();
-					break;
-				default:
-					System.out.println("Error: unknown type of card");
-					return;
+		//Add the card to the solution
+		queueKnownCard(card, solution, reason);
+		queueOtherCardsNotInSolution(card);
+	}
+
+	/**
+	 * Removes all other cards of the same type (room, suspect, or weapon) as a card in the solution as possiblities
+	 * @param card The card in the solution
+	**/
+	private void queueOtherCardsNotInSolution(Card card) {
+		Justification reason = justify(Justification.Rule.ONE_PER_TYPE, null, -1,
+			new int[] {KNOWN_CARD | (solution.getIndex() << HOLDER_SHIFT) | card.getIndex()});
+		for (Card otherCard : cards.getCardsOfType(card.getType())) {
+			if (!otherCard.equals(card)) {
+				queueCardNotPossible(otherCard, solution, reason);
 			}
-			//Add all other cards of the same type as not possible for the solution, should be redundant
-			for (Card otherCard : otherCardsOfSameType) {
-				if (!otherCard.equals(solutionCard)) {
-					solution.addCardNotPossible(otherCard);
+		}
+	}
+
+	/**
+	 * Counts a player being found to have a card. Once all the cards of a type but one are possesed
+	 * by players, the last card is added to the envelope. The other cards of the type were already
+	 * ruled out for the envelope when their owners were found.
+	 * @param card The card a player was found to have
+	**/
+	private void checkIfLastCard(Card card) {
+		int type = card.getType().ordinal();
+		cardsLeftOfType[type]--;
+		indexSumOfType[type] -= card.getIndex();
+		checkLastOfType(type);
+	}
+
+	/**
+	 * Adds the last card of a type that no player is known to have to the solution, if only one is left
+	 * @param type The ordinal of the type
+	**/
+	private void checkLastOfType(int type) {
+		if (cardsLeftOfType[type] != 1) {
+			return; //More than one card could still be in the envelope
+		}
+		Card solutionCard = cards.getCard(indexSumOfType[type]);
+		if (!solution.hasCard(solutionCard)) { //Card is part of the solution
+			Justification reason = null;
+			if (justified) {
+				ArrayList<Card> ofType = cards.getCardsOfType(solutionCard.getType());
+				int[] premises = new int[ofType.size() - 1];
+				int numberOfPremises = 0;
+				for (Card c : ofType) {
+					if (c != solutionCard) {
+						premises[numberOfPremises++] = KNOWN_CARD | (findHolder(c) << HOLDER_SHIFT) | c.getIndex();
+					}
 				}
+				reason = justify(Justification.Rule.LAST_OF_TYPE, null, -1, premises);
 			}
+			queueKnownCard(solutionCard, solution, reason);
 		}
 	}
 
@@ -199,35 +754,82 @@ public class ClueLogic {
 	 * Marks a card as impossible for all players to possess (besides the owner)
 	 * and removes it from all suggestions the other players have.
 	 * @param c The card to remove as a possiblity for
+	 * @param owner The player or solution that has the card
 	**/
-	private void removeCardFromOtherPlayers(Card c) {
+	private void removeCardFromOtherPlayers(Card c, Player owner) {
+		Justification reason = justify(Justification.Rule.ONE_OWNER, null, -1,
+			new int[] {KNOWN_CARD | (owner.getIndex() << HOLDER_SHIFT) | c.getIndex()});
 		for (Player p : players) {
 			if (!p.hasCard(c)) {
-				p.addCardNotPossible(c);
+				queueCardNotPossible(c, p, reason);
 			}
 		}
 		if (!solution.hasCard(c)) {
-			solution.addCardNotPossible(c);
+			queueCardNotPossible(c, solution, reason);
+		}
+	}
+
+	/**
+	 * Adds a card to a player's hand and queues what follows from it
+	 * @param knownCard The card to add to the player's hand
+	 * @param player The player to add the card's hand to
+	 * @return wasAdded Whether or not the card was added, false if it was already known
+	**/
+	private boolean applyKnownCard(Card knownCard, Player player) {
+		if (isCardKnown(knownCard)) {
+			return false;
+		}
+		knownCards.add(knownCard);
+		player.addCard(knownCard);
+		removeCardFromOtherPlayers(knownCard, player);
+		if (player != solution) {
+			long start = System.nanoTime();
+			checkIfLastCard(knownCard);
+			metrics.addLastCardCheckTime(System.nanoTime() - start);
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the player or solution that is known to have a card
+	 * @param card The card
+	 * @return holder The index of the holder, the number of players for the solution, -1 if nobody is known to have it
+	**/
+	private int findHolder(Card card) {
+		for (Player p : players) {
+			if (p.hasCard(card)) {
+				return p.getIndex();
+			}
 		}
+		return solution.hasCard(card) ? solution.getIndex() : -1;
+	}
+
+	/**
+	 * Gives a player or the solution by index
+	 * @param holder The index of the player, the number of players for the solution
+	 * @return player The player or solution
+	**/
+	private Player getHolder(int holder) {
+		return holder == players.size() ? solution : players.get(holder);
 	}
 
 	/**
 	 * Adds a known card to a specified player's hand.
-	 * Removes the card as a possiblity from all other players.
+	 * Removes the card as a possiblity from all other players and makes all the deductions that follow.
 	 * Fails if the card is already known.
 	 * @param knownCard The card add to the player's hand
 	 * @param player The player to add the card's hand to
 	 * @return wasAdded Whether or not the card was successfully added to the player's hand
 	**/
 	public boolean addKnownCard(Card knownCard, Player player) {
-		if (knownCard.isKnown()) {
-			return false;
+		if (justified && !isCardKnown(knownCard)) {
+			Justification.Rule rule = currentMove != null && currentMove.getType() == Move.MoveType.START_CARD
+				? Justification.Rule.DEALT : Justification.Rule.SHOWN;
+			justifications.put(KNOWN_CARD | (player.getIndex() << HOLDER_SHIFT) | knownCard.getIndex(), justifyMove(rule));
 		}
-		knownCard.setKnown(true);
-		player.addCard(knownCard);
-		removeCardFromOtherPlayers(knownCard);
-		checkIfLastCard(knownCard);
-		return true;
+		boolean added = applyKnownCard(knownCard, player);
+		propagate();
+		return added;
 	}
 
 	/**
@@ -266,19 +868,26 @@ public class ClueLogic {
 	**/
 	public void makeSuggestion(int suggestingPlayer, Card suggestedRoom, Card suggestedSuspect,
 					Card suggestedWeapon, int resolvingPlayer) {
-		for (int i = (suggestingPlayer + 1)%players.size(); i != suggestingPlayer; i = (i + 1)%players.size()) {
-			System.out.println(String.format("Checking %s", players.get(i).getName()));
-			if (i == resolvingPlayer) { //Add the suggestion to the possible cards the player has
-				if (suggestingPlayer == resolvingPlayer) { //No one resolved the suggestion, cards suggested are either owned by that player or are the solution
-					return;
-				}
-				players.get(resolvingPlayer).addPossibleSuggestion(new Suggestion(suggestedRoom, suggestedSuspect, suggestedWeapon));
-				return;
-			} else { //Remove all the cards in the suggestion from all players who were unable to disprove the suggestion
-				players.get(i).addCardNotPossible(suggestedRoom);
-				players.get(i).addCardNotPossible(suggestedSuspect);
-				players.get(i).addCardNotPossible(suggestedWeapon);
-			}
+		Suggestion suggestion = new Suggestion(suggestedRoom, suggestedSuspect, suggestedWeapon);
+		queuePassedSuggestion(suggestingPlayer, suggestion, resolvingPlayer);
+		if (resolvingPlayer != suggestingPlayer) { //Add the suggestion to the possible cards the player has
+			players.get(resolvingPlayer).addPossibleSuggestion(suggestion, currentMoveId);
+		}
+		propagate();
+	}
+
+	/**
+	 * Queues the cards in a suggestion as not possible for all players who were unable to disprove the suggestion
+	 * @param suggestingPlayer index of the player who suggested a solution
+	 * @param suggestion The cards suggested
+	 * @param resolvingPlayer index of the player who disproved it, the suggesting player if nobody could
+	**/
+	private void queuePassedSuggestion(int suggestingPlayer, Suggestion suggestion, int resolvingPlayer) {
+		Justification reason = justifyMove(Justification.Rule.COULD_NOT_DISPROVE);
+		for (int i = (suggestingPlayer + 1)%players.size(); i != suggestingPlayer && i != resolvingPlayer; i = (i + 1)%players.size()) {
+			queueCardNotPossible(suggestion.getRoom(), players.get(i), reason);
+			queueCardNotPossible(suggestion.getSuspect(), players.get(i), reason);
+			queueCardNotPossible(suggestion.getWeapon(), players.get(i), reason);
 		}
 	}
 
@@ -287,24 +896,7 @@ public class ClueLogic {
 	 * @return ArrayList of strings with all the suspect's names
 	**/
 	public ArrayList<String> getSuspectNames() {
-		ArrayList<String> list = new ArrayList<String>();
-		ArrayList<Card> suspects = CardList.getCardList().getSuspects();
-		for (Card c: suspects) {
-			if (c.isKnown()) {
-				if (solution.hasCard(c)) {
-					list.add("*[\033[32m\033[1m" + c.getDescription() + "\033[0m\033[39m]*");
-				} else {
-					if (players.get(0).hasCard(c)) {
-						list.add("(\033[36m" + c.getDescription() + "\033[39m)");
-					} else {
-						list.add("(\033[31m" + c.getDescription() + "\033[39m)");
-					}
-				}
-			} else {
-				list.add(c.getDescription());
-			}
-		}
-		return list;
+		return GameView.describe(cards.getSuspects(), knownCards, solution.getKnownMask(), players.get(0).getKnownMask());
 	}
 
 	/**
@@ -312,24 +904,7 @@ public class ClueLogic {
 	 * @return ArrayList of strings with all the weapons
 	**/
 	public ArrayList<String> getWeaponNames() {
-		ArrayList<String> list = new ArrayList<String>();
-		ArrayList<Card> weapons = CardList.getCardList().getWeapons();
-		for (Card c: weapons) {
-			if (c.isKnown()) {
-				if (solution.hasCard(c)) {
-					list.add("*[\033[32m\033[1m" + c.getDescription() + "\033[0m\033[39m]*");
-				} else {
-					if (players.get(0).hasCard(c)) {
-						list.add("(\033[36m" + c.getDescription() + "\033[39m)");
-					} else {
-						list.add("(\033[31m" + c.getDescription() + "\033[39m)");
-					}
-				}
-			} else {
-				list.add(c.getDescription());
-			}
-		}
-		return list;
+		return GameView.describe(cards.getWeapons(), knownCards, solution.getKnownMask(), players.get(0).getKnownMask());
 	}
 
 	/**
@@ -337,24 +912,7 @@ public class ClueLogic {
 	 * @return ArrayList of strings with all the rooms
 	**/
 	public ArrayList<String> getRoomNames() {
-		ArrayList<String> list = new ArrayList<String>();
-		ArrayList<Card> rooms = CardList.getCardList().getRooms();
-		for (Card c: rooms) {
-			if (c.isKnown()) {
-				if (solution.hasCard(c)) {
-					list.add("*[\033[32m\033[1m" + c.getDescription() + "\033[0m\033[39m]*");
-				} else {
-					if (players.get(0).hasCard(c)) {
-						list.add("(\033[36m" + c.getDescription() + "\033[39m)");
-					} else {
-						list.add("(\033[31m" + c.getDescription() + "\033[39m)");
-					}
-				}
-			} else {
-				list.add(c.getDescription());
-			}
-		}
-		return list;
+		return GameView.describe(cards.getRooms(), knownCards, solution.getKnownMask(), players.get(0).getKnownMask());
 	}
 
 	/**
@@ -362,24 +920,226 @@ public class ClueLogic {
 	 * @return ArrayList of strings with all the clue cards
 	**/
 	public ArrayList<String> getAllCardNames() {
-		ArrayList<String> list = new ArrayList<String>();
-		ArrayList<Card> allCards = CardList.getCardList().getCards();
-		for (Card c: allCards) {
-			if (c.isKnown()) {
-				if (solution.hasCard(c)) {
-					list.add("*[\033[32m\033[1m" + c.getDescription() + "\033[0m\033[39m]*");
-				} else {
-					if (players.get(0).hasCard(c)) {
-						list.add("(\033[36m" + c.getDescription() + "\033[39m)");
-					} else {
-						list.add("(\033[31m" + c.getDescription() + "\033[39m)");
-					}
+		return GameView.describe(cards.getCards(), knownCards, solution.getKnownMask(), players.get(0).getKnownMask());
+	}
+
+	/**
+	 * Calculates the exact chance of every card being in each player's hand or the envelope,
+	 * treating every deal consistent with what is known as equally likely. The result is cached by the game's
+	 * state, so asking again before anything new is deduced, or in another game that shares the cache and has
+	 * deduced the same things, does not calculate it again.
+	 * @return probabilities The probabilities for the players in turn order followed by the envelope
+	 * @throws IllegalStateException If the game has too many open suggestions to count exactly
+	**/
+	public CardProbabilities getCardProbabilities() {
+		StateKey key = new StateKey(this);
+		CardProbabilities cached = (CardProbabilities)lookUp(key, "exact");
+		if (cached != null) {
+			return cached.withHolderNames(getHolderNames());
+		}
+		CardProbabilities probabilities = new ProbabilityEngine(new DealConstraints(this)).calculate();
+		analysisCache.put(key, "exact", probabilities);
+		return probabilities;
+	}
+
+	/**
+	 * Estimates the chance of every card being in each player's hand or the envelope by sampling
+	 * random deals consistent with what is known on every core until the time runs out.
+	 * An estimate for the same state and time is taken from the cache instead of sampling again.
+	 * @param timeBudgetMillis How long to sample for in milliseconds
+	 * @return probabilities The estimates for the players in turn order followed by the envelope
+	**/
+	public CardProbabilities estimateCardProbabilities(long timeBudgetMillis) {
+		StateKey key = new StateKey(this);
+		String query = String.format("estimate %d", timeBudgetMillis);
+		CardProbabilities cached = (CardProbabilities)lookUp(key, query);
+		if (cached != null) {
+			return cached.withHolderNames(getHolderNames());
+		}
+		CardProbabilities probabilities = new DealSampler(new DealConstraints(this)).estimate(timeBudgetMillis);
+		analysisCache.put(key, query, probabilities);
+		return probabilities;
+	}
+
+	/**
+	 * Ranks the suggestions the user (the first player) could make by how much they are expected to reveal
+	 * about the envelope, judged against random deals consistent with what is known.
+	 * A ranking for the same state and parameters is taken from the cache.
+	 * @param count The most suggestions to give
+	 * @param timeBudgetMillis How long to spend drawing deals in milliseconds
+	 * @return scores The best suggestions, highest expected information gain first, empty if no deal was found
+	**/
+	@SuppressWarnings("unchecked")
+	public ArrayList<SuggestionScore> recommendSuggestions(int count, long timeBudgetMillis) {
+		StateKey key = new StateKey(this);
+		String query = String.format("recommend %d %d", count, timeBudgetMillis);
+		ArrayList<SuggestionScore> cached = (ArrayList<SuggestionScore>)lookUp(key, query);
+		if (cached == null) {
+			DealConstraints constraints = new DealConstraints(this);
+			int[][] deals = new DealSampler(constraints).sampleDeals(timeBudgetMillis, MAX_RECOMMENDATION_DEALS);
+			cached = new SuggestionRecommender(constraints, deals, 0, true).recommend(count);
+			analysisCache.put(key, query, cached);
+		}
+		return new ArrayList<SuggestionScore>(cached); //The cached list is shared
+	}
+
+	/**
+	 * Works out what would be learned from every way a suggestion could turn out, without making it.
+	 * Each way is played on a copy of the game, the copies on every core at once.
+	 * @param suggestingPlayer The index of the player who would make the suggestion
+	 * @param suggestion The cards they would suggest
+	 * @return outcomes The tree of who could disprove the suggestion and, for the user's suggestions, what they could be shown
+	**/
+	public SuggestionOutcome exploreSuggestion(int suggestingPlayer, Suggestion suggestion) {
+		return new SuggestionExplorer(this).explore(suggestingPlayer, suggestion);
+	}
+
+	/**
+	 * Explains what is known about a card: who has it, or who can not have it, and the moves and deductions each
+	 * of those came from, down to the moves themselves. A deduction that was already explained is not explained again.
+	 * @param card The card
+	 * @return lines The explanation, the deductions each line followed from on the lines under it, indented further
+	**/
+	public ArrayList<String> explain(Card card) {
+		if (!justified) {
+			rebuildJustifications();
+		}
+		ArrayList<String> lines = new ArrayList<String>();
+		HashSet<Integer> explained = new HashSet<Integer>();
+		int owner = findHolder(card);
+		if (owner >= 0) {
+			explain(KNOWN_CARD | (owner << HOLDER_SHIFT) | card.getIndex(), "", explained, lines);
+		} else {
+			for (int h = 0; h <= players.size(); h++) {
+				if (getHolder(h).getStatusOfCard(card) == Player.CardStatus.NOT_POSSIBLE) {
+					explain(NOT_POSSIBLE | (h << HOLDER_SHIFT) | card.getIndex(), "", explained, lines);
 				}
-			} else {
-				list.add(c.getDescription());
 			}
 		}
-		return list;
+		if (lines.isEmpty()) {
+			lines.add(String.format("Nothing is known about %s", card.getDescription()));
+		}
+		return lines;
+	}
+
+	/**
+	 * Adds the explanation of a deduction and of the deductions it followed from
+	 * @param deduction The deduction, encoded like the queued deductions
+	 * @param indent The indent of the deduction's line
+	 * @param explained The deductions already explained
+	 * @param lines Where to add the lines
+	**/
+	private void explain(int deduction, String indent, HashSet<Integer> explained, ArrayList<String> lines) {
+		Card card = cards.getCard(deduction & CARD_BITS);
+		int holder = (deduction >>> HOLDER_SHIFT) & HOLDER_BITS;
+		String name = holder == players.size() ? "Envelope" : players.get(holder).getName();
+		String fact = String.format("%s %s %s", name, (deduction & KNOWN_CARD) != 0 ? "has" : "does not have", card.getDescription());
+		if (!explained.add(deduction)) {
+			lines.add(String.format("%s%s (see above)", indent, fact));
+			return;
+		}
+		Justification reason = justifications.get(deduction);
+		if (reason == null) {
+			lines.add(String.format("%s%s", indent, fact));
+			return;
+		}
+		Move move = reason.getMove();
+		String type = card.getType().name().toLowerCase();
+		String why;
+		switch (reason.getRule()) {
+			case DEALT:
+				why = "it is one of the start cards";
+				break;
+			case SHOWN:
+				why = String.format("it was seen in move %d", moves.indexOf(move) + 1);
+				break;
+			case COULD_NOT_DISPROVE:
+				why = String.format("%s could not disprove move %d, %s", name, moves.indexOf(move) + 1, move.toString(getPlayerList()));
+				break;
+			case ONE_OWNER:
+				why = "someone else has it";
+				break;
+			case UNOWNED:
+				why = "no player can have it";
+				break;
+			case ONE_PER_TYPE:
+				why = String.format("the envelope already has a %s", type);
+				break;
+			case LAST_OF_TYPE:
+				why = String.format("every other %s is in a player's hand", type);
+				break;
+			case HAND_FULL:
+				why = String.format("every card in %s's hand is known", name);
+				break;
+			case HAND_NEEDS:
+				why = String.format("%s needs every card they may still have to fill their hand", name);
+				break;
+			default:
+				why = move == null ? String.format("it is the only %s the envelope can still have", type)
+					: String.format("it is the only card %s could have shown in move %d, %s", name, moves.indexOf(move) + 1,
+						move.toString(getPlayerList()));
+		}
+		lines.add(String.format("%s%s: %s", indent, fact, why));
+		for (int premise : reason.getPremises()) {
+			explain(premise, indent + "  ", explained, lines);
+		}
+	}
+
+	/**
+	 * Looks up the result of an analysis query in the cache and counts the lookup in the game's metrics
+	 * @param key The state of the game
+	 * @param query The query with its parameters
+	 * @return result The cached result, null if it has to be calculated
+	**/
+	private Object lookUp(StateKey key, String query) {
+		Object result = analysisCache.get(key, query);
+		metrics.recordAnalysisLookup(result != null);
+		return result;
+	}
+
+	/**
+	 * Gives the names of the players followed by the solution, as analysis results name the holders
+	 * @return names The names
+	**/
+	private ArrayList<String> getHolderNames() {
+		ArrayList<String> names = new ArrayList<String>();
+		for (Player p : players) {
+			names.add(p.getName());
+		}
+		names.add(solution.getName());
+		return names;
+	}
+
+	/**
+	 * Gives a hash of what the game has deduced, which is the same for every game that has deduced the same things
+	 * @return hash The 64 bit hash of the game's state
+	**/
+	public long getStateHash() {
+		return new StateKey(this).getHash();
+	}
+
+	/**
+	 * Makes the game keep its analysis results in a cache, which may be shared with other games
+	 * @param analysisCache The cache
+	**/
+	public void setAnalysisCache(AnalysisCache analysisCache) {
+		this.analysisCache = analysisCache;
+	}
+
+	/**
+	 * Gives the cache the game keeps its analysis results in
+	 * @return analysisCache The cache
+	**/
+	public AnalysisCache getAnalysisCache() {
+		return analysisCache;
+	}
+
+	/**
+	 * Gives the players in the game in turn order starting with the user
+	 * @return players The list of players
+	**/
+	public ArrayList<Player> getPlayers() {
+		return players;
 	}
 
 	/**
@@ -0,0 +1,180 @@
+package src.logic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import src.logic.card.*;
+import src.logic.metrics.EngineMetrics;
+
+/**
+ * Immutable, compact copy of everything in a game: the players and their hand sizes, what is known about every
+ * player and the solution, the open suggestions, and the moves played. A game is restored from a snapshot
+ * without replaying its moves, so snapshots can be used to fork a game, move it to another process, or save it.
+ * In memory a snapshot refers to the game's deck and keeps the rest as bytes, usually well under a kilobyte.
+ * toBytes adds the deck so the snapshot can be read by a process that does not have it.
+**/
+public class GameSnapshot {
+	//Variables
+	private static final int MAGIC = 0x434C5553; //"CLUS"
+	private static final short VERSION = 2;
+	private final CardList cards; //The deck the game is played with
+	private final byte[] state; //The players, their deductions, and the moves
+
+	//Methods
+
+	/**
+	 * Takes a snapshot of a game
+	 * @param game The game
+	**/
+	GameSnapshot(ClueLogic game) {
+		cards = game.getCards();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			ArrayList<Player> players = game.getPlayers();
+			CardSet.writeNumber(out, players.size());
+			for (Player p : players) {
+				out.writeUTF(p.getName());
+				CardSet.writeNumber(out, p.getNumberOfCards());
+				p.saveState().write(out);
+			}
+			game.getSolution().saveState().write(out);
+			writeMoves(out, game.startingCards);
+			writeMoves(out, game.moves);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); //Not thrown when writing to memory
+		}
+		state = bytes.toByteArray();
+	}
+
+	private GameSnapshot(CardList cards, byte[] state) {
+		this.cards = cards;
+		this.state = state;
+	}
+
+	private static void writeMoves(DataOutputStream out, ArrayList<Move> moves) throws IOException {
+		CardSet.writeNumber(out, moves.size());
+		for (Move m : moves) {
+			m.write(out);
+		}
+	}
+
+	private static ArrayList<Move> readMoves(DataInputStream in, ClueLogic game) throws IOException {
+		int numberOfMoves = CardSet.readNumber(in);
+		ArrayList<Move> moves = new ArrayList<Move>();
+		for (int i = 0; i < numberOfMoves; i++) {
+			moves.add(Move.read(in, game));
+		}
+		return moves;
+	}
+
+	/**
+	 * Creates a new game in the state of the snapshot. The game has new players and is independent of
+	 * the game the snapshot was taken of and of any other game restored from the snapshot.
+	 * @param metrics The metrics the new game records its moves in
+	 * @return game The new game
+	 * @throws IllegalArgumentException If the snapshot is not valid
+	**/
+	public ClueLogic restore(EngineMetrics metrics) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(state))) {
+			int numberOfPlayers = CardSet.readNumber(in);
+			ArrayList<Player> players = new ArrayList<Player>();
+			ArrayList<Player.State> playerStates = new ArrayList<Player.State>();
+			for (int i = 0; i < numberOfPlayers; i++) {
+				String name = in.readUTF();
+				players.add(new Player(name, CardSet.readNumber(in)));
+				playerStates.add(Player.State.read(in, cards));
+			}
+			Player.State solutionState = Player.State.read(in, cards);
+			ClueLogic game = new ClueLogic(cards, players, metrics);
+			ArrayList<Move> startingCards = readMoves(in, game);
+			ArrayList<Move> moves = readMoves(in, game);
+			game.restoreSnapshot(playerStates, solutionState, startingCards, moves);
+			return game;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The snapshot is cut short", e);
+		}
+	}
+
+	/**
+	 * Gives the deck of the game
+	 * @return cards The deck
+	**/
+	public CardList getCards() {
+		return cards;
+	}
+
+	/**
+	 * Gives how many bytes the snapshot keeps, not counting the deck
+	 * @return size The number of bytes
+	**/
+	public int getSize() {
+		return state.length;
+	}
+
+	/**
+	 * Writes the snapshot with its deck, to be read back by fromBytes
+	 * @return bytes The snapshot
+	**/
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(state.length + 256);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			writeNames(out, cards.getSuspects());
+			writeNames(out, cards.getWeapons());
+			writeNames(out, cards.getRooms());
+			out.write(state);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); //Not thrown when writing to memory
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads a snapshot written by toBytes
+	 * @param bytes The snapshot
+	 * @return snapshot The snapshot
+	 * @throws IllegalArgumentException If the bytes are not a snapshot
+	**/
+	public static GameSnapshot fromBytes(byte[] bytes) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException("Not a snapshot");
+			}
+			int version = in.readShort();
+			if (version != VERSION) {
+				throw new IllegalArgumentException(String.format("Unknown snapshot version %d", version));
+			}
+			ArrayList<String> suspects = readNames(in);
+			ArrayList<String> weapons = readNames(in);
+			ArrayList<String> rooms = readNames(in);
+			CardList cards = new CardList(suspects, weapons, rooms);
+			return new GameSnapshot(cards, in.readAllBytes());
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The snapshot is cut short", e);
+		}
+	}
+
+	private static void writeNames(DataOutputStream out, ArrayList<Card> cards) throws IOException {
+		CardSet.writeNumber(out, cards.size());
+		for (Card c : cards) {
+			out.writeUTF(c.getDescription());
+		}
+	}
+
+	private static ArrayList<String> readNames(DataInputStream in) throws IOException {
+		int count = CardSet.readNumber(in);
+		if (count < 0 || count > CardList.MAX_CARDS) {
+			throw new IllegalArgumentException("Too many cards");
+		}
+		ArrayList<String> names = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			names.add(in.readUTF());
+		}
+		return names;
+	}
+}
@@ -0,0 +1,328 @@
+package src.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import src.logic.card.*;
+
+/**
+ * Immutable copy of what a game shows: the moves played and what is known about every player and the solution.
+ * A game publishes a new view after each move it makes, so any number of threads can read the latest view
+ * without locking while the game goes on making moves, and a view never shows part of a move.
+**/
+public final class GameView {
+	//Variables
+	private final long version; //How many views the game published before this one
+	private final CardList cards; //The deck the game is played with
+	private final Move[] moves; //The moves played, not counting start cards
+	private final ArrayList<String> playerNames; //The names of the players in turn order
+	private final PlayerView[] players; //The players in turn order
+	private final PlayerView solution;
+	private final CardSet knownCards; //Cards anyone (including the solution) is known to have
+
+	/**
+	 * Immutable copy of what is known about a player or the solution
+	**/
+	public static final class PlayerView {
+		private final String name;
+		private final int index; //The player's place in the game, the players in turn order followed by the solution
+		private final int numberOfCards;
+		private final CardSet knownCards;
+		private final CardSet cardsNotPossible;
+		private final CardSet[] suggestions; //Open suggestions the player has said yes to
+		private final boolean solved;
+		private final CardList cards;
+
+		/**
+		 * Copies what is known about a player
+		 * @param player The player or solution, which must be part of a game
+		 * @param cards The deck of the player's game
+		**/
+		PlayerView(Player player, CardList cards) {
+			name = player.getName();
+			index = player.getIndex();
+			numberOfCards = player.getNumberOfCards();
+			knownCards = player.getKnownMask();
+			cardsNotPossible = player.getNotPossibleMask();
+			suggestions = player.getSuggestionMasks();
+			solved = player.isSolved();
+			this.cards = cards;
+		}
+
+		/**
+		 * Gives the player's name
+		 * @return name The player's name
+		**/
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gives the player's place in the game
+		 * @return index The player's index, the players in turn order followed by the solution
+		**/
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Gives the number of cards in the player's hand
+		 * @return numberOfCards How many cards the player has
+		**/
+		public int getNumberOfCards() {
+			return numberOfCards;
+		}
+
+		/**
+		 * Whether or not the player is known to possess a card
+		 * @param card The card
+		 * @return hasCard True if the player definately has the card
+		**/
+		public boolean hasCard(Card card) {
+			return knownCards.contains(card);
+		}
+
+		/**
+		 * Whether or not it is still unknown if the player has a card
+		 * @param card The card
+		 * @return possible True if the card is neither known to be in or not in the player's hand
+		**/
+		public boolean isPossible(Card card) {
+			return !knownCards.contains(card) && !cardsNotPossible.contains(card);
+		}
+
+		/**
+		 * Gives a copy of the set of all the cards the player is known to possess
+		 * @return knownCards Set of all cards known to be in the player's hand
+		**/
+		public CardSet getKnownMask() {
+			return new CardSet(knownCards);
+		}
+
+		/**
+		 * Gives a copy of the set of all the cards the player is known not to possess
+		 * @return cardsNotPossible Set of all cards known not to be in the player's hand
+		**/
+		public CardSet getNotPossibleMask() {
+			return new CardSet(cardsNotPossible);
+		}
+
+		/**
+		 * Gives the suggestions the player has said yes to that were not resolved yet
+		 * @return suggestions A copy of the set of cards of each open suggestion
+		**/
+		public CardSet[] getSuggestionMasks() {
+			CardSet[] masks = new CardSet[suggestions.length];
+			for (int i = 0; i < masks.length; i++) {
+				masks[i] = new CardSet(suggestions[i]);
+			}
+			return masks;
+		}
+
+		/**
+		 * Whether or not all cards the player can have were known
+		 * @return solved Whether all the player's cards are known
+		**/
+		public boolean isSolved() {
+			return solved;
+		}
+
+		@Override
+		public String toString() {
+			String output = String.format("∨∨∨∨vvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvv\n"+
+				"\t\033[34m\033[1m%s\033[0m\033[39m\n\n\033[32mKnown cards:\033[39m\n", name);
+			int index = 1;
+			//Give a list of all known cards
+			for (int c = knownCards.nextCard(0); c >= 0; c = knownCards.nextCard(c + 1)) {
+				output += String.format("%d. %s\t", index, cards.getCard(c).getDescription());
+				index++;
+			}
+			for (int i = knownCards.size(); i<numberOfCards; i++) {
+				output += String.format("%d. Unknown\t", index);
+				index++;
+			}
+			//Give a list of cards known not to be in the player's hand if all their hand is not known
+			if (!solved) {
+				output += "\n\n\033[31mCards not owned:\033[39m\n";
+				index = 1;
+				for (int c = cardsNotPossible.nextCard(0); c >= 0; c = cardsNotPossible.nextCard(c + 1)) {
+					output += String.format("%d. %s\t", index, cards.getCard(c).getDescription());
+					index++;
+				}
+			}
+			//Display other information if it is available
+			if (suggestions.length != 0) {
+				output += "\n\n\033[33mOther information:\033[39m\n";
+				index = 1;
+				for (CardSet possibleSuggestion : suggestions) {
+					String suggestion = String.format("%d. ", index);
+					for (int c = possibleSuggestion.nextCard(0); c >= 0; c = possibleSuggestion.nextCard(c + 1)) {
+						suggestion += cards.getCard(c).getDescription();
+						if (possibleSuggestion.nextCard(c + 1) >= 0) {
+							suggestion += " or ";
+						}
+					}
+					suggestion += "\n";
+					index++;
+					output += suggestion;
+				}
+				output += "^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^\n";
+			} else {
+				output += "\n\n^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^\n";
+			}
+			return output;
+		}
+	}
+
+	//Methods
+
+	/**
+	 * Copies what a game shows. Used by ClueLogic after each move.
+	 * @param game The game
+	 * @param version How many views the game published before this one
+	**/
+	GameView(ClueLogic game, long version) {
+		this.version = version;
+		cards = game.getCards();
+		moves = game.moves.toArray(new Move[0]);
+		playerNames = game.getPlayerList();
+		ArrayList<Player> gamePlayers = game.getPlayers();
+		players = new PlayerView[gamePlayers.size()];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = new PlayerView(gamePlayers.get(i), cards);
+		}
+		solution = new PlayerView(game.getSolution(), cards);
+		knownCards = cards.newCardSet();
+		for (PlayerView holder : players) {
+			knownCards.addAll(holder.knownCards);
+		}
+		knownCards.addAll(solution.knownCards);
+	}
+
+	/**
+	 * Gives how many views the game published before this one, so readers can tell whether the game moved on
+	 * @return version The number of the view
+	**/
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gives the deck the game is played with
+	 * @return cards The game's deck
+	**/
+	public CardList getCards() {
+		return cards;
+	}
+
+	/**
+	 * Gives a description of each move played, not counting start cards
+	 * @return moves The descriptions of the moves in the order they were played
+	**/
+	public ArrayList<String> getMoves() {
+		ArrayList<String> moveDescriptions = new ArrayList<String>();
+		for (Move m : moves) {
+			moveDescriptions.add(m.toString(playerNames));
+		}
+		return moveDescriptions;
+	}
+
+	/**
+	 * Gives how many moves were played, not counting start cards
+	 * @return numberOfMoves The number of moves
+	**/
+	public int getNumberOfMoves() {
+		return moves.length;
+	}
+
+	/**
+	 * Gives the names of the players in turn order starting with the user
+	 * @return list The players' names
+	**/
+	public ArrayList<String> getPlayerList() {
+		return new ArrayList<String>(playerNames);
+	}
+
+	/**
+	 * Gives what is known about each player
+	 * @return players The players in turn order starting with the user
+	**/
+	public ArrayList<PlayerView> getPlayers() {
+		return new ArrayList<PlayerView>(Arrays.asList(players));
+	}
+
+	/**
+	 * Gives what is known about the solution
+	 * @return solution The solution
+	**/
+	public PlayerView getSolution() {
+		return solution;
+	}
+
+	/**
+	 * Whether anyone, including the solution, was known to have a card
+	 * @param card The card
+	 * @return known True if someone has the card
+	**/
+	public boolean isCardKnown(Card card) {
+		return knownCards.contains(card);
+	}
+
+	/**
+	 * Gives a list of strings of all possible suspects
+	 * @return ArrayList of strings with all the suspect's names
+	**/
+	public ArrayList<String> getSuspectNames() {
+		return describe(cards.getSuspects(), knownCards, solution.knownCards, players[0].knownCards);
+	}
+
+	/**
+	 * Gives a list of strings of all possible weapons
+	 * @return ArrayList of strings with all the weapons
+	**/
+	public ArrayList<String> getWeaponNames() {
+		return describe(cards.getWeapons(), knownCards, solution.knownCards, players[0].knownCards);
+	}
+
+	/**
+	 * Gives a list of strings of all possible rooms
+	 * @return ArrayList of strings with all the rooms
+	**/
+	public ArrayList<String> getRoomNames() {
+		return describe(cards.getRooms(), knownCards, solution.knownCards, players[0].knownCards);
+	}
+
+	/**
+	 * Gives a list of strings of all possible clue cards
+	 * @return ArrayList of strings with all the clue cards
+	**/
+	public ArrayList<String> getAllCardNames() {
+		return describe(cards.getCards(), knownCards, solution.knownCards, players[0].knownCards);
+	}
+
+	/**
+	 * Gives the description of each card of a list, marked when the card is known: the solution's cards in green,
+	 * the user's in cyan, and other players' in red
+	 * @param list The cards
+	 * @param knownCards The cards anyone is known to have
+	 * @param solutionCards The cards the solution is known to have
+	 * @param userCards The cards the user is known to have
+	 * @return names The descriptions in the order of the list
+	**/
+	static ArrayList<String> describe(ArrayList<Card> list, CardSet knownCards, CardSet solutionCards, CardSet userCards) {
+		ArrayList<String> names = new ArrayList<String>();
+		for (Card c: list) {
+			if (knownCards.contains(c)) {
+				if (solutionCards.contains(c)) {
+					names.add("*[\033[32m\033[1m" + c.getDescription() + "\033[0m\033[39m]*");
+				} else if (userCards.contains(c)) {
+					names.add("(\033[36m" + c.getDescription() + "\033[39m)");
+				} else {
+					names.add("(\033[31m" + c.getDescription() + "\033[39m)");
+				}
+			} else {
+				names.add(c.getDescription());
+			}
+		}
+		return names;
+	}
+}
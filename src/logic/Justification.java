@@ -0,0 +1,90 @@
+package src.logic;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Why a player or the solution was found to have or not have a card: the rule that found it, the move it came
+ * from if any, and the deductions it followed from. Each justification also keeps the moves it depends on,
+ * directly or through the deductions it followed from, so undoing a move only takes back what depends on it.
+**/
+class Justification {
+	//Variables
+	private final Rule rule; //The rule that made the deduction
+	private final Move move; //The move the deduction came from, null if it follows from other deductions alone
+	private final int[] premises; //The deductions it followed from, encoded like the game's queued deductions
+	private final BitSet support; //The ids of every move the deduction depends on
+
+	//The ways a deduction can be made
+	enum Rule {
+		DEALT, //One of the user's start cards
+		SHOWN, //A player was seen to have the card
+		COULD_NOT_DISPROVE, //The player was asked to disprove a suggestion with the card and could not
+		ONE_OWNER, //Someone else has the card
+		UNOWNED, //No player can have the card, so it is in the envelope
+		ONE_PER_TYPE, //The envelope already has another card of the type
+		LAST_OF_TYPE, //Every other card of the type is in a player's hand
+		HAND_FULL, //Every card in the player's hand is known
+		HAND_NEEDS, //The cards the player may still have are just enough to fill their hand
+		CLAUSE //The only card left that the player could have shown for a suggestion
+	}
+
+	//Methods
+
+	/**
+	 * Creates a justification
+	 * @param rule The rule that made the deduction
+	 * @param move The move the deduction came from, null if there is none
+	 * @param moveId The id of the move, -1 if there is none
+	 * @param premises The deductions it followed from
+	 * @param justifications The justifications of every deduction made so far, by deduction
+	**/
+	Justification(Rule rule, Move move, int moveId, int[] premises, HashMap<Integer, Justification> justifications) {
+		this.rule = rule;
+		this.move = move;
+		this.premises = premises;
+		support = new BitSet();
+		if (moveId >= 0) {
+			support.set(moveId);
+		}
+		for (int premise : premises) {
+			Justification reason = justifications.get(premise);
+			if (reason != null) {
+				support.or(reason.support);
+			}
+		}
+	}
+
+	/**
+	 * Gives the rule that made the deduction
+	 * @return rule The rule
+	**/
+	Rule getRule() {
+		return rule;
+	}
+
+	/**
+	 * Gives the move the deduction came from
+	 * @return move The move, null if the deduction follows from other deductions alone
+	**/
+	Move getMove() {
+		return move;
+	}
+
+	/**
+	 * Gives the deductions the deduction followed from
+	 * @return premises The deductions, encoded like the game's queued deductions
+	**/
+	int[] getPremises() {
+		return premises;
+	}
+
+	/**
+	 * Whether the deduction depends on a move
+	 * @param moveId The id of the move
+	 * @return dependsOn True if the deduction came from the move or from a deduction that did
+	**/
+	boolean dependsOn(int moveId) {
+		return support.get(moveId);
+	}
+}
@@ -1,6 +1,10 @@
 package src.logic;
 
 import src.logic.card.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
 
 public class Move {
 	public enum MoveType { START_CARD, SUGGESTION, ADD_CARD, UNDO };
@@ -60,15 +64,108 @@ public class Move {
 		return resolvingPlayer;
 	}
 
+	/**
+	 * Writes the move by the numbers of its cards and players, for journals and snapshots
+	 * @param out Where to write
+	 * @throws IOException If the move can not be written
+	**/
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(moveType.ordinal());
+		switch (moveType) {
+			case START_CARD:
+			case UNDO:
+				out.writeInt(number);
+				break;
+			case SUGGESTION:
+				out.writeChar(number);
+				out.writeChar(resolvingPlayer);
+				out.writeChar(suggestion.getRoom().getIndex());
+				out.writeChar(suggestion.getSuspect().getIndex());
+				out.writeChar(suggestion.getWeapon().getIndex());
+				break;
+			case ADD_CARD:
+				out.writeChar(player.getIndex());
+				out.writeChar(card.getIndex());
+				break;
+		}
+	}
+
+	/**
+	 * Reads a move written by write
+	 * @param in Where to read from
+	 * @param game The game the move is made in, whose cards and players the move refers to
+	 * @return move The move
+	 * @throws IOException If the move can not be read
+	 * @throws IllegalArgumentException If the move refers to cards or players the game does not have
+	**/
+	public static Move read(DataInput in, ClueLogic game) throws IOException {
+		CardList cards = game.getCards();
+		int type = in.readUnsignedByte();
+		if (type >= MoveType.values().length) {
+			throw new IllegalArgumentException(String.format("Unknown type of move %d", type));
+		}
+		switch (MoveType.values()[type]) {
+			case START_CARD:
+				return startCard(in.readInt());
+			case SUGGESTION:
+				int suggestingPlayer = readPlayer(in, game.getPlayers().size() - 1);
+				int resolvingPlayer = readPlayer(in, game.getPlayers().size() - 1);
+				Suggestion suggestion = new Suggestion(readCard(in, cards), readCard(in, cards), readCard(in, cards));
+				return suggestion(suggestingPlayer, suggestion, resolvingPlayer);
+			case ADD_CARD:
+				int index = readPlayer(in, game.getPlayers().size());
+				Player holder = index == game.getPlayers().size() ? game.getSolution() : game.getPlayers().get(index);
+				return addCard(readCard(in, cards), holder);
+			default:
+				return undo(in.readInt());
+		}
+	}
+
+	/**
+	 * Reads the index of a player
+	 * @param in Where to read from
+	 * @param lastIndex The highest index allowed
+	 * @return index The index
+	 * @throws IOException If the index can not be read
+	 * @throws IllegalArgumentException If the index is higher than allowed
+	**/
+	private static int readPlayer(DataInput in, int lastIndex) throws IOException {
+		int index = in.readUnsignedShort();
+		if (index > lastIndex) {
+			throw new IllegalArgumentException(String.format("Unknown player %d", index));
+		}
+		return index;
+	}
+
+	private static Card readCard(DataInput in, CardList cards) throws IOException {
+		int index = in.readUnsignedShort();
+		if (index >= cards.getNumberOfCards()) {
+			throw new IllegalArgumentException(String.format("Unknown card %d", index));
+		}
+		return cards.getCard(index);
+	}
+
 	@Override
 	public String toString() {
+		ArrayList<String> playerNames = new ArrayList<String>();
+		for (int i = 0; i <= Math.max(number, resolvingPlayer); i++) {
+			playerNames.add(String.format("Player %d", i + 1));
+		}
+		return toString(playerNames);
+	}
+
+	/**
+	 * Gives a description of the move using the names of the players in the game
+	 * @param playerNames The names of the players in the game in turn order
+	 * @return description The description of the move
+	**/
+	public String toString(ArrayList<String> playerNames) {
 		switch (moveType) {
 			case START_CARD:
 				return String.format("Added start card [%s]", card.getDescription());
 			case SUGGESTION:
 				return String.format("Suggestion by [%s] of [%s] resolved by [%s]",
-						ClueLogic.getClueLogic().getPlayerList().get(number), suggestion.toString(),
-						ClueLogic.getClueLogic().getPlayerList().get(resolvingPlayer));
+						playerNames.get(number), suggestion.toString(), playerNames.get(resolvingPlayer));
 			case ADD_CARD:
 				return String.format("[%s] has card [%s]", player.getName(), card.getDescription());
 			case UNDO:
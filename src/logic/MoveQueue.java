@@ -0,0 +1,221 @@
+package src.logic;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import src.logic.journal.MoveJournal;
+
+/**
+ * Takes moves for one game from any number of threads and makes them one at a time in the order they were submitted,
+ * so the game is only ever used by one thread at a time. The moves are made by tasks run on an executor that can be
+ * shared by many queues, so games do not need a thread each: a task is started when moves are submitted and none is
+ * running, and makes the moves waiting as one batch sharing a single sync of the game's journal. A task makes one batch
+ * and then starts another if there are more moves, so a busy game does not keep the executor from the others.
+ * Submitting a move gives a future that completes once the move is made, and synced to the journal if the game has one.
+ * The queue is bounded, and submitting while it is full waits for room rather than dropping the move.
+ * If the journal can not be synced, the moves of that batch were made but may not be recovered, so their futures
+ * complete with a MoveNotSavedException and the queue fails every move after them. The queue also fails every move
+ * after an Error thrown while making one, since the game may have been left partway through the move.
+**/
+public class MoveQueue implements Closeable {
+	//Variables
+	private final ClueLogic game; //The game the moves are made in
+	private final ArrayBlockingQueue<Submission> queue; //Moves submitted but not made yet
+	private final Executor executor; //Runs the tasks that make the moves
+	private final AtomicBoolean draining = new AtomicBoolean(); //Whether a task is running or about to
+	private volatile boolean closed; //Whether the queue takes no more moves
+	private volatile boolean stopped; //Whether every move submitted before the queue was closed was made
+	private volatile IllegalStateException failure; //Why the queue stopped making moves, null while it makes them
+	private static final int BATCH_SIZE = 64; //Most moves made at once
+	private static final Submission CLOSE = new Submission(null); //Put in the queue after the last move to make
+
+	/**
+	 * A submitted move and the future its result is given through
+	**/
+	private static class Submission {
+		private final Move move;
+		private final CompletableFuture<Boolean> done;
+
+		private Submission(Move move) {
+			this.move = move;
+			done = new CompletableFuture<Boolean>();
+		}
+	}
+
+	/**
+	 * Thrown through the future of a move that was made but could not be synced to the game's journal,
+	 * so the game has the move but may lose it if it is recovered from the journal
+	**/
+	public static class MoveNotSavedException extends IllegalStateException {
+		private static final long serialVersionUID = 1L;
+
+		private MoveNotSavedException(RuntimeException cause) {
+			super("The move was made but could not be saved to the journal, the game takes no more moves", cause);
+		}
+	}
+
+	//Methods
+
+	/**
+	 * Creates a queue for a game. The game must not be used by any other thread until the queue is closed,
+	 * though its view can be read from any thread.
+	 * @param game The game
+	 * @param capacity The most moves waiting at once
+	 * @param executor Runs the tasks that make the moves, which may be shared with other queues
+	**/
+	public MoveQueue(ClueLogic game, int capacity, Executor executor) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The queue must hold at least one move");
+		}
+		this.game = game;
+		this.executor = executor;
+		queue = new ArrayBlockingQueue<Submission>(capacity);
+	}
+
+	/**
+	 * Submits a move, waiting for room if the queue is full
+	 * @param move The move
+	 * @return done Completes with whether the move could be made, or with the exception making it threw,
+	 * or with an IllegalStateException if the queue was closed first or the journal could not be synced
+	**/
+	public CompletableFuture<Boolean> submit(Move move) {
+		Submission submission = new Submission(move);
+		if (closed || failure != null) {
+			submission.done.completeExceptionally(rejection());
+			return submission.done;
+		}
+		try {
+			queue.put(submission);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			submission.done.completeExceptionally(e);
+			return submission.done;
+		}
+		//A move put after the queue was closed may be after the last task, so it is taken back
+		if (closed && queue.remove(submission)) {
+			submission.done.completeExceptionally(rejection());
+			return submission.done;
+		}
+		schedule();
+		return submission.done;
+	}
+
+	/**
+	 * Gives the exception a move is failed with when the queue no longer makes moves
+	 * @return exception Why the move was not made
+	**/
+	private IllegalStateException rejection() {
+		return failure != null ? new IllegalStateException("The game takes no more moves", failure) : new IllegalStateException("The game is closed");
+	}
+
+	/**
+	 * Starts a task to make the moves waiting, unless one is already running
+	**/
+	private void schedule() {
+		if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(this::drain);
+		} catch (RejectedExecutionException e) {
+			drain(); //The executor was shut down, so the moves are made on this thread rather than lost
+		}
+	}
+
+	/**
+	 * Makes the moves waiting, as many at once as BATCH_SIZE, then starts another task if more are waiting.
+	 * Whatever is thrown, every move taken is answered and the queue can start another task, so no caller waits forever.
+	**/
+	private void drain() {
+		ArrayList<Submission> batch = new ArrayList<Submission>(BATCH_SIZE);
+		ArrayList<Submission> made = new ArrayList<Submission>(BATCH_SIZE); //The moves made, without those that failed
+		ArrayList<Boolean> results = new ArrayList<Boolean>(BATCH_SIZE);
+		try {
+			queue.drainTo(batch, BATCH_SIZE);
+			boolean stopping = false;
+			for (Submission submission : batch) {
+				if (submission == CLOSE) {
+					stopping = true; //Everything submitted before the queue was closed is made
+				} else if (stopping || stopped || failure != null) {
+					submission.done.completeExceptionally(rejection());
+				} else {
+					try {
+						results.add(game.doMove(submission.move));
+						made.add(submission);
+					} catch (RuntimeException e) {
+						submission.done.completeExceptionally(e);
+					}
+				}
+			}
+			MoveJournal journal = game.getJournal();
+			if (journal != null && !made.isEmpty()) {
+				try {
+					journal.sync();
+				} catch (RuntimeException e) {
+					failure = new MoveNotSavedException(e);
+				}
+			}
+			for (int i = 0; i < made.size(); i++) {
+				if (failure != null) {
+					made.get(i).done.completeExceptionally(failure);
+				} else {
+					made.get(i).done.complete(results.get(i));
+				}
+			}
+		} catch (Error e) {
+			failure = new IllegalStateException("The game failed while making a move", e);
+			throw e;
+		} finally {
+			for (Submission submission : batch) {
+				if (submission == CLOSE) {
+					stopped = true;
+				} else if (!submission.done.isDone()) { //Left unanswered by an Error
+					submission.done.completeExceptionally(rejection());
+				}
+			}
+			draining.set(false);
+			schedule(); //Moves submitted after the batch was taken
+			synchronized (this) {
+				notifyAll(); //Wake close
+			}
+		}
+	}
+
+	/**
+	 * Stops taking moves and waits until the ones already submitted are made
+	**/
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		boolean interrupted = false;
+		boolean stopping = false; //Whether CLOSE was put in the queue
+		while (!stopping) {
+			try {
+				queue.put(CLOSE);
+				stopping = true;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		schedule();
+		synchronized (this) {
+			while (!stopped) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -1,9 +1,10 @@
 package src.logic;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashSet;
-import java.util.ArrayList;
 import src.logic.card.*;
-import java.util.Iterator;
 
 /**
  * Represents a player or solution in the game of clue
@@ -12,36 +13,111 @@ import java.util.Iterator;
 public class Player {
 	//Variables
 	private String name; //The player's name
-	private HashSet<Card> knownCards; //Cards the player is known to have
-	private HashSet<Card> possibleCards; //Cards that are still not known whether the player has it or not
-	private HashSet<Card> cardsNotPossible; //Cards a player is known not to have
-	private ArrayList<HashSet<Card>> possibleSuggestions; //Suggestions the player has said yes to
+	private CardSet knownCards; //Cards the player is known to have
+	private CardSet possibleCards; //Cards that are still not known whether the player has it or not
+	private CardSet cardsNotPossible; //Cards a player is known not to have
+	//Suggestions the player has said yes to are kept with the game's other suggestions in its clause store
 	private int numberOfCards; //How many cards the player has
+	private int numberOfKnownCards; //How many cards in knownCards
+	private int numberOfPossibleCards; //How many cards in possibleCards
 	private boolean solved; //Whether or not all cards the player can have are known or not
+	private ClueLogic game; //The game the player is part of
+	private int index; //The player's place in the game, the players in turn order followed by the solution
+	private CardList cards; //The deck used in the player's game
 
 	//List of what status a card may have relative to a player
 	public enum CardStatus {
 		KNOWN, NOT_POSSIBLE, POSSIBLE, UNKNOWN
 	}
 
+	/**
+	 * Immutable copy of everything a player has deduced, used to snapshot and restore a game
+	**/
+	static class State {
+		private final CardSet knownCards;
+		private final CardSet possibleCards;
+		private final CardSet cardsNotPossible;
+		private final CardSet[] suggestions;
+		private final boolean solved;
+
+		private State(Player player) {
+			knownCards = new CardSet(player.knownCards);
+			possibleCards = new CardSet(player.possibleCards);
+			cardsNotPossible = new CardSet(player.cardsNotPossible);
+			suggestions = player.getSuggestionMasks();
+			solved = player.solved;
+		}
+
+		private State(CardSet knownCards, CardSet possibleCards, CardSet cardsNotPossible, CardSet[] suggestions, boolean solved) {
+			this.knownCards = knownCards;
+			this.possibleCards = possibleCards;
+			this.cardsNotPossible = cardsNotPossible;
+			this.suggestions = suggestions;
+			this.solved = solved;
+		}
+
+		/**
+		 * Writes the state. The possible cards are left out since they are the cards that are neither known nor not possible.
+		 * @param out Where to write
+		 * @throws IOException If the state can not be written
+		**/
+		void write(DataOutput out) throws IOException {
+			out.writeBoolean(solved);
+			knownCards.write(out);
+			cardsNotPossible.write(out);
+			CardSet.writeNumber(out, suggestions.length);
+			for (CardSet suggestion : suggestions) {
+				suggestion.write(out);
+			}
+		}
+
+		/**
+		 * Reads a state written by write
+		 * @param in Where to read from
+		 * @param cards The deck of the game the state is from
+		 * @return state The state
+		 * @throws IOException If the state can not be read
+		**/
+		static State read(DataInput in, CardList cards) throws IOException {
+			boolean solved = in.readBoolean();
+			CardSet knownCards = CardSet.read(in, cards.getNumberOfCards());
+			CardSet cardsNotPossible = CardSet.read(in, cards.getNumberOfCards());
+			CardSet possibleCards = cards.getAllCardsMask();
+			possibleCards.removeAll(knownCards);
+			possibleCards.removeAll(cardsNotPossible);
+			CardSet[] suggestions = new CardSet[CardSet.readNumber(in)];
+			for (int i = 0; i < suggestions.length; i++) {
+				suggestions[i] = CardSet.read(in, cards.getNumberOfCards());
+			}
+			return new State(knownCards, possibleCards, cardsNotPossible, suggestions, solved);
+		}
+	}
+
 	//Methods
 	/**
-	 * Creates a new player
+	 * Creates a new player. The player can not track any cards until it joins a game.
 	 * @param name The player's name
 	 * @param numberOfCards The maximum number of cards the player can have
 	**/
 	public Player(String name, int numberOfCards) {
 		this.name = name;
 		this.numberOfCards = numberOfCards;
-		knownCards = new HashSet<Card>();
-		possibleCards = new HashSet<Card>();
-		cardsNotPossible = new HashSet<Card>();
-		possibleSuggestions = new ArrayList<HashSet<Card>>();
+		knownCards = new CardSet(0);
+		possibleCards = new CardSet(0);
+		cardsNotPossible = new CardSet(0);
 		solved = false;
-		ArrayList<Card> allCards = CardList.getCardList().getCards();
-		for (Card c : allCards) {
-			possibleCards.add(c);
-		}
+	}
+
+	/**
+	 * Adds the player to a game. All of the cards in the game's deck become possible for the player.
+	 * @param game The game the player is part of
+	 * @param index The player's place in the game, the players in turn order followed by the solution
+	**/
+	void joinGame(ClueLogic game, int index) {
+		this.game = game;
+		this.index = index;
+		cards = game.getCards();
+		clear();
 	}
 
 	@Override
@@ -58,27 +134,41 @@ public class Player {
 	}
 
 	/**
-	 * Adds a known card to the player's hand
-	 * @param name The player's name
-	 * @param numberOfCards The maximum number of cards the player can have
+	 * Adds a known card to the player's hand. What follows from it is queued with the game.
+	 * @param c The card in the player's hand
 	**/
 	public void addCard(Card c) {
 		if (possibleCards.contains(c)) {
 			possibleCards.remove(c);
+			numberOfPossibleCards--;
+		}
+		if (!knownCards.contains(c)) {
+			knownCards.add(c);
+			numberOfKnownCards++;
 		}
-		knownCards.add(c);
-		if (knownCards.size() == numberOfCards) { //Check if the user has all the cards they can
-			while (possibleCards.size() != 0) { //Remove all other cards as possiblities if all cards are known
-				Card cardToRemove = possibleCards.iterator().next();
-				addCardNotPossible(cardToRemove);
+		checkHandSize();
+		game.getClauseStore().cardKnown(this, c.getIndex()); //Suggestions that have this card are satisfied
+	}
+
+	/**
+	 * Compares the number of cards the player still has to find with the number of cards they may still have.
+	 * If every card in the player's hand is known, the player can not have any other card. If the player may have
+	 * exactly as many cards as are left to find, they must have all of them. What follows is queued with the game.
+	**/
+	void checkHandSize() {
+		if (solved) {
+			return; //The rest of the cards were already ruled out
+		} else if (numberOfKnownCards == numberOfCards) { //Check if the user has all the cards they can
+			Justification reason = game.justifyHand(this, Justification.Rule.HAND_FULL);
+			for (int i = possibleCards.nextCard(0); i >= 0; i = possibleCards.nextCard(i + 1)) { //Remove all other cards as possiblities if all cards are known
+				game.queueCardNotPossible(cards.getCard(i), this, reason);
 			}
 			solved = true;
-		}
-		//Remove suggestions that have this card
-		for (int i=0; i<possibleSuggestions.size(); i++) {
-			if (possibleSuggestions.get(i).contains(c)) {
-				possibleSuggestions.remove(i);
-				i--;
+		} else if (numberOfPossibleCards > 0 && numberOfKnownCards + numberOfPossibleCards == numberOfCards) {
+			//Every card the player may have is needed to fill their hand
+			Justification reason = game.justifyHand(this, Justification.Rule.HAND_NEEDS);
+			for (int i = possibleCards.nextCard(0); i >= 0; i = possibleCards.nextCard(i + 1)) {
+				game.queueKnownCard(cards.getCard(i), this, reason);
 			}
 		}
 	}
@@ -91,84 +181,93 @@ public class Player {
 		return name;
 	}
 
+	/**
+	 * Gives the player's place in the game
+	 * @return index The player's index, the players in turn order followed by the solution
+	**/
+	public int getIndex() {
+		return index;
+	}
+
 	/**
 	 * Marks a card as not possible for the player to possess and removes the card from all suggestions
-	 * the player has said yes to
+	 * the player has said yes to. What follows from it is queued with the game.
 	 * @param card The card to mark as impossible for the player to have
+	 * @return changed Whether the card was still possible for the player before
 	**/
-	public void addCardNotPossible(Card card) {
+	public boolean addCardNotPossible(Card card) {
 		if (possibleCards.contains(card)) {
 			possibleCards.remove(card);
+			numberOfPossibleCards--;
 			cardsNotPossible.add(card);
 			removeFromSuggestions(card);
-			ClueLogic.getClueLogic().checkIfCardIsUnowned(card); //Check if no one owns that card
-		}
-		ArrayList<Card> otherCards = null;
-		switch (card.getType()) {
-			case ROOM:
-				otherCards = CardList.getCardList().getRooms();
-				break;
-			case SUSPECT:
-				otherCards = CardList.getCardList().getSuspects();
-				break;
-			case WEAPON:
-				otherCards = CardList.getCardList().getWeapons();
-				break;
-			default:
-				System.out.println("Error");
+			checkHandSize();
+			return true;
 		}
-		//Make sure that all the cards of a type have not been taken - possibly implemented somewhere else
-		// HashSet<Card> unknownCards = new HashSet<Card>();
-		// for (Card otherCard : otherCards) {
-		// 	if (!otherCard.isKnown()) {
-		// 		unknownCards.add(otherCard);
-		// 	}
-		// }
+		return false;
+	}
 
+	/**
+	 * Takes back the deduction that the player has a card, which becomes possible again
+	 * @param card The card
+	**/
+	void retractCard(Card card) {
+		if (knownCards.contains(card)) {
+			knownCards.remove(card);
+			numberOfKnownCards--;
+			possibleCards.add(card);
+			numberOfPossibleCards++;
+		}
 	}
 
 	/**
-	 * Removes all blank suggestions from the list of suggestions they player has said yes to
+	 * Takes back the deduction that the player does not have a card, which becomes possible again
+	 * @param card The card
 	**/
-	private void cleanUpSuggestions() {
-		for (int i=0; i<possibleSuggestions.size(); i++) {
-			if (possibleSuggestions.get(i).size() == 0) {
-				possibleSuggestions.remove(i);
-				i--;
-			}
+	void retractCardNotPossible(Card card) {
+		if (cardsNotPossible.contains(card)) {
+			cardsNotPossible.remove(card);
+			possibleCards.add(card);
+			numberOfPossibleCards++;
 		}
 	}
 
+	/**
+	 * Drops the player's suggestions and whether their hand is solved after deductions were taken back,
+	 * so the suggestions can be added again and the hand checked again against what is still known
+	**/
+	void reopen() {
+		clearSuggestions();
+		solved = false;
+	}
+
 	/**
 	 * Checks a suggestion against the cards a player is known to have or not have
 	 * and adds it to the list of suggestions if it is valid
-	 * @param suggestion The suggestion to check and add
-	**/
-	private void checkSuggestion(HashSet<Card> suggestion) {
-		//Filter the suggestion
-		//Check sugestion against cards the player couldn't have
-		HashSet<Card> cardsToRemove = new HashSet<Card>();
-		for (Card c : suggestion) { //Precheck cards if any contain existing information
-			if (getStatusOfCard(c) == CardStatus.KNOWN) {
-				suggestion.clear();
-				return; //Nothing new is learned, throw it out
-			} else if (getStatusOfCard(c) == CardStatus.NOT_POSSIBLE) {
-				cardsToRemove.add(c);
-			}
+	 * @param suggestion The cards in the suggestion, the set is changed and may be kept by the player
+	 * @param moveId The id of the move the suggestion came from, -1 if there is none
+	**/
+	private void checkSuggestion(CardSet suggestion, int moveId) {
+		if (suggestion.intersects(knownCards)) {
+			return; //Nothing new is learned, the player already has one of the cards
 		}
-		for (Card c : cardsToRemove) { //Remove impossible cards from the suggestion
-			suggestion.remove(c);
+		CardSet source = new CardSet(suggestion);
+		//Remove cards the player can not have, including cards someone else is known to have
+		suggestion.retainAll(possibleCards);
+		for (int c = suggestion.nextCard(0); c >= 0; c = suggestion.nextCard(c + 1)) {
+			if (game.isCardKnown(cards.getCard(c))) {
+				suggestion.remove(c);
+			}
 		}
-		if (suggestion.size() == 0) {
+		int size = suggestion.size();
+		if (size == 0) {
 			return; //Nothing new is learned, the suggestion did not provide any new information
-		} else if (suggestion.size() == 1) { //Learned something!
-			Card learnedCard = suggestion.iterator().next();
-			ClueLogic.getClueLogic().addKnownCard(learnedCard, this);
-			suggestion.clear();
+		} else if (size == 1) { //Learned something!
+			int card = suggestion.nextCard(0);
+			game.queueKnownCard(cards.getCard(card), this, game.justifyClause(this, source, card, moveId));
 		} else { //Add the suggestion to the possible candidates
-			possibleSuggestions.add(suggestion);
+			game.getClauseStore().add(this, suggestion, source, moveId);
 		}
-		cleanUpSuggestions();
 	}
 
 	/**
@@ -176,18 +275,7 @@ public class Player {
 	* (The card is not a card owned by the player)
 	**/
 	public void removeFromSuggestions(Card cardToRemove) {
-		HashSet<Card> newSolutions = new HashSet<Card>();
-		for (int i=0; i<possibleSuggestions.size(); i++) {
-			if (possibleSuggestions.get(i).contains(cardToRemove)) {
-				possibleSuggestions.get(i).remove(cardToRemove);
-				if (possibleSuggestions.get(i).size() == 1) {
-					newSolutions.add(possibleSuggestions.get(i).iterator().next());
-				}
-			}
-		}
-		for (Card c : newSolutions) {
-			ClueLogic.getClueLogic().addKnownCard(c, this);
-		}
+		game.getClauseStore().cardNotPossible(this, cardToRemove.getIndex());
 	}
 
 	/**
@@ -196,16 +284,20 @@ public class Player {
 	 * @param suggestion The suggestion to add to the list of suggestions
 	**/
 	public void addPossibleSuggestion(Suggestion suggestion) {
-		HashSet<Card> newPossibleSuggestion = new HashSet<Card>();
-		//Check if any of the cards are already known to be possesed by the players
-		if (knownCards.contains(suggestion.getSuspect()) || knownCards.contains(suggestion.getWeapon())
-				|| knownCards.contains(suggestion.getRoom())) {
-			return; //Nothing new is learned, throw out the suggestion
-		}
-		newPossibleSuggestion.add(suggestion.getRoom());
-		newPossibleSuggestion.add(suggestion.getSuspect());
-		newPossibleSuggestion.add(suggestion.getWeapon());
-		checkSuggestion(newPossibleSuggestion);
+		addPossibleSuggestion(suggestion, -1);
+	}
+
+	/**
+	 * Adds a suggestion the player has said yes to in a move of the game
+	 * @param suggestion The suggestion to add to the list of suggestions
+	 * @param moveId The id of the move, which justifies what the suggestion resolves to
+	**/
+	void addPossibleSuggestion(Suggestion suggestion, int moveId) {
+		CardSet set = cards.newCardSet();
+		set.add(suggestion.getRoom());
+		set.add(suggestion.getSuspect());
+		set.add(suggestion.getWeapon());
+		checkSuggestion(set, moveId);
 	}
 
 	/**
@@ -214,80 +306,16 @@ public class Player {
 	 * @param suggestion The set of cards to add as a suggestion
 	**/
 	public void addPossibleSuggestion(HashSet<Card> suggestion) {
-		HashSet<Card> extraInfo = new HashSet<Card>();
-		//Check and clean up extra infomation from the suggestion
+		CardSet set = cards.newCardSet();
 		for (Card c : suggestion) {
-			if (knownCards.contains(c)) {
-				return; //Nothing new is learned, the player already has one of the cards
-			} else if (c.isKnown() || cardsNotPossible.contains(c)) {
-				extraInfo.add(c);
-			}
+			set.add(c);
 		}
-		//Remove extra information
-		for (Card c : extraInfo) {
-			suggestion.remove(c);
-		}
-		if (suggestion.size() == 0) {
-			return; //Nothing new is learned, the suggestion did not provide any new information
-		} else if (suggestion.size() == 1) { //Learned something!
-			Card learnedCard = suggestion.iterator().next();
-			ClueLogic.getClueLogic().addKnownCard(learnedCard, this);
-			suggestion.clear();
-		} else { //Add the suggestion to the possible candidates
-			possibleSuggestions.add(suggestion);
-		}
-		cleanUpSuggestions(); //Check other suggestions just in case something else is learned
+		checkSuggestion(set, -1);
 	}
 
 	@Override
 	public String toString() {
-		String output = String.format("∨∨∨∨vvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvv\n"+
-			"\t\033[34m\033[1m%s\033[0m\033[39m\n\n\033[32mKnown cards:\033[39m\n", name);
-		int index = 1;
-		//Give a list of all known cards
-		for (Card c : knownCards) {
-			output += String.format("%d. %s\t", index, c.getDescription());
-			index++;
-		}
-		for (int i = knownCards.size(); i<numberOfCards; i++) {
-			output += String.format("%d. Unknown\t", index);
-			index++;
-		}
-		//Give a list of cards known not to be in the player's hand if all their hand is not known
-		if (!isSolved()) {
-			output += "\n\n\033[31mCards not owned:\033[39m\n";
-			index = 1;
-			for (Card c : cardsNotPossible) {
-				output += String.format("%d. %s\t", index, c.getDescription());
-				index++;
-			}
-		}
-		//Display other information if it is available
-		if (possibleSuggestions.size() != 0) {
-			output += "\n\n\033[33mOther information:\033[39m\n";
-			index = 1;
-			for (HashSet<Card> possibleSuggestion : possibleSuggestions) {
-				String suggestion = String.format("%d. ", index);
-				Iterator<Card> iter = possibleSuggestion.iterator();
-				while (iter.hasNext()) {
-					Card c = iter.next();
-					if (iter.hasNext()) {
-						suggestion += c.getDescription() + " or ";
-					} else {
-						suggestion += c.getDescription();
-					}
-				}
-				for (Card c : possibleSuggestion) {
-				}
-				suggestion += "\n";
-				index++;
-				output += suggestion;
-			}
-			output += "^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^\n";
-		} else {
-			output += "\n\n^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^\n";
-		}
-		return output;
+		return new GameView.PlayerView(this, cards).toString();
 	}
 
 	/**
@@ -299,12 +327,108 @@ public class Player {
 		return knownCards.contains(card);
 	}
 
+	/**
+	 * Whether or not it is still unknown if the player has a card
+	 * @param card The card to check
+	 * @return possible True if the card is neither known to be in or not in the player's hand
+	**/
+	public boolean isPossible(Card card) {
+		return possibleCards.contains(card);
+	}
+
+	/**
+	 * Whether or not it is still unknown if the player has a card
+	 * @param card The index of the card to check
+	 * @return possible True if the card is neither known to be in or not in the player's hand
+	**/
+	boolean isPossible(int card) {
+		return possibleCards.contains(card);
+	}
+
 	/**
 	 * Gives a set of all the cards the player is known to possess in their hand
 	 * @return knownCards Set of all cards known to be in the player's hand
 	**/
 	public HashSet<Card> getKnownCards() {
-		return knownCards;
+		HashSet<Card> known = new HashSet<Card>();
+		for (int c = knownCards.nextCard(0); c >= 0; c = knownCards.nextCard(c + 1)) {
+			known.add(cards.getCard(c));
+		}
+		return known;
+	}
+
+	/**
+	 * Gives a copy of the set of all the cards the player is known to possess
+	 * @return knownCards Set of all cards known to be in the player's hand
+	**/
+	public CardSet getKnownMask() {
+		return new CardSet(knownCards);
+	}
+
+	/**
+	 * Gives how many cards the player is known to possess
+	 * @return numberOfKnownCards The number of cards known to be in the player's hand
+	**/
+	public int getNumberOfKnownCards() {
+		return numberOfKnownCards;
+	}
+
+	/**
+	 * Gives how many cards in the player's hand are not known yet
+	 * @return openSlots The number of unknown cards in the player's hand
+	**/
+	public int getNumberOfOpenSlots() {
+		return numberOfCards - numberOfKnownCards;
+	}
+
+	/**
+	 * Gives how many cards it is still not known whether the player has
+	 * @return numberOfPossibleCards The number of cards neither known to be in or not in the player's hand
+	**/
+	public int getNumberOfPossibleCards() {
+		return numberOfPossibleCards;
+	}
+
+	/**
+	 * Gives a copy of the set of all the cards it is still not known whether the player has
+	 * @return possibleCards Set of all cards neither known to be in or not in the player's hand
+	**/
+	public CardSet getPossibleMask() {
+		return new CardSet(possibleCards);
+	}
+
+	/**
+	 * Gives a copy of the set of all the cards the player is known not to possess
+	 * @return cardsNotPossible Set of all cards known not to be in the player's hand
+	**/
+	public CardSet getNotPossibleMask() {
+		return new CardSet(cardsNotPossible);
+	}
+
+	/**
+	 * Gives the number of cards in the player's hand
+	 * @return numberOfCards How many cards the player has
+	**/
+	public int getNumberOfCards() {
+		return numberOfCards;
+	}
+
+	/**
+	 * Gives how many suggestions the player has said yes to that are not resolved yet
+	 * @return numberOfSuggestions The number of open suggestions
+	**/
+	public int getNumberOfOpenSuggestions() {
+		return game.getClauseStore().size(index);
+	}
+
+	/**
+	 * Gives the suggestions the player has said yes to that are not resolved yet. Each suggestion is
+	 * a new set of the cards the player must have at least one of and may still have. Suggestions with
+	 * every card of another one are left out.
+	 * @return suggestions The sets of all the open suggestions
+	**/
+	public CardSet[] getSuggestionMasks() {
+		return game.getClauseStore().getClauses(this);
 	}
 
 	/**
@@ -317,12 +441,9 @@ public class Player {
 			return CardStatus.KNOWN;
 		} else if (cardsNotPossible.contains(c)) {
 			return CardStatus.NOT_POSSIBLE;
+		} else if (game.getClauseStore().isInClause(index, c.getIndex())) {
+			return CardStatus.POSSIBLE;
 		} else {
-			for (HashSet<Card> suggestion : possibleSuggestions) {
-				if (suggestion.contains(c)) {
-					return CardStatus.POSSIBLE;
-				}
-			}
 			return CardStatus.UNKNOWN;
 		}
 	}
@@ -335,15 +456,45 @@ public class Player {
 		return solved;
 	}
 
+	/**
+	 * Takes an immutable copy of the player's deductions
+	 * @return state The copy of the player's current state
+	**/
+	State saveState() {
+		return new State(this);
+	}
+
+	/**
+	 * Replaces the player's deductions with a previously saved state
+	 * @param state The state to restore
+	**/
+	void restoreState(State state) {
+		knownCards.copyFrom(state.knownCards);
+		possibleCards.copyFrom(state.possibleCards);
+		cardsNotPossible.copyFrom(state.cardsNotPossible);
+		numberOfKnownCards = knownCards.size();
+		numberOfPossibleCards = possibleCards.size();
+		clearSuggestions();
+		for (CardSet suggestion : state.suggestions) {
+			game.getClauseStore().add(this, new CardSet(suggestion), new CardSet(suggestion), -1);
+		}
+		solved = state.solved;
+	}
+
+	/**
+	 * Removes all the suggestions the player has said yes to
+	**/
+	private void clearSuggestions() {
+		game.getClauseStore().clear(index);
+	}
+
 	public void clear() {
-		knownCards.clear();
-		possibleCards.clear();
-		cardsNotPossible.clear();
-		possibleSuggestions.clear();
+		knownCards = cards.newCardSet();
+		possibleCards = cards.getAllCardsMask();
+		cardsNotPossible = cards.newCardSet();
+		numberOfKnownCards = 0;
+		numberOfPossibleCards = cards.getNumberOfCards();
+		clearSuggestions();
 		solved = false;
-		ArrayList<Card> allCards = CardList.getCardList().getCards();
-		for (Card c : allCards) {
-			possibleCards.add(c);
-		}
 	}
 }
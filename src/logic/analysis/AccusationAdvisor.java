@@ -0,0 +1,310 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import src.logic.ClueLogic;
+import src.logic.Suggestion;
+import src.logic.card.*;
+
+/**
+ * Follows a game and keeps track of the envelope most likely to be right, the room, suspect, and weapon together,
+ * and how likely it is. It tells the user to accuse once that chance reaches a threshold, usually well before
+ * the solver has ruled out every other card.
+ * The chance of an envelope is the number of deals consistent with what is known that put those three cards in the
+ * envelope, out of all the consistent deals. Counting the deals with one card in the envelope gives the chance of it
+ * being there with every card of the other types, and counting the deals with two cards in the envelope gives the
+ * chance of every envelope with those two. The chance of a card, or of two cards, being in the envelope is an upper
+ * bound on the chance of every envelope with them, so cards are tried from the most likely and only until the bound
+ * drops below the best envelope found. Every chance is counted exactly.
+ * Call update after every move. Nothing is counted when the move did not change what is known. Otherwise the counts
+ * are all taken again from scratch, since a move can change the number of deals of every envelope and so no count
+ * stays right from one move to the next. Only the envelope that was best before the move carries over: it is counted
+ * first, so its chance prunes the search from the start. The chances of the single cards come from the game's
+ * analysis cache rather than a count of their own.
+ * If the game is too open to count exactly, the chances are estimated from random deals instead.
+**/
+public class AccusationAdvisor {
+	//Variables
+	private final ClueLogic game; //The game being followed
+	private final double threshold; //The chance an envelope needs for the user to accuse
+	private long stateHash; //Hash of the state the advice was worked out for
+	private boolean updated; //Whether the advice has been worked out at all
+	private int[] best; //The card indices of the most likely envelope, suspect, weapon, and room
+	private double likelihood; //The chance of the most likely envelope
+	private boolean exact; //Whether the chance was counted rather than estimated
+	private int countsTaken; //How many times deals were counted for the latest advice
+	//How long to draw random deals for when the game is too open to count, in milliseconds
+	private static final long SAMPLE_MILLIS = 50;
+	private static final int MAX_SAMPLED_DEALS = 20000;
+
+	//Methods
+
+	/**
+	 * Starts following a game
+	 * @param game The game
+	 * @param threshold The chance, above 0 and at most 1, the most likely envelope needs for the user to accuse
+	**/
+	public AccusationAdvisor(ClueLogic game, double threshold) {
+		if (!(threshold > 0 && threshold <= 1)) {
+			throw new IllegalArgumentException("The threshold must be above 0 and at most 1");
+		}
+		this.game = game;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Works out the most likely envelope after a move
+	 * @return confident True if the chance of the most likely envelope reached the threshold with this move
+	**/
+	public boolean update() {
+		boolean wasConfident = isConfident();
+		StateKey key = new StateKey(game);
+		if (updated && key.getHash() == stateHash) {
+			return false; //Nothing new is known
+		}
+		stateHash = key.getHash();
+		updated = true;
+		countsTaken = 0;
+		CardList cards = game.getCards();
+		CardSet notPossible = game.getSolution().getNotPossibleMask();
+		int[][] candidates = new int[][] {candidates(cards.getSuspects(), notPossible), candidates(cards.getWeapons(), notPossible),
+			candidates(cards.getRooms(), notPossible)};
+		if (candidates[0].length == 0 || candidates[1].length == 0 || candidates[2].length == 0) {
+			best = null; //The moves contradict each other
+			likelihood = 0;
+			exact = true;
+		} else if (candidates[0].length * candidates[1].length * candidates[2].length == 1) {
+			best = new int[] {candidates[0][0], candidates[1][0], candidates[2][0]};
+			likelihood = 1;
+			exact = true;
+		} else {
+			DealConstraints constraints = new DealConstraints(game);
+			try {
+				count(constraints, candidates);
+				exact = true;
+			} catch (IllegalStateException e) { //Too much to count
+				estimate(constraints, candidates);
+				exact = false;
+			}
+		}
+		return !wasConfident && isConfident();
+	}
+
+	/**
+	 * Gives the cards of a type that may still be in the envelope
+	 * @param type The cards of the type
+	 * @param notPossible The cards that can not be in the envelope
+	 * @return candidates The indices of the cards
+	**/
+	private static int[] candidates(ArrayList<Card> type, CardSet notPossible) {
+		int[] candidates = new int[type.size()];
+		int numberOfCandidates = 0;
+		for (Card c : type) {
+			if (!notPossible.contains(c)) {
+				candidates[numberOfCandidates++] = c.getIndex();
+			}
+		}
+		return Arrays.copyOf(candidates, numberOfCandidates);
+	}
+
+	/**
+	 * Finds the most likely envelope by counting the deals with the likely cards of two types in the envelope,
+	 * which gives the chance of those two cards with every card of the third type in one count
+	 * @param constraints The constraints of the game
+	 * @param candidates The cards of each type that may be in the envelope
+	 * @throws IllegalStateException If there is too much to count exactly
+	**/
+	private void count(DealConstraints constraints, int[][] candidates) {
+		CardProbabilities probabilities = game.getCardProbabilities();
+		double numberOfDeals = probabilities.getNumberOfDeals();
+		CardList cards = constraints.getCards();
+		//The envelope that was best before the move is usually still best, so count it first to prune the most
+		int[] previous = best;
+		best = null;
+		likelihood = 0;
+		if (numberOfDeals == 0) {
+			return;
+		}
+		if (previous != null && isCandidate(previous, candidates)) {
+			countsTaken++;
+			best = previous;
+			likelihood = new ProbabilityEngine(constraints.withEnvelope(previous)).countDeals() / numberOfDeals;
+		}
+		//Fix the types with the fewest candidates and read the one with the most off the counts
+		Integer[] types = new Integer[] {0, 1, 2};
+		Arrays.sort(types, (x, y) -> candidates[x].length - candidates[y].length);
+		int[] first = candidates[types[0]];
+		int[] second = candidates[types[1]];
+		int[] third = candidates[types[2]];
+		double[] chance = new double[cards.getNumberOfCards()];
+		for (int c : first) {
+			chance[c] = probabilities.getEnvelopeProbability(cards.getCard(c));
+		}
+		sortByChance(first, chance);
+		for (int f : first) {
+			if (chance[f] <= likelihood) {
+				break; //No envelope with this card or a less likely one can beat the best
+			}
+			countsTaken++;
+			CardProbabilities withFirst = new ProbabilityEngine(constraints.withEnvelope(new int[] {f})).calculate();
+			double[] pairChance = new double[cards.getNumberOfCards()];
+			for (int s : second) {
+				pairChance[s] = withFirst.getNumberOfDeals() * withFirst.getEnvelopeProbability(cards.getCard(s)) / numberOfDeals;
+			}
+			int[] ordered = second.clone();
+			sortByChance(ordered, pairChance);
+			for (int s : ordered) {
+				if (pairChance[s] <= likelihood) {
+					break;
+				}
+				countsTaken++;
+				CardProbabilities withPair = new ProbabilityEngine(constraints.withEnvelope(new int[] {f, s})).calculate();
+				for (int t : third) {
+					double tripleChance = withPair.getNumberOfDeals() * withPair.getEnvelopeProbability(cards.getCard(t)) / numberOfDeals;
+					if (tripleChance > likelihood) {
+						int[] envelopeCards = new int[3];
+						envelopeCards[types[0]] = f;
+						envelopeCards[types[1]] = s;
+						envelopeCards[types[2]] = t;
+						best = envelopeCards;
+						likelihood = tripleChance;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether every card of an envelope may still be in the envelope
+	 * @param envelopeCards The card indices of the envelope
+	 * @param candidates The cards of each type that may be in the envelope
+	 * @return candidate True if the envelope is still possible
+	**/
+	private static boolean isCandidate(int[] envelopeCards, int[][] candidates) {
+		for (int t = 0; t < 3; t++) {
+			boolean found = false;
+			for (int c : candidates[t]) {
+				found |= c == envelopeCards[t];
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sorts cards from the most likely to be in the envelope to the least
+	 * @param type The indices of the cards
+	 * @param chance The chance of each card being in the envelope, indexed by card index
+	**/
+	private static void sortByChance(int[] type, double[] chance) {
+		for (int i = 1; i < type.length; i++) {
+			int card = type[i];
+			int j = i;
+			for (; j > 0 && chance[type[j - 1]] < chance[card]; j--) {
+				type[j] = type[j - 1];
+			}
+			type[j] = card;
+		}
+	}
+
+	/**
+	 * Finds the envelope that comes up most often in random deals consistent with the game. The envelopes drawn are
+	 * sorted and counted in runs, so the memory used grows with the number of deals rather than the size of the deck.
+	 * @param constraints The constraints of the game
+	 * @param candidates The cards of each type that may be in the envelope
+	**/
+	private void estimate(DealConstraints constraints, int[][] candidates) {
+		int[][] deals = new DealSampler(constraints).sampleDeals(SAMPLE_MILLIS, MAX_SAMPLED_DEALS);
+		int envelope = constraints.getEnvelope();
+		long numberOfCards = constraints.getCards().getNumberOfCards();
+		long[] envelopes = new long[deals.length]; //The cards of the envelope of each deal packed into one number
+		for (int d = 0; d < deals.length; d++) {
+			long[] dealt = new long[3];
+			for (int t = 0; t < 3; t++) {
+				for (int c : candidates[t]) {
+					if (deals[d][c] == envelope) {
+						dealt[t] = c;
+					}
+				}
+			}
+			envelopes[d] = (dealt[0] * numberOfCards + dealt[1]) * numberOfCards + dealt[2];
+		}
+		Arrays.sort(envelopes);
+		int bestCount = 0;
+		best = null;
+		for (int start = 0, end = 0; start < envelopes.length; start = end) {
+			while (end < envelopes.length && envelopes[end] == envelopes[start]) {
+				end++;
+			}
+			if (end - start > bestCount) {
+				bestCount = end - start;
+				long packed = envelopes[start];
+				best = new int[] {(int)(packed / numberOfCards / numberOfCards), (int)(packed / numberOfCards % numberOfCards),
+					(int)(packed % numberOfCards)};
+			}
+		}
+		likelihood = deals.length == 0 ? 0 : (double)bestCount / deals.length;
+	}
+
+	/**
+	 * Gives the most likely envelope
+	 * @return envelope The envelope as a suggestion, null if no envelope is possible or update was never called
+	**/
+	public Suggestion getBestEnvelope() {
+		if (best == null) {
+			return null;
+		}
+		CardList cards = game.getCards();
+		return new Suggestion(cards.getCard(best[2]), cards.getCard(best[0]), cards.getCard(best[1]));
+	}
+
+	/**
+	 * Gives the chance the most likely envelope is right
+	 * @return likelihood The chance, from 0 to 1
+	**/
+	public double getLikelihood() {
+		return likelihood;
+	}
+
+	/**
+	 * Gives whether the chance was counted exactly or estimated from random deals
+	 * @return exact True if it was counted
+	**/
+	public boolean isExact() {
+		return exact;
+	}
+
+	/**
+	 * Gives whether the most likely envelope is likely enough to accuse
+	 * @return confident True if its chance is at least the threshold
+	**/
+	public boolean isConfident() {
+		return best != null && likelihood >= threshold;
+	}
+
+	/**
+	 * Gives the chance an envelope needs for the user to accuse
+	 * @return threshold The chance
+	**/
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Gives how many times deals were counted for the latest advice, which shows how well the search was pruned
+	 * @return counts The number of counts
+	**/
+	public int getNumberOfCounts() {
+		return countsTaken;
+	}
+
+	@Override
+	public String toString() {
+		if (best == null) {
+			return "No envelope is possible";
+		}
+		return String.format("%s (%s%.1f%%)", getBestEnvelope(), exact ? "" : "about ", 100 * likelihood);
+	}
+}
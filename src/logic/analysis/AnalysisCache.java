@@ -0,0 +1,161 @@
+package src.logic.analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of analysis results, such as probabilities and recommended suggestions, keyed by the state of
+ * the game they were calculated for and the query that calculated them. Once the cache is full the result used
+ * the longest time ago is dropped. One cache can be shared by any number of games on any number of threads,
+ * so positions that come up again, in the same game after an undo or in other games, are answered at once.
+ * Results must not be changed once they are cached.
+**/
+public class AnalysisCache {
+	//Variables
+	private final int capacity; //The most results kept
+	private final LinkedHashMap<Key, Object> results; //The results, the one used the longest time ago first
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * A state and a query on it
+	**/
+	private static class Key {
+		private final StateKey state;
+		private final String query;
+
+		private Key(StateKey state, String query) {
+			this.state = state;
+			this.query = query;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * state.hashCode() + query.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key otherKey = (Key)other;
+			return state.equals(otherKey.state) && query.equals(otherKey.query);
+		}
+	}
+
+	//Methods
+
+	/**
+	 * Creates an empty cache
+	 * @param capacity The most results to keep
+	**/
+	public AnalysisCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The cache must hold at least one result");
+		}
+		this.capacity = capacity;
+		results = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+				if (size() > AnalysisCache.this.capacity) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Gives the result of a query on a state, if it is cached
+	 * @param state The state
+	 * @param query The query with its parameters, like "exact" or "recommend 3"
+	 * @return result The result, null if it is not cached
+	**/
+	public Object get(StateKey state, String query) {
+		Object result;
+		synchronized (results) {
+			result = results.get(new Key(state, query));
+		}
+		if (result == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * Caches the result of a query on a state
+	 * @param state The state
+	 * @param query The query with its parameters
+	 * @param result The result, which must not be changed afterwards
+	**/
+	public void put(StateKey state, String query, Object result) {
+		synchronized (results) {
+			results.put(new Key(state, query), result);
+		}
+	}
+
+	/**
+	 * Drops every result
+	**/
+	public void clear() {
+		synchronized (results) {
+			results.clear();
+		}
+	}
+
+	/**
+	 * Gives how many results are cached
+	 * @return size The number of results
+	**/
+	public int size() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+
+	/**
+	 * Gives the most results the cache keeps
+	 * @return capacity The number of results
+	**/
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gives how many lookups found their result
+	 * @return hits The number of lookups
+	**/
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gives how many lookups did not find their result
+	 * @return misses The number of lookups
+	**/
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gives how many results were dropped to make room for others
+	 * @return evictions The number of results
+	**/
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		long h = getHits();
+		long m = getMisses();
+		return String.format("%d/%d results, %d hits, %d misses (%.1f%% hit rate), %d evictions", size(), capacity, h, m,
+			h + m == 0 ? 0.0 : 100.0 * h / (h + m), getEvictions());
+	}
+}
@@ -0,0 +1,128 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+import src.logic.card.*;
+
+/**
+ * The chance of each card being in each holder's hand, where the holders are the players in turn order
+ * followed by the envelope. Estimates also carry the half width of their 95% confidence interval,
+ * which is 0 for exact probabilities.
+**/
+public class CardProbabilities {
+	//Variables
+	private final CardList cards; //The deck the probabilities are for
+	private final ArrayList<String> holderNames; //Names of the players followed by the envelope
+	private final double[][] probabilities; //Chance of each card being with each holder, indexed by card index then holder
+	private final double[][] errors; //Half width of the 95% confidence interval of each probability
+	private final double numberOfDeals; //How many deals the probabilities were calculated from
+
+	//Methods
+
+	/**
+	 * Creates a new set of probabilities
+	 * @param cards The deck the probabilities are for
+	 * @param holderNames The names of the players followed by the envelope
+	 * @param probabilities The chance of each card being with each holder, indexed by card index then holder
+	 * @param errors The half width of the 95% confidence interval of each probability, all 0 when exact
+	 * @param numberOfDeals How many deals the probabilities were calculated from
+	**/
+	public CardProbabilities(CardList cards, ArrayList<String> holderNames, double[][] probabilities, double[][] errors,
+			double numberOfDeals) {
+		this.cards = cards;
+		this.holderNames = holderNames;
+		this.probabilities = probabilities;
+		this.errors = errors;
+		this.numberOfDeals = numberOfDeals;
+	}
+
+	/**
+	 * Gives the same probabilities for holders with other names, to reuse them for another game with the same state
+	 * @param names The names of the players followed by the envelope
+	 * @return probabilities The probabilities, sharing this one's numbers
+	**/
+	public CardProbabilities withHolderNames(ArrayList<String> names) {
+		return names.equals(holderNames) ? this : new CardProbabilities(cards, names, probabilities, errors, numberOfDeals);
+	}
+
+	/**
+	 * Gives the chance that a holder has a card
+	 * @param card The card
+	 * @param holder The index of the holder, the players in turn order followed by the envelope
+	 * @return probability The chance the holder has the card
+	**/
+	public double getProbability(Card card, int holder) {
+		return probabilities[card.getIndex()][holder];
+	}
+
+	/**
+	 * Gives the half width of the 95% confidence interval for the chance that a holder has a card
+	 * @param card The card
+	 * @param holder The index of the holder, the players in turn order followed by the envelope
+	 * @return error The half width of the interval, 0 for exact probabilities
+	**/
+	public double getError(Card card, int holder) {
+		return errors[card.getIndex()][holder];
+	}
+
+	/**
+	 * Gives the chance that a card is in the envelope
+	 * @param card The card
+	 * @return probability The chance the card is part of the solution
+	**/
+	public double getEnvelopeProbability(Card card) {
+		return probabilities[card.getIndex()][holderNames.size() - 1];
+	}
+
+	/**
+	 * Gives the number of holders, the players and the envelope
+	 * @return numberOfHolders How many holders there are
+	**/
+	public int getNumberOfHolders() {
+		return holderNames.size();
+	}
+
+	/**
+	 * Gives the names of the holders in order
+	 * @return holderNames The names of the players followed by the envelope
+	**/
+	public ArrayList<String> getHolderNames() {
+		return holderNames;
+	}
+
+	/**
+	 * Gives how many deals the probabilities were calculated from. For exact probabilities this is
+	 * the number of deals consistent with everything known, 0 if the game has contradictory information.
+	 * @return numberOfDeals The number of deals
+	**/
+	public double getNumberOfDeals() {
+		return numberOfDeals;
+	}
+
+	/**
+	 * Gives whether the probabilities are exact or estimates
+	 * @return exact True if every confidence interval has no width
+	**/
+	public boolean isExact() {
+		for (double[] cardErrors : errors) {
+			for (double error : cardErrors) {
+				if (error != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		String output = "";
+		for (Card c : cards.getCards()) {
+			output += String.format("%-16s", c.getDescription());
+			for (int h = 0; h < holderNames.size(); h++) {
+				output += String.format("%6.1f%%", 100 * probabilities[c.getIndex()][h]);
+			}
+			output += "\n";
+		}
+		return output;
+	}
+}
@@ -0,0 +1,435 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import src.logic.ClueLogic;
+import src.logic.Player;
+import src.logic.card.*;
+
+/**
+ * Everything a game has deduced about where the cards are, in a form that is quick to check deals against.
+ * Holders are the players in turn order followed by the envelope. A deal gives every card one holder and
+ * is consistent when every card goes to a holder that may have it, every holder gets exactly as many cards
+ * as they have open slots, and every open suggestion is satisfied.
+ * The constraints are a copy, so they can be used from any thread while the game keeps changing.
+**/
+public class DealConstraints {
+	//Variables
+	private final CardList cards; //The deck the game is played with
+	private final ArrayList<String> holderNames; //Names of the players followed by the envelope
+	private final int[] owners; //Holder known to have each card or -1, indexed by card index
+	private final int[] allowedHolders; //Mask of the holders that may have each card, indexed by card index
+	private final int[] unresolvedCards; //Indices of the cards nobody is known to have
+	private final int[] openSlots; //How many unknown cards each holder has
+	private final int[] clauseHolders; //The holder each clause belongs to
+	private final int[][] clauseCards; //The cards in each clause, the holder has at least one of them
+	private final boolean consistent; //False if no deal can satisfy the constraints
+	//The most players that can be analyzed, the holders that may have a card are kept as bits of an int
+	public static final int MAX_PLAYERS = 30;
+
+	//Methods
+
+	/**
+	 * Copies the constraints from the current state of a game
+	 * @param game The game to copy the constraints from
+	**/
+	public DealConstraints(ClueLogic game) {
+		cards = game.getCards();
+		ArrayList<Player> holders = new ArrayList<Player>(game.getPlayers());
+		holders.add(game.getSolution());
+		if (holders.size() > MAX_PLAYERS + 1) {
+			throw new IllegalArgumentException("Too many players to analyze");
+		}
+		int envelope = holders.size() - 1;
+		int numberOfCards = cards.getNumberOfCards();
+		holderNames = new ArrayList<String>();
+		owners = new int[numberOfCards];
+		allowedHolders = new int[numberOfCards];
+		openSlots = new int[holders.size()];
+		boolean isConsistent = true;
+		//Find who has each card and who may have it
+		for (int c = 0; c < numberOfCards; c++) {
+			owners[c] = -1;
+		}
+		CardSet[] notPossible = new CardSet[holders.size()];
+		for (int h = 0; h < holders.size(); h++) {
+			Player holder = holders.get(h);
+			holderNames.add(holder.getName());
+			CardSet known = holder.getKnownMask();
+			notPossible[h] = holder.getNotPossibleMask();
+			openSlots[h] = holder.getNumberOfCards() - known.size();
+			//A card can not be in two hands, or in a hand that can not have it
+			isConsistent &= !known.intersects(notPossible[h]);
+			for (int c = known.nextCard(0); c >= 0; c = known.nextCard(c + 1)) {
+				if (owners[c] != -1) {
+					isConsistent = false;
+				}
+				owners[c] = h;
+			}
+		}
+		int numberOfUnresolved = 0;
+		for (int c = 0; c < numberOfCards; c++) {
+			if (owners[c] == -1) {
+				numberOfUnresolved++;
+				for (int h = 0; h < holders.size(); h++) {
+					if (!notPossible[h].contains(c)) {
+						allowedHolders[c] |= 1 << h;
+					}
+				}
+			} else {
+				allowedHolders[c] = 1 << owners[c];
+			}
+		}
+		unresolvedCards = new int[numberOfUnresolved];
+		for (int c = 0, i = 0; c < numberOfCards; c++) {
+			if (owners[c] == -1) {
+				unresolvedCards[i++] = c;
+			}
+		}
+		//The envelope has exactly one card of each type
+		ArrayList<Integer> holderOfClause = new ArrayList<Integer>();
+		ArrayList<int[]> cardsOfClause = new ArrayList<int[]>();
+		ArrayList<ArrayList<Card>> types = new ArrayList<ArrayList<Card>>();
+		types.add(cards.getSuspects());
+		types.add(cards.getWeapons());
+		types.add(cards.getRooms());
+		for (ArrayList<Card> type : types) {
+			boolean solved = false;
+			for (Card c : type) {
+				solved |= owners[c.getIndex()] == envelope;
+			}
+			CardSet clause = cards.newCardSet();
+			for (Card c : type) {
+				if (solved) {
+					if (owners[c.getIndex()] != envelope) {
+						allowedHolders[c.getIndex()] &= ~(1 << envelope);
+					}
+				} else {
+					clause.add(c);
+				}
+			}
+			if (!solved) {
+				isConsistent &= addClause(envelope, clause, holderOfClause, cardsOfClause);
+			}
+		}
+		//Every player has at least one card from each suggestion they said yes to
+		for (int h = 0; h < envelope; h++) {
+			CardSet known = holders.get(h).getKnownMask();
+			for (CardSet clause : holders.get(h).getSuggestionMasks()) {
+				if (!clause.intersects(known)) {
+					isConsistent &= addClause(h, clause, holderOfClause, cardsOfClause);
+				}
+			}
+		}
+		clauseHolders = new int[holderOfClause.size()];
+		clauseCards = new int[cardsOfClause.size()][];
+		for (int i = 0; i < clauseHolders.length; i++) {
+			clauseHolders[i] = holderOfClause.get(i);
+			clauseCards[i] = cardsOfClause.get(i);
+		}
+		//Every open slot needs a card and every card needs an open slot
+		int totalSlots = 0;
+		for (int slots : openSlots) {
+			isConsistent &= slots >= 0;
+			totalSlots += slots;
+		}
+		for (int c : unresolvedCards) {
+			isConsistent &= allowedHolders[c] != 0;
+		}
+		consistent = isConsistent && totalSlots == numberOfUnresolved;
+	}
+
+	/**
+	 * Copies constraints with fewer holders allowed for some cards and possibly one more clause
+	 * @param base The constraints to copy
+	 * @param allowed Mask of the holders that may have each card, indexed by card index, within those the base allows
+	 * @param clauseHolder The holder of the new clause, -1 for no new clause
+	 * @param clause The cards of the new clause, the holder has at least one of them
+	**/
+	private DealConstraints(DealConstraints base, int[] allowed, int clauseHolder, int[] clause) {
+		cards = base.cards;
+		holderNames = base.holderNames;
+		owners = base.owners;
+		unresolvedCards = base.unresolvedCards;
+		openSlots = base.openSlots;
+		allowedHolders = new int[allowed.length];
+		boolean isConsistent = base.consistent;
+		for (int c = 0; c < allowed.length; c++) {
+			allowedHolders[c] = base.allowedHolders[c] & allowed[c];
+			isConsistent &= allowedHolders[c] != 0; //A card nobody may have, or that its owner may not have
+		}
+		ArrayList<Integer> holderOfClause = new ArrayList<Integer>();
+		ArrayList<int[]> cardsOfClause = new ArrayList<int[]>();
+		for (int i = 0; i < base.clauseHolders.length; i++) {
+			isConsistent &= addClause(base.clauseHolders[i], toCardSet(base.clauseCards[i]), holderOfClause, cardsOfClause);
+		}
+		if (clauseHolder != -1) {
+			boolean satisfied = false;
+			for (int c : clause) {
+				satisfied |= owners[c] == clauseHolder;
+			}
+			if (!satisfied) {
+				isConsistent &= addClause(clauseHolder, toCardSet(clause), holderOfClause, cardsOfClause);
+			}
+		}
+		clauseHolders = new int[holderOfClause.size()];
+		clauseCards = new int[cardsOfClause.size()][];
+		for (int i = 0; i < clauseHolders.length; i++) {
+			clauseHolders[i] = holderOfClause.get(i);
+			clauseCards[i] = cardsOfClause.get(i);
+		}
+		consistent = isConsistent;
+	}
+
+	private CardSet toCardSet(int[] cardIndices) {
+		CardSet set = cards.newCardSet();
+		for (int c : cardIndices) {
+			set.add(c);
+		}
+		return set;
+	}
+
+	/**
+	 * Gives the mask of every holder for every card, to be narrowed down for a copy of the constraints
+	 * @return allowed The mask of every holder, indexed by card index
+	**/
+	private int[] allowEveryone() {
+		int[] allowed = new int[owners.length];
+		Arrays.fill(allowed, (1 << openSlots.length) - 1);
+		return allowed;
+	}
+
+	/**
+	 * Gives the constraints of the deals that have some cards in the envelope. Counting their deals and comparing
+	 * with the number of deals of these constraints gives how likely it is the cards are in the envelope together.
+	 * @param envelopeCards The indices of the cards, at most one of each type
+	 * @return constraints The constraints with the cards in the envelope, not consistent if they can not all be there
+	 * @throws IllegalArgumentException If two of the cards are of the same type
+	**/
+	public DealConstraints withEnvelope(int[] envelopeCards) {
+		int envelope = getEnvelope();
+		int[] allowed = allowEveryone();
+		CardSet givenTypes = cards.newCardSet();
+		for (int e : envelopeCards) {
+			for (Card c : cards.getCardsOfType(cards.getCard(e).getType())) {
+				if (givenTypes.contains(c)) {
+					throw new IllegalArgumentException("Only one card of each type can be in the envelope");
+				}
+				givenTypes.add(c);
+				allowed[c.getIndex()] &= ~(1 << envelope);
+			}
+			allowed[e] = 1 << envelope;
+		}
+		return new DealConstraints(this, allowed, -1, null);
+	}
+
+	/**
+	 * Gives the constraints of the deals in which a suggestion turns out a given way: every player after the suggesting
+	 * player up to the resolving player has none of the cards, the resolving player has at least one, and they have
+	 * the card shown if it is given.
+	 * @param suggestingPlayer The index of the player making the suggestion
+	 * @param suggestedCards The indices of the suggested cards
+	 * @param resolvingPlayer The index of the player who disproves the suggestion, the suggesting player if nobody does
+	 * @param shownCard The index of the card shown, -1 if it is not seen
+	 * @return constraints The constraints with the outcome of the suggestion, not consistent if it can not turn out that way
+	**/
+	public DealConstraints withSuggestion(int suggestingPlayer, int[] suggestedCards, int resolvingPlayer, int shownCard) {
+		int numberOfPlayers = getEnvelope();
+		int[] allowed = allowEveryone();
+		for (int i = (suggestingPlayer + 1) % numberOfPlayers; i != resolvingPlayer; i = (i + 1) % numberOfPlayers) {
+			for (int c : suggestedCards) {
+				allowed[c] &= ~(1 << i);
+			}
+		}
+		if (shownCard != -1) {
+			allowed[shownCard] = 1 << resolvingPlayer;
+		}
+		return new DealConstraints(this, allowed, resolvingPlayer == suggestingPlayer ? -1 : resolvingPlayer, suggestedCards);
+	}
+
+	/**
+	 * Gives the constraints of the deals in which a holder has exactly the given ones of some cards
+	 * @param holder The index of the holder
+	 * @param checkedCards The indices of the cards
+	 * @param has Whether the holder has each of the cards
+	 * @return constraints The constraints with the holder's cards, not consistent if the holder can not have them
+	**/
+	public DealConstraints withHolding(int holder, int[] checkedCards, boolean[] has) {
+		int[] allowed = allowEveryone();
+		for (int i = 0; i < checkedCards.length; i++) {
+			if (has[i]) {
+				allowed[checkedCards[i]] = 1 << holder;
+			} else {
+				allowed[checkedCards[i]] &= ~(1 << holder);
+			}
+		}
+		return new DealConstraints(this, allowed, -1, null);
+	}
+
+	/**
+	 * Adds a clause after removing the cards its holder can not have
+	 * @param holder The holder that has at least one of the cards
+	 * @param clause The cards in the clause
+	 * @param holderOfClause The holders of the clauses added so far
+	 * @param cardsOfClause The cards of the clauses added so far
+	 * @return satisfiable False if the holder can not have any of the cards
+	**/
+	private boolean addClause(int holder, CardSet clause, ArrayList<Integer> holderOfClause, ArrayList<int[]> cardsOfClause) {
+		int[] allowed = new int[clause.size()];
+		int numberOfAllowed = 0;
+		for (int c = clause.nextCard(0); c >= 0; c = clause.nextCard(c + 1)) {
+			if (owners[c] == -1 && (allowedHolders[c] & (1 << holder)) != 0) {
+				allowed[numberOfAllowed++] = c;
+			}
+		}
+		if (numberOfAllowed == 0) {
+			return false;
+		}
+		int[] clauseCards = Arrays.copyOf(allowed, numberOfAllowed);
+		holderOfClause.add(holder);
+		cardsOfClause.add(clauseCards);
+		return true;
+	}
+
+	/**
+	 * Checks a deal against the constraints
+	 * @param deal The holder of each card, indexed by card index
+	 * @return consistent Whether the deal satisfies every constraint
+	**/
+	public boolean isConsistent(int[] deal) {
+		int[] handSizes = new int[openSlots.length];
+		for (int c : unresolvedCards) {
+			if ((allowedHolders[c] & (1 << deal[c])) == 0) {
+				return false;
+			}
+			handSizes[deal[c]]++;
+		}
+		for (int h = 0; h < openSlots.length; h++) {
+			if (handSizes[h] != openSlots[h]) {
+				return false;
+			}
+		}
+		for (int i = 0; i < clauseHolders.length; i++) {
+			if (!isSatisfied(i, deal)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if a deal gives the holder of a clause one of its cards
+	 * @param clause The index of the clause
+	 * @param deal The holder of each card, indexed by card index
+	 * @return satisfied Whether the clause is satisfied by the deal
+	**/
+	public boolean isSatisfied(int clause, int[] deal) {
+		for (int c : clauseCards[clause]) {
+			if (deal[c] == clauseHolders[clause]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gives the deck the game is played with
+	 * @return cards The game's deck
+	**/
+	public CardList getCards() {
+		return cards;
+	}
+
+	/**
+	 * Gives the number of holders, the players and the envelope
+	 * @return numberOfHolders How many holders there are
+	**/
+	public int getNumberOfHolders() {
+		return openSlots.length;
+	}
+
+	/**
+	 * Gives the index of the envelope, which is always the last holder
+	 * @return envelope The envelope's holder index
+	**/
+	public int getEnvelope() {
+		return openSlots.length - 1;
+	}
+
+	/**
+	 * Gives the names of the holders in order
+	 * @return holderNames The names of the players followed by the envelope
+	**/
+	public ArrayList<String> getHolderNames() {
+		return holderNames;
+	}
+
+	/**
+	 * Gives the holder known to have a card
+	 * @param card The index of the card
+	 * @return owner The index of the holder or -1 if nobody is known to have it
+	**/
+	public int getOwner(int card) {
+		return owners[card];
+	}
+
+	/**
+	 * Gives the holders that may have a card
+	 * @param card The index of the card
+	 * @return allowedHolders Mask of the holders that may have the card
+	**/
+	public int getAllowedHolders(int card) {
+		return allowedHolders[card];
+	}
+
+	/**
+	 * Gives the cards nobody is known to have
+	 * @return unresolvedCards The indices of the unresolved cards
+	**/
+	public int[] getUnresolvedCards() {
+		return unresolvedCards;
+	}
+
+	/**
+	 * Gives how many cards a holder has that are not known yet
+	 * @param holder The index of the holder
+	 * @return openSlots The number of unknown cards in the holder's hand
+	**/
+	public int getOpenSlots(int holder) {
+		return openSlots[holder];
+	}
+
+	/**
+	 * Gives the number of clauses. Each clause is a group of cards its holder has at least one of.
+	 * @return numberOfClauses How many clauses there are
+	**/
+	public int getNumberOfClauses() {
+		return clauseHolders.length;
+	}
+
+	/**
+	 * Gives the holder a clause belongs to
+	 * @param clause The index of the clause
+	 * @return holder The index of the holder
+	**/
+	public int getClauseHolder(int clause) {
+		return clauseHolders[clause];
+	}
+
+	/**
+	 * Gives the cards in a clause. Only cards the holder may have are included.
+	 * @param clause The index of the clause
+	 * @return cards The indices of the cards in the clause
+	**/
+	public int[] getClauseCards(int clause) {
+		return clauseCards[clause];
+	}
+
+	/**
+	 * Gives whether any deal could satisfy the constraints. The game may have been given bad information if not.
+	 * @return consistent False if the constraints contradict each other
+	**/
+	public boolean isConsistent() {
+		return consistent;
+	}
+}
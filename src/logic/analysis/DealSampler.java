@@ -0,0 +1,526 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Estimates the chance of every card being in every holder's hand by drawing random deals consistent with a
+ * game's constraints. Each worker finds one consistent deal and then walks between consistent deals by swapping
+ * or rotating cards between holders and by dealing the cards of a few holders again, which visits every consistent
+ * deal equally often in the long run.
+ * The workers run on a fork-join pool until a deadline, so an answer is ready in time however open the game is.
+**/
+public class DealSampler {
+	//Variables
+	private final DealConstraints constraints;
+	private final int numberOfHolders;
+	private final int[] unresolved; //The cards being dealt, fewest possible holders first
+	private final int[][] clausesOfCard; //The clauses each card is in, indexed by card index
+	private final int[][] remainingAllowed; //How many cards from each position on each holder may get
+	private final int[][] clausesOfHolder; //The clauses each holder must satisfy
+	private final long seed; //Seed for the workers' random numbers
+	//The most steps taken going through the ways to deal the cards of a group of holders again
+	private static final int MAX_REDEAL_STEPS = 2000;
+
+	//Methods
+
+	/**
+	 * Prepares to sample deals consistent with a set of constraints
+	 * @param constraints The constraints from a game
+	**/
+	public DealSampler(DealConstraints constraints) {
+		this(constraints, System.nanoTime());
+	}
+
+	/**
+	 * Prepares to sample deals consistent with a set of constraints using a fixed seed
+	 * @param constraints The constraints from a game
+	 * @param seed The seed for the random numbers
+	**/
+	public DealSampler(DealConstraints constraints, long seed) {
+		this.constraints = constraints;
+		this.seed = seed;
+		numberOfHolders = constraints.getNumberOfHolders();
+		int[] cards = constraints.getUnresolvedCards();
+		Integer[] sorted = new Integer[cards.length];
+		for (int i = 0; i < cards.length; i++) {
+			sorted[i] = cards[i];
+		}
+		Arrays.sort(sorted, (a, b) -> Integer.bitCount(constraints.getAllowedHolders(a)) - Integer.bitCount(constraints.getAllowedHolders(b)));
+		unresolved = new int[cards.length];
+		for (int i = 0; i < cards.length; i++) {
+			unresolved[i] = sorted[i];
+		}
+		remainingAllowed = new int[unresolved.length + 1][numberOfHolders];
+		for (int i = unresolved.length - 1; i >= 0; i--) {
+			for (int h = 0; h < numberOfHolders; h++) {
+				remainingAllowed[i][h] = remainingAllowed[i + 1][h] + ((constraints.getAllowedHolders(unresolved[i]) >> h) & 1);
+			}
+		}
+		int numberOfCards = constraints.getCards().getNumberOfCards();
+		ArrayList<ArrayList<Integer>> clauses = new ArrayList<ArrayList<Integer>>();
+		for (int c = 0; c < numberOfCards; c++) {
+			clauses.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < constraints.getNumberOfClauses(); i++) {
+			for (int c : constraints.getClauseCards(i)) {
+				clauses.get(c).add(i);
+			}
+		}
+		clausesOfCard = new int[numberOfCards][];
+		for (int c = 0; c < numberOfCards; c++) {
+			clausesOfCard[c] = new int[clauses.get(c).size()];
+			for (int i = 0; i < clausesOfCard[c].length; i++) {
+				clausesOfCard[c][i] = clauses.get(c).get(i);
+			}
+		}
+		clausesOfHolder = new int[numberOfHolders][];
+		for (int h = 0; h < numberOfHolders; h++) {
+			ArrayList<Integer> holderClauses = new ArrayList<Integer>();
+			for (int i = 0; i < constraints.getNumberOfClauses(); i++) {
+				if (constraints.getClauseHolder(i) == h) {
+					holderClauses.add(i);
+				}
+			}
+			clausesOfHolder[h] = new int[holderClauses.size()];
+			for (int i = 0; i < clausesOfHolder[h].length; i++) {
+				clausesOfHolder[h][i] = holderClauses.get(i);
+			}
+		}
+	}
+
+	/**
+	 * Estimates the chance of each card being with each holder, using every core until the time runs out
+	 * @param timeBudgetMillis How long to sample for in milliseconds
+	 * @return probabilities The estimated probabilities with 95% confidence intervals, all 0 if no deal was found
+	**/
+	public CardProbabilities estimate(long timeBudgetMillis) {
+		Chain[] chains = runChains(timeBudgetMillis, 0);
+		//Combine the chains, widening the interval if the chains disagree more than independent samples would
+		int numberOfCards = constraints.getCards().getNumberOfCards();
+		double[][] probabilities = new double[numberOfCards][numberOfHolders];
+		double[][] errors = new double[numberOfCards][numberOfHolders];
+		long samples = 0;
+		int usedChains = 0;
+		for (Chain chain : chains) {
+			if (chain != null && chain.samples > 0) {
+				samples += chain.samples;
+				usedChains++;
+			}
+		}
+		if (samples > 0) {
+			for (int c : unresolved) {
+				for (int h = 0; h < numberOfHolders; h++) {
+					long count = 0;
+					for (Chain chain : chains) {
+						if (chain != null) {
+							count += chain.counts[c][h];
+						}
+					}
+					double p = (double)count / samples;
+					double variance = p * (1 - p) / samples;
+					if (usedChains > 1) {
+						double spread = 0;
+						for (Chain chain : chains) {
+							if (chain != null && chain.samples > 0) {
+								double difference = (double)chain.counts[c][h] / chain.samples - p;
+								spread += difference * difference;
+							}
+						}
+						variance = Math.max(variance, spread / (usedChains - 1) / usedChains);
+					}
+					probabilities[c][h] = p;
+					errors[c][h] = 1.96 * Math.sqrt(variance);
+				}
+			}
+		}
+		for (int c = 0; c < numberOfCards; c++) {
+			if (constraints.getOwner(c) != -1) {
+				probabilities[c][constraints.getOwner(c)] = 1;
+			}
+		}
+		return new CardProbabilities(constraints.getCards(), constraints.getHolderNames(), probabilities, errors, samples);
+	}
+
+	/**
+	 * Draws random deals consistent with the constraints, using every core until the time runs out
+	 * or enough deals are drawn. Whole deals keep which cards are held together, which the
+	 * probabilities of single cards do not.
+	 * @param timeBudgetMillis How long to sample for in milliseconds
+	 * @param maxDeals The most deals to draw
+	 * @return deals The holder of each card in each deal, indexed by deal then card index, empty if no deal was found
+	**/
+	public int[][] sampleDeals(long timeBudgetMillis, int maxDeals) {
+		int numberOfChains = Math.max(2, ForkJoinPool.getCommonPoolParallelism());
+		Chain[] chains = runChains(timeBudgetMillis, Math.max(1, maxDeals / numberOfChains));
+		int numberOfDeals = 0;
+		for (Chain chain : chains) {
+			numberOfDeals += chain == null ? 0 : (int)chain.samples;
+		}
+		int[][] deals = new int[numberOfDeals][];
+		int i = 0;
+		for (Chain chain : chains) {
+			for (int d = 0; chain != null && d < chain.samples; d++) {
+				deals[i++] = chain.deals[d];
+			}
+		}
+		return deals;
+	}
+
+	/**
+	 * Runs one chain per core until the deadline
+	 * @param timeBudgetMillis How long to sample for in milliseconds
+	 * @param dealsPerChain How many deals each chain keeps before it stops, 0 to keep none and run until the deadline
+	 * @return chains The chains, null where a chain could not be started
+	**/
+	private Chain[] runChains(long timeBudgetMillis, int dealsPerChain) {
+		long deadline = System.nanoTime() + timeBudgetMillis * 1000000L;
+		int numberOfChains = Math.max(2, ForkJoinPool.getCommonPoolParallelism());
+		Chain[] chains = new Chain[numberOfChains];
+		ForkJoinPool.commonPool().invoke(new SamplingTask(chains, 0, numberOfChains, deadline, dealsPerChain));
+		return chains;
+	}
+
+	/**
+	 * Splits the chains in half until each task runs one chain
+	**/
+	@SuppressWarnings("serial") //Tasks are never serialized
+	private class SamplingTask extends RecursiveAction {
+		private final Chain[] chains;
+		private final int first;
+		private final int last;
+		private final long deadline;
+		private final int dealsPerChain;
+
+		private SamplingTask(Chain[] chains, int first, int last, long deadline, int dealsPerChain) {
+			this.chains = chains;
+			this.first = first;
+			this.last = last;
+			this.deadline = deadline;
+			this.dealsPerChain = dealsPerChain;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first > 1) {
+				int middle = (first + last) / 2;
+				invokeAll(new SamplingTask(chains, first, middle, deadline, dealsPerChain),
+					new SamplingTask(chains, middle, last, deadline, dealsPerChain));
+			} else {
+				Chain chain = new Chain(new SplittableRandom(seed + 0x9E3779B97F4A7C15L * first), dealsPerChain);
+				if (chain.start(deadline)) {
+					chain.run(deadline);
+				}
+				chains[first] = chain;
+			}
+		}
+	}
+
+	/**
+	 * A walk between consistent deals that counts where each card is after every few steps
+	**/
+	private class Chain {
+		private final SplittableRandom random;
+		private final int[] deal; //The holder of each card in the current deal
+		private final long[][] counts; //How many samples had each card with each holder
+		private long samples; //How many samples were taken
+		private final int[][] deals; //Copies of the sampled deals when deals are kept
+
+		private Chain(SplittableRandom random, int dealsToKeep) {
+			this.random = random;
+			deals = dealsToKeep > 0 ? new int[dealsToKeep][] : null;
+			deal = new int[constraints.getCards().getNumberOfCards()];
+			counts = new long[deal.length][numberOfHolders];
+			for (int c = 0; c < deal.length; c++) {
+				deal[c] = constraints.getOwner(c);
+			}
+		}
+
+		/**
+		 * Finds a first consistent deal
+		 * @return found False if no consistent deal was found before the deadline
+		**/
+		private boolean start(long deadline) {
+			if (!constraints.isConsistent()) {
+				return false;
+			}
+			int[] slots = new int[numberOfHolders];
+			for (int h = 0; h < numberOfHolders; h++) {
+				slots[h] = constraints.getOpenSlots(h);
+			}
+			return search(0, slots, deadline);
+		}
+
+		/**
+		 * Gives out the cards from a position on in a random order of holders, backing up when stuck
+		**/
+		private boolean search(int position, int[] slots, long deadline) {
+			if (position == unresolved.length) {
+				return true;
+			}
+			if ((position & 7) == 0 && System.nanoTime() > deadline) {
+				return false;
+			}
+			int card = unresolved[position];
+			int holders = constraints.getAllowedHolders(card);
+			while (holders != 0) {
+				//Pick a random holder that is left
+				int pick = random.nextInt(Integer.bitCount(holders));
+				int h = 0;
+				for (int remaining = holders; ; remaining &= remaining - 1) {
+					h = Integer.numberOfTrailingZeros(remaining);
+					if (pick-- == 0) {
+						break;
+					}
+				}
+				holders &= ~(1 << h);
+				if (slots[h] == 0) {
+					continue;
+				}
+				slots[h]--;
+				deal[card] = h;
+				boolean possible = true;
+				for (int g = 0; g < numberOfHolders && possible; g++) {
+					possible = slots[g] <= remainingAllowed[position + 1][g];
+				}
+				//Every clause the card could have satisfied needs another card left that can satisfy it
+				for (int i = 0; i < clausesOfCard[card].length && possible; i++) {
+					possible = canBeSatisfied(clausesOfCard[card][i]);
+				}
+				//A holder with a full hand must already satisfy all their clauses
+				for (int i = 0; i < clausesOfHolder[h].length && possible && slots[h] == 0; i++) {
+					possible = constraints.isSatisfied(clausesOfHolder[h][i], deal);
+				}
+				if (possible && search(position + 1, slots, deadline)) {
+					return true;
+				}
+				slots[h]++;
+				deal[card] = -1;
+			}
+			return false;
+		}
+
+		/**
+		 * Checks if a clause is satisfied or still has a card that has not been dealt
+		**/
+		private boolean canBeSatisfied(int clause) {
+			for (int c : constraints.getClauseCards(clause)) {
+				if (deal[c] == -1 || deal[c] == constraints.getClauseHolder(clause)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Walks between deals until the deadline, sampling once for every card dealt
+		**/
+		private void run(long deadline) {
+			int n = unresolved.length;
+			if (n < 2) {
+				while (System.nanoTime() < deadline && samples < (deals == null ? 1 : deals.length)) {
+					sample();
+				}
+				return;
+			}
+			int burnIn = 20 * n;
+			for (long step = 0; ; step++) {
+				if ((step & 63) == 0 && System.nanoTime() > deadline || deals != null && samples == deals.length) {
+					return;
+				}
+				int move = random.nextInt(8);
+				if (move == 0) {
+					redeal();
+				} else if (move < 3) {
+					rotate();
+				} else {
+					swap();
+				}
+				if (step >= burnIn && step % n == 0) {
+					sample();
+				}
+			}
+		}
+
+		private void sample() {
+			for (int c : unresolved) {
+				counts[c][deal[c]]++;
+			}
+			if (deals != null) {
+				deals[(int)samples] = deal.clone();
+			}
+			samples++;
+		}
+
+		/**
+		 * Swaps the holders of two random cards if the deal stays consistent
+		**/
+		private void swap() {
+			int a = unresolved[random.nextInt(unresolved.length)];
+			int b = unresolved[random.nextInt(unresolved.length)];
+			int holderOfA = deal[a];
+			int holderOfB = deal[b];
+			if (holderOfA == holderOfB || (constraints.getAllowedHolders(a) & (1 << holderOfB)) == 0
+					|| (constraints.getAllowedHolders(b) & (1 << holderOfA)) == 0) {
+				return;
+			}
+			deal[a] = holderOfB;
+			deal[b] = holderOfA;
+			if (!stillSatisfied(a, holderOfA) || !stillSatisfied(b, holderOfB)) {
+				deal[a] = holderOfA;
+				deal[b] = holderOfB;
+			}
+		}
+
+		/**
+		 * Moves three random cards with different holders one holder along if the deal stays consistent
+		**/
+		private void rotate() {
+			int a = unresolved[random.nextInt(unresolved.length)];
+			int b = unresolved[random.nextInt(unresolved.length)];
+			int c = unresolved[random.nextInt(unresolved.length)];
+			int holderOfA = deal[a];
+			int holderOfB = deal[b];
+			int holderOfC = deal[c];
+			if (holderOfA == holderOfB || holderOfB == holderOfC || holderOfA == holderOfC
+					|| (constraints.getAllowedHolders(a) & (1 << holderOfB)) == 0
+					|| (constraints.getAllowedHolders(b) & (1 << holderOfC)) == 0
+					|| (constraints.getAllowedHolders(c) & (1 << holderOfA)) == 0) {
+				return;
+			}
+			deal[a] = holderOfB;
+			deal[b] = holderOfC;
+			deal[c] = holderOfA;
+			if (!stillSatisfied(a, holderOfA) || !stillSatisfied(b, holderOfB) || !stillSatisfied(c, holderOfC)) {
+				deal[a] = holderOfA;
+				deal[b] = holderOfB;
+				deal[c] = holderOfC;
+			}
+		}
+
+		/**
+		 * Deals the cards of two or three random holders again, picking evenly from every way to split their
+		 * cards that keeps the deal consistent. This can move several cards at once when single swaps or
+		 * rotations would break a clause. The move is skipped if there are too many ways to go through.
+		**/
+		private void redeal() {
+			int size = Math.min(2 + random.nextInt(2), numberOfHolders);
+			int group = 0;
+			while (Integer.bitCount(group) < size) {
+				group |= 1 << random.nextInt(numberOfHolders);
+			}
+			//Only cards more than one holder in the group may have can move
+			int[] movable = new int[unresolved.length];
+			int numberOfMovable = 0;
+			int[] slots = new int[numberOfHolders];
+			for (int c : unresolved) {
+				if ((group & (1 << deal[c])) != 0 && Integer.bitCount(constraints.getAllowedHolders(c) & group) > 1) {
+					movable[numberOfMovable++] = c;
+					slots[deal[c]]++;
+				}
+			}
+			int[] original = new int[numberOfMovable];
+			for (int i = 0; i < numberOfMovable; i++) {
+				original[i] = deal[movable[i]];
+				deal[movable[i]] = -1;
+			}
+			Redeal redeal = new Redeal(movable, numberOfMovable, group, slots);
+			int[] result = redeal.search(0) ? redeal.chosen : original;
+			for (int i = 0; i < numberOfMovable; i++) {
+				deal[movable[i]] = result[i];
+			}
+		}
+
+		/**
+		 * Goes through every way to deal a group of cards to a group of holders and picks one evenly
+		**/
+		private class Redeal {
+			private final int[] movable;
+			private final int numberOfMovable;
+			private final int group;
+			private final int[] slots;
+			private final int[] chosen;
+			private int found = 0;
+			private int steps = 0;
+
+			private Redeal(int[] movable, int numberOfMovable, int group, int[] slots) {
+				this.movable = movable;
+				this.numberOfMovable = numberOfMovable;
+				this.group = group;
+				this.slots = slots;
+				chosen = new int[numberOfMovable];
+			}
+
+			/**
+			 * Deals the cards from a position on
+			 * @return finished False if there were too many ways to go through
+			**/
+			private boolean search(int position) {
+				if (++steps > MAX_REDEAL_STEPS) {
+					return false;
+				}
+				if (position == numberOfMovable) {
+					for (int holders = group; holders != 0; holders &= holders - 1) {
+						if (!allSatisfied(Integer.numberOfTrailingZeros(holders))) {
+							return true;
+						}
+					}
+					found++;
+					if (random.nextInt(found) == 0) {
+						for (int i = 0; i < numberOfMovable; i++) {
+							chosen[i] = deal[movable[i]];
+						}
+					}
+					return true;
+				}
+				int card = movable[position];
+				for (int holders = constraints.getAllowedHolders(card) & group; holders != 0; holders &= holders - 1) {
+					int h = Integer.numberOfTrailingZeros(holders);
+					if (slots[h] == 0) {
+						continue;
+					}
+					slots[h]--;
+					deal[card] = h;
+					boolean possible = true;
+					for (int i = 0; i < clausesOfCard[card].length && possible; i++) {
+						possible = canBeSatisfied(clausesOfCard[card][i]);
+					}
+					boolean finished = !possible || search(position + 1);
+					slots[h]++;
+					deal[card] = -1;
+					if (!finished) {
+						return false;
+					}
+				}
+				return true;
+			}
+		}
+
+		/**
+		 * Checks every clause of a holder against the current deal
+		**/
+		private boolean allSatisfied(int holder) {
+			for (int clause : clausesOfHolder[holder]) {
+				if (!constraints.isSatisfied(clause, deal)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Checks the clauses of a holder that just gave a card away
+		**/
+		private boolean stillSatisfied(int card, int formerHolder) {
+			for (int clause : clausesOfCard[card]) {
+				if (constraints.getClauseHolder(clause) == formerHolder && !constraints.isSatisfied(clause, deal)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Calculates the exact chance of every card being in every holder's hand by counting all the deals that are
+ * consistent with a game's constraints. Every consistent deal is equally likely.
+ * Cards are given out one at a time. Deals that reach the same number of open slots for each holder and the
+ * same set of unsatisfied clauses are merged and counted together, and deals that can no longer fill every
+ * slot or satisfy every clause are dropped as soon as that is certain. The counts are taken in a pass forward
+ * through the cards and a pass backward so the chance of every card and holder comes out of the same two passes.
+**/
+public class ProbabilityEngine {
+	//Variables
+	private static final int BITS_PER_HOLDER = 5; //Bits used to store the open slots of a holder in a state
+	private static final int MAX_SLOTS = (1 << BITS_PER_HOLDER) - 1; //The most open slots a holder can have
+	private static final int MAX_HOLDERS = 64 / BITS_PER_HOLDER; //The most holders that fit in a state
+	private static final int MAX_CLAUSES = 64; //The most clauses that fit in a state
+	private static final int MAX_STATES = 1 << 20; //The most states kept for all the steps before giving up
+	private final DealConstraints constraints;
+	private final int numberOfHolders;
+	private final int[] order; //The card given out at each step
+	private final int[] allowed; //Mask of the holders that may get the card at each step
+	private final long[][] satisfies; //Clauses satisfied by giving the card at each step to each holder
+	private final long[] expiring; //Clauses whose last card is given out at each step
+	private final int[][] remainingAllowed; //How many cards from each step on each holder may get
+	private final long startSlots; //The open slots of every holder before any card is given out
+	private final long startClauses; //Every clause, none are satisfied before any card is given out
+
+	//Methods
+
+	/**
+	 * Prepares to count the deals consistent with a set of constraints
+	 * @param constraints The constraints from a game
+	 * @throws IllegalStateException If there are too many holders, open slots, or clauses to count exactly
+	**/
+	public ProbabilityEngine(DealConstraints constraints) {
+		this.constraints = constraints;
+		numberOfHolders = constraints.getNumberOfHolders();
+		if (numberOfHolders > MAX_HOLDERS) {
+			throw new IllegalStateException("Too many players to count deals exactly");
+		}
+		//Give out the cards with the fewest possible holders first so the number of states stays small
+		int[] unresolved = constraints.getUnresolvedCards();
+		Integer[] sorted = new Integer[unresolved.length];
+		for (int i = 0; i < unresolved.length; i++) {
+			sorted[i] = unresolved[i];
+		}
+		Arrays.sort(sorted, (a, b) -> Integer.bitCount(constraints.getAllowedHolders(a)) - Integer.bitCount(constraints.getAllowedHolders(b)));
+		int n = sorted.length;
+		order = new int[n];
+		allowed = new int[n];
+		int[] position = new int[constraints.getCards().getNumberOfCards()];
+		for (int i = 0; i < n; i++) {
+			order[i] = sorted[i];
+			allowed[i] = constraints.getAllowedHolders(order[i]);
+			position[order[i]] = i;
+		}
+		//Index the clauses that are not implied by a smaller clause of the same holder
+		ArrayList<Integer> clauses = new ArrayList<Integer>();
+		for (int i = 0; i < constraints.getNumberOfClauses(); i++) {
+			boolean redundant = false;
+			for (int j = 0; j < constraints.getNumberOfClauses() && !redundant; j++) {
+				redundant = j != i && implies(j, i) && (!implies(i, j) || j < i);
+			}
+			if (!redundant) {
+				clauses.add(i);
+			}
+		}
+		if (clauses.size() > MAX_CLAUSES) {
+			throw new IllegalStateException("Too many open suggestions to count deals exactly");
+		}
+		satisfies = new long[n][numberOfHolders];
+		expiring = new long[n];
+		long allClauses = 0;
+		for (int bit = 0; bit < clauses.size(); bit++) {
+			int clause = clauses.get(bit);
+			int holder = constraints.getClauseHolder(clause);
+			int last = 0;
+			for (int c : constraints.getClauseCards(clause)) {
+				satisfies[position[c]][holder] |= 1L << bit;
+				last = Math.max(last, position[c]);
+			}
+			expiring[last] |= 1L << bit;
+			allClauses |= 1L << bit;
+		}
+		startClauses = allClauses;
+		remainingAllowed = new int[n + 1][numberOfHolders];
+		for (int i = n - 1; i >= 0; i--) {
+			for (int h = 0; h < numberOfHolders; h++) {
+				remainingAllowed[i][h] = remainingAllowed[i + 1][h] + ((allowed[i] >> h) & 1);
+			}
+		}
+		long slots = 0;
+		for (int h = 0; h < numberOfHolders; h++) {
+			int open = constraints.getOpenSlots(h);
+			if (open > MAX_SLOTS) {
+				throw new IllegalStateException("Too many cards in one hand to count deals exactly");
+			}
+			slots |= (long)Math.max(open, 0) << (h * BITS_PER_HOLDER);
+		}
+		startSlots = slots;
+	}
+
+	/**
+	 * Whether satisfying one clause always satisfies another
+	 * @param clause The index of the first clause
+	 * @param other The index of the other clause
+	 * @return implies True if both belong to the same holder and the first clause's cards are all in the other
+	**/
+	private boolean implies(int clause, int other) {
+		if (constraints.getClauseHolder(clause) != constraints.getClauseHolder(other)) {
+			return false;
+		}
+		for (int c : constraints.getClauseCards(clause)) {
+			boolean found = false;
+			for (int o : constraints.getClauseCards(other)) {
+				found |= o == c;
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the open slots after giving out the card at a step, if the deal can still be completed
+	 * @param slots The open slots of every holder before the step
+	 * @param step The step
+	 * @param holder The holder that gets the card
+	 * @return slots The open slots after the step, or -1 if the deal can not be completed
+	**/
+	private long nextSlots(long slots, int step, int holder) {
+		int shift = holder * BITS_PER_HOLDER;
+		if (((slots >>> shift) & MAX_SLOTS) == 0) {
+			return -1;
+		}
+		long next = slots - (1L << shift);
+		for (int h = 0; h < numberOfHolders; h++) {
+			if (((next >>> (h * BITS_PER_HOLDER)) & MAX_SLOTS) > remainingAllowed[step + 1][h]) {
+				return -1;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Counts every consistent deal and gives the chance of each card being with each holder
+	 * @return probabilities The exact probabilities, all 0 if no deal is consistent
+	 * @throws IllegalStateException If there are too many different states to count, as with large decks and many players
+	**/
+	public CardProbabilities calculate() {
+		int numberOfCards = constraints.getCards().getNumberOfCards();
+		double[][] probabilities = new double[numberOfCards][numberOfHolders];
+		double[][] errors = new double[numberOfCards][numberOfHolders];
+		if (!constraints.isConsistent()) {
+			return new CardProbabilities(constraints.getCards(), constraints.getHolderNames(), probabilities, errors, 0);
+		}
+		int n = order.length;
+		//Count the ways to reach each state
+		StateTable[] steps = new StateTable[n + 1];
+		steps[0] = new StateTable();
+		steps[0].add(startSlots, startClauses, 1);
+		long totalStates = 1;
+		for (int i = 0; i < n; i++) {
+			steps[i + 1] = giveOut(steps[i], i, totalStates);
+			totalStates += steps[i + 1].size;
+		}
+		//Count the ways to finish from each state, every state left after the last card is a complete deal
+		StateTable last = steps[n];
+		for (int s = 0; s < last.slots.length; s++) {
+			last.backward[s] = 1;
+		}
+		for (int i = n - 1; i >= 0; i--) {
+			StateTable current = steps[i];
+			StateTable next = steps[i + 1];
+			double[] cardProbabilities = probabilities[order[i]];
+			for (int s = 0; s < current.slots.length; s++) {
+				if (current.slots[s] == -1) {
+					continue;
+				}
+				double ways = 0;
+				for (int holders = allowed[i]; holders != 0; holders &= holders - 1) {
+					int h = Integer.numberOfTrailingZeros(holders);
+					long nextSlots = nextSlots(current.slots[s], i, h);
+					if (nextSlots == -1) {
+						continue;
+					}
+					int found = next.find(nextSlots, current.clauses[s] & ~satisfies[i][h]);
+					if (found != -1) {
+						ways += next.backward[found];
+						cardProbabilities[h] += current.forward[s] * next.backward[found];
+					}
+				}
+				current.backward[s] = ways;
+			}
+			steps[i + 1] = null;
+		}
+		double numberOfDeals = steps[0].backward[steps[0].find(startSlots, startClauses)];
+		for (int i = 0; i < n; i++) {
+			for (int h = 0; h < numberOfHolders; h++) {
+				probabilities[order[i]][h] = numberOfDeals == 0 ? 0 : probabilities[order[i]][h] / numberOfDeals;
+			}
+		}
+		for (int c = 0; c < numberOfCards; c++) {
+			if (constraints.getOwner(c) != -1) {
+				probabilities[c][constraints.getOwner(c)] = 1;
+			}
+		}
+		return new CardProbabilities(constraints.getCards(), constraints.getHolderNames(), probabilities, errors, numberOfDeals);
+	}
+
+	/**
+	 * Counts every consistent deal without working out where each card is, which only needs the forward pass
+	 * and keeps the states of one step at a time
+	 * @return numberOfDeals The number of consistent deals, 0 if there are none
+	 * @throws IllegalStateException If there are too many different states to count
+	**/
+	public double countDeals() {
+		if (!constraints.isConsistent()) {
+			return 0;
+		}
+		StateTable current = new StateTable();
+		current.add(startSlots, startClauses, 1);
+		long totalStates = 1;
+		for (int i = 0; i < order.length; i++) {
+			current = giveOut(current, i, totalStates);
+			totalStates += current.size;
+		}
+		double numberOfDeals = 0;
+		for (int s = 0; s < current.slots.length; s++) {
+			if (current.slots[s] != -1) {
+				numberOfDeals += current.forward[s];
+			}
+		}
+		return numberOfDeals;
+	}
+
+	/**
+	 * Gives out the card at a step in every way it can go from every state, merging the deals that reach the same state
+	 * @param current The states before the step with the ways to reach them
+	 * @param step The step
+	 * @param totalStates How many states were kept for the steps so far
+	 * @return next The states after the step with the ways to reach them
+	 * @throws IllegalStateException If there are too many states to keep
+	**/
+	private StateTable giveOut(StateTable current, int step, long totalStates) {
+		StateTable next = new StateTable();
+		for (int s = 0; s < current.slots.length; s++) {
+			if (current.slots[s] == -1) {
+				continue;
+			}
+			for (int holders = allowed[step]; holders != 0; holders &= holders - 1) {
+				int h = Integer.numberOfTrailingZeros(holders);
+				long nextSlots = nextSlots(current.slots[s], step, h);
+				long nextClauses = current.clauses[s] & ~satisfies[step][h];
+				if (nextSlots != -1 && (nextClauses & expiring[step]) == 0) {
+					next.add(nextSlots, nextClauses, current.forward[s]);
+				}
+			}
+			if (totalStates + next.size > MAX_STATES) {
+				throw new IllegalStateException("Too many possible deals to count exactly");
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Hash table from a state (open slots and unsatisfied clauses) to the number of ways to reach the state
+	 * and the number of ways to finish a deal from it. Open addressing keeps the table in a few flat arrays.
+	**/
+	private static class StateTable {
+		private long[] slots = new long[64]; //Open slots of each state, -1 marks an empty entry
+		private long[] clauses = new long[64]; //Unsatisfied clauses of each state
+		private double[] forward = new double[64]; //Ways to reach each state
+		private double[] backward = new double[64]; //Ways to finish a deal from each state
+		private int size = 0;
+
+		private StateTable() {
+			Arrays.fill(slots, -1);
+		}
+
+		private static int hash(long slots, long clauses) {
+			long h = slots * 0x9E3779B97F4A7C15L + clauses * 0xC2B2AE3D27D4EB4FL;
+			return (int)(h ^ (h >>> 29) ^ (h >>> 47));
+		}
+
+		/**
+		 * Gives the entry of a state
+		 * @return entry The index of the state in the arrays or -1 if it is not in the table
+		**/
+		private int find(long stateSlots, long stateClauses) {
+			int mask = slots.length - 1;
+			for (int i = hash(stateSlots, stateClauses) & mask; slots[i] != -1; i = (i + 1) & mask) {
+				if (slots[i] == stateSlots && clauses[i] == stateClauses) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Adds ways to reach a state, adding the state if it is new
+		**/
+		private void add(long stateSlots, long stateClauses, double ways) {
+			if (2 * (size + 1) > slots.length) {
+				grow();
+			}
+			int mask = slots.length - 1;
+			int i = hash(stateSlots, stateClauses) & mask;
+			while (slots[i] != -1 && (slots[i] != stateSlots || clauses[i] != stateClauses)) {
+				i = (i + 1) & mask;
+			}
+			if (slots[i] == -1) {
+				slots[i] = stateSlots;
+				clauses[i] = stateClauses;
+				size++;
+			}
+			forward[i] += ways;
+		}
+
+		private void grow() {
+			long[] oldSlots = slots;
+			long[] oldClauses = clauses;
+			double[] oldForward = forward;
+			slots = new long[oldSlots.length * 2];
+			clauses = new long[oldSlots.length * 2];
+			forward = new double[oldSlots.length * 2];
+			backward = new double[oldSlots.length * 2];
+			Arrays.fill(slots, -1);
+			size = 0;
+			for (int i = 0; i < oldSlots.length; i++) {
+				if (oldSlots[i] != -1) {
+					add(oldSlots[i], oldClauses[i], oldForward[i]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import src.logic.ClueLogic;
+import src.logic.Player;
+import src.logic.card.*;
+
+/**
+ * Canonical copy of everything the analysis depends on in a game: each holder's hand size, known cards,
+ * cards they can not have, and open suggestions, for the players in turn order followed by the envelope.
+ * Two games that have deduced the same things get equal keys, however they got there. The order the
+ * suggestions were made in does not matter, and the game already leaves out a suggestion when the same holder
+ * has another suggestion with a subset of its cards.
+ * Keys from games with different decks are never equal.
+**/
+public final class StateKey {
+	//Variables
+	private final CardList cards; //The deck of the game
+	private final int[] state; //The canonical encoding of the deductions
+	private final long hash; //64 bit hash of the encoding
+
+	//Methods
+
+	/**
+	 * Takes the key of a game's current state
+	 * @param game The game
+	**/
+	public StateKey(ClueLogic game) {
+		cards = game.getCards();
+		ArrayList<Player> holders = new ArrayList<Player>(game.getPlayers());
+		holders.add(game.getSolution());
+		int[] encoding = new int[64];
+		int length = 0;
+		for (Player holder : holders) {
+			CardSet[] clauses = holder.getSuggestionMasks();
+			int[][] sortedClauses = new int[clauses.length][];
+			for (int i = 0; i < clauses.length; i++) {
+				sortedClauses[i] = toArray(clauses[i]);
+			}
+			Arrays.sort(sortedClauses, Arrays::compare);
+			int[] known = toArray(holder.getKnownMask());
+			int[] notPossible = toArray(holder.getNotPossibleMask());
+			int needed = length + 4 + known.length + notPossible.length;
+			for (int[] clause : sortedClauses) {
+				needed += 1 + clause.length;
+			}
+			if (needed > encoding.length) {
+				encoding = Arrays.copyOf(encoding, Math.max(needed, 2 * encoding.length));
+			}
+			encoding[length++] = holder.getNumberOfCards();
+			length = append(encoding, length, known);
+			length = append(encoding, length, notPossible);
+			encoding[length++] = sortedClauses.length;
+			for (int[] clause : sortedClauses) {
+				length = append(encoding, length, clause);
+			}
+		}
+		state = Arrays.copyOf(encoding, length);
+		hash = hash(state);
+	}
+
+	private static int[] toArray(CardSet set) {
+		int[] array = new int[set.size()];
+		int i = 0;
+		for (int c = set.nextCard(0); c >= 0; c = set.nextCard(c + 1)) {
+			array[i++] = c;
+		}
+		return array;
+	}
+
+	/**
+	 * Adds a list of numbers to the encoding, preceded by how many there are
+	 * @param encoding The encoding
+	 * @param length The length of the encoding so far
+	 * @param values The numbers
+	 * @return length The new length of the encoding
+	**/
+	private static int append(int[] encoding, int length, int[] values) {
+		encoding[length++] = values.length;
+		System.arraycopy(values, 0, encoding, length, values.length);
+		return length + values.length;
+	}
+
+	/**
+	 * Mixes every number of the encoding into 64 bits
+	 * @param state The encoding
+	 * @return hash The hash
+	**/
+	private static long hash(int[] state) {
+		long hash = 0x9E3779B97F4A7C15L ^ state.length;
+		for (int value : state) {
+			hash = (hash ^ value) * 0xBF58476D1CE4E5B9L;
+			hash ^= hash >>> 31;
+		}
+		hash *= 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 29);
+	}
+
+	/**
+	 * Gives the 64 bit hash of the state, which is the same for every game that has deduced the same things
+	 * @return hash The hash
+	**/
+	public long getHash() {
+		return hash;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int)(hash ^ (hash >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof StateKey)) {
+			return false;
+		}
+		StateKey otherKey = (StateKey)other;
+		return hash == otherKey.hash && cards == otherKey.cards && Arrays.equals(state, otherKey.state);
+	}
+}
@@ -0,0 +1,252 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import src.logic.*;
+import src.logic.card.*;
+import src.logic.metrics.EngineMetrics;
+
+/**
+ * Works out what the solver would learn from every way a suggestion could turn out before it is made. Each player
+ * who could disprove it is a branch, and when the user makes the suggestion so is each card they could be shown.
+ * Every branch plays its moves on its own copy of the game, restored from one snapshot, so the game itself is not
+ * touched and nothing is undone. The branches are played on every core at once and put together into a tree of
+ * outcomes, with the chance of each outcome counted from the deals consistent with it.
+**/
+public class SuggestionExplorer {
+	//Variables
+	private final GameSnapshot snapshot; //The game the branches are played from
+	private final CardList cards;
+	private final ArrayList<String> holderNames; //The players in turn order followed by the envelope
+	private final DealConstraints constraints; //What is known before the suggestion, for counting deals
+	private final Outcome start; //What is known before the suggestion
+
+	/**
+	 * What the solver knows after the moves of a branch, and how many deals are consistent with the branch.
+	 * The deals are counted from what was known before the branch and the branch itself rather than from what
+	 * the solver deduced, since the solver does not notice when a branch contradicts what it knows.
+	 * A player with more than one of the suggested cards is taken to show each of them equally often, so for
+	 * a card being shown each deal also counts as the share of the times the card would be the one shown.
+	**/
+	private static class Outcome {
+		private final CardSet[] known; //The cards each holder is known to have
+		private final CardSet[] notPossible; //The cards each holder can not have
+		private final boolean possible; //False if no deal is consistent with the branch
+		private final double numberOfDeals; //Deals consistent with the branch, NaN if there are too many to count
+		private final double shownDeals; //Deals weighted by the chance the card is the one shown, NaN if no card is shown
+		private final int envelopesLeft; //Envelopes that are still possible
+
+		private Outcome(ClueLogic game, DealConstraints constraints, double shownDeals) {
+			ArrayList<Player> holders = new ArrayList<Player>(game.getPlayers());
+			holders.add(game.getSolution());
+			known = new CardSet[holders.size()];
+			notPossible = new CardSet[holders.size()];
+			for (int h = 0; h < holders.size(); h++) {
+				known[h] = holders.get(h).getKnownMask();
+				notPossible[h] = holders.get(h).getNotPossibleMask();
+			}
+			double deals;
+			try {
+				deals = new ProbabilityEngine(constraints).countDeals();
+			} catch (IllegalStateException e) { //Too many to count
+				deals = Double.NaN;
+			}
+			numberOfDeals = deals;
+			this.shownDeals = shownDeals;
+			possible = constraints.isConsistent() && deals != 0;
+			CardList cards = game.getCards();
+			CardSet ruledOut = notPossible[holders.size() - 1];
+			envelopesLeft = countLeft(cards.getSuspects(), ruledOut) * countLeft(cards.getWeapons(), ruledOut)
+				* countLeft(cards.getRooms(), ruledOut);
+		}
+
+		private static int countLeft(ArrayList<Card> type, CardSet ruledOut) {
+			int left = 0;
+			for (Card c : type) {
+				if (!ruledOut.contains(c)) {
+					left++;
+				}
+			}
+			return left;
+		}
+	}
+
+	//Methods
+
+	/**
+	 * Prepares to explore suggestions from the current state of a game. Later moves in the game are not seen.
+	 * @param game The game
+	**/
+	public SuggestionExplorer(ClueLogic game) {
+		snapshot = game.takeSnapshot();
+		cards = game.getCards();
+		holderNames = new ArrayList<String>();
+		for (Player p : game.getPlayers()) {
+			holderNames.add(p.getName());
+		}
+		holderNames.add("Envelope");
+		constraints = new DealConstraints(game);
+		start = new Outcome(game, constraints, Double.NaN);
+	}
+
+	/**
+	 * Plays every way a suggestion could turn out and gives what each one teaches
+	 * @param suggestingPlayer The index of the player making the suggestion
+	 * @param suggestion The suggested cards
+	 * @return outcomes The suggestion, with who could disprove it under it, with the cards the user could be shown under them
+	 * @throws IllegalArgumentException If there is no player with the index
+	**/
+	public SuggestionOutcome explore(int suggestingPlayer, Suggestion suggestion) {
+		int numberOfPlayers = holderNames.size() - 1;
+		if (suggestingPlayer < 0 || suggestingPlayer >= numberOfPlayers) {
+			throw new IllegalArgumentException(String.format("There is no player %d", suggestingPlayer));
+		}
+		Card[] suggested = new Card[] {suggestion.getRoom(), suggestion.getSuspect(), suggestion.getWeapon()};
+		//Every player after the suggesting one in turn order may disprove it, the suggesting one means nobody did
+		ArrayList<int[]> branches = new ArrayList<int[]>(); //The resolving player and the card shown, -1 if none is seen
+		for (int i = 1; i <= numberOfPlayers; i++) {
+			int resolvingPlayer = (suggestingPlayer + i) % numberOfPlayers;
+			branches.add(new int[] {resolvingPlayer, -1});
+			if (suggestingPlayer == 0 && resolvingPlayer != 0) { //The user sees the card
+				for (Card c : suggested) {
+					branches.add(new int[] {resolvingPlayer, c.getIndex()});
+				}
+			}
+		}
+		Outcome[] outcomes = new Outcome[branches.size()];
+		ForkJoinPool.commonPool().invoke(new BranchTask(suggestingPlayer, suggestion, branches, outcomes, 0, outcomes.length));
+		//Put the branches together, each card shown under the player who showed it
+		SuggestionOutcome root = new SuggestionOutcome(String.format("%s suggests %s", holderNames.get(suggestingPlayer), suggestion),
+			start.numberOfDeals, 1, new ArrayList<String>(), start.envelopesLeft);
+		SuggestionOutcome resolved = null;
+		Outcome resolvedOutcome = null;
+		for (int b = 0; b < branches.size(); b++) {
+			Outcome outcome = outcomes[b];
+			int resolvingPlayer = branches.get(b)[0];
+			int shown = branches.get(b)[1];
+			if (shown == -1) {
+				resolvedOutcome = outcome;
+				resolved = null;
+				if (outcome.possible) {
+					String description = resolvingPlayer == suggestingPlayer ? "Nobody disproves it"
+						: String.format("%s disproves it", holderNames.get(resolvingPlayer));
+					resolved = new SuggestionOutcome(description, outcome.numberOfDeals, outcome.numberOfDeals / start.numberOfDeals,
+						learned(start, outcome), outcome.envelopesLeft);
+					root.addOutcome(resolved);
+				}
+			} else if (resolved != null && outcome.possible) {
+				String description = String.format("%s shows %s", holderNames.get(resolvingPlayer), cards.getCard(shown).getDescription());
+				resolved.addOutcome(new SuggestionOutcome(description, outcome.numberOfDeals,
+					outcome.shownDeals / resolvedOutcome.numberOfDeals, learned(resolvedOutcome, outcome), outcome.envelopesLeft));
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Lists the deductions a branch adds to what was known before it
+	 * @param before What was known before the branch
+	 * @param after What is known after it
+	 * @return learned The deductions, like "Carol has Knife"
+	**/
+	private ArrayList<String> learned(Outcome before, Outcome after) {
+		ArrayList<String> learned = new ArrayList<String>();
+		for (int h = 0; h < holderNames.size(); h++) {
+			addNew(learned, holderNames.get(h) + " has ", before.known[h], after.known[h]);
+		}
+		for (int h = 0; h < holderNames.size(); h++) {
+			addNew(learned, holderNames.get(h) + " does not have ", before.notPossible[h], after.notPossible[h]);
+		}
+		return learned;
+	}
+
+	private void addNew(ArrayList<String> learned, String fact, CardSet before, CardSet after) {
+		for (int c = after.nextCard(0); c >= 0; c = after.nextCard(c + 1)) {
+			if (!before.contains(c)) {
+				learned.add(fact + cards.getCard(c).getDescription());
+			}
+		}
+	}
+
+	/**
+	 * Splits the branches in half until each task plays one branch
+	**/
+	@SuppressWarnings("serial") //Tasks are never serialized
+	private class BranchTask extends RecursiveAction {
+		private final int suggestingPlayer;
+		private final Suggestion suggestion;
+		private final ArrayList<int[]> branches;
+		private final Outcome[] outcomes;
+		private final int first;
+		private final int last;
+
+		private BranchTask(int suggestingPlayer, Suggestion suggestion, ArrayList<int[]> branches, Outcome[] outcomes, int first, int last) {
+			this.suggestingPlayer = suggestingPlayer;
+			this.suggestion = suggestion;
+			this.branches = branches;
+			this.outcomes = outcomes;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first > 1) {
+				int middle = (first + last) / 2;
+				invokeAll(new BranchTask(suggestingPlayer, suggestion, branches, outcomes, first, middle),
+					new BranchTask(suggestingPlayer, suggestion, branches, outcomes, middle, last));
+			} else {
+				//The copy records its moves in metrics of its own so they do not count as moves of the game
+				ClueLogic copy = snapshot.restore(new EngineMetrics());
+				int resolvingPlayer = branches.get(first)[0];
+				int shown = branches.get(first)[1];
+				copy.doMove(Move.suggestion(suggestingPlayer, suggestion, resolvingPlayer));
+				if (shown != -1) {
+					copy.doMove(Move.addCard(cards.getCard(shown), copy.getPlayers().get(resolvingPlayer)));
+				}
+				int[] suggestedCards = new int[] {suggestion.getRoom().getIndex(), suggestion.getSuspect().getIndex(),
+					suggestion.getWeapon().getIndex()};
+				DealConstraints branch = constraints.withSuggestion(suggestingPlayer, suggestedCards, resolvingPlayer, shown);
+				double shownDeals = shown == -1 ? Double.NaN : countShown(branch, resolvingPlayer, suggestedCards, shown);
+				outcomes[first] = new Outcome(copy, branch, shownDeals);
+			}
+		}
+	}
+
+	/**
+	 * Counts the deals in which a player shows a card, each weighted by the chance the player shows that card
+	 * rather than another suggested card they have, taking each of the cards they have to be shown equally often
+	 * @param branch The constraints of the deals in which the player has the card and disproves the suggestion
+	 * @param resolvingPlayer The index of the player
+	 * @param suggestedCards The indices of the suggested cards
+	 * @param shown The index of the card shown
+	 * @return shownDeals The weighted number of deals, NaN if there are too many to count
+	**/
+	private static double countShown(DealConstraints branch, int resolvingPlayer, int[] suggestedCards, int shown) {
+		int[] others = new int[suggestedCards.length - 1];
+		int numberOfOthers = 0;
+		for (int c : suggestedCards) {
+			if (c != shown) {
+				others[numberOfOthers++] = c;
+			}
+		}
+		//Count the deals for each set of the other cards the player may have with the card shown
+		double shownDeals = 0;
+		for (int held = 0; held < 1 << others.length; held++) {
+			boolean[] has = new boolean[others.length];
+			for (int i = 0; i < others.length; i++) {
+				has[i] = (held & (1 << i)) != 0;
+			}
+			DealConstraints holding = branch.withHolding(resolvingPlayer, others, has);
+			if (holding.isConsistent()) {
+				try {
+					shownDeals += new ProbabilityEngine(holding).countDeals() / (1 + Integer.bitCount(held));
+				} catch (IllegalStateException e) { //Too many to count
+					return Double.NaN;
+				}
+			}
+		}
+		return shownDeals;
+	}
+}
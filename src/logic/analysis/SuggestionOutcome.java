@@ -0,0 +1,123 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+
+/**
+ * One way a suggestion could turn out and what the solver would learn from it. The outcomes form a tree:
+ * the suggestion itself, then who disproves it, then, when the user made the suggestion, the card they are shown.
+**/
+public class SuggestionOutcome {
+	//Variables
+	private final String description; //What happens, like "Carol shows Knife"
+	private final double numberOfDeals; //Deals consistent with the outcome, NaN if there are too many to count
+	private final double chance; //Chance of the outcome given its parent's, NaN if the deals could not be counted
+	private final ArrayList<String> learned; //The deductions the outcome adds, like "Carol has Knife"
+	private final int envelopesLeft; //How many envelopes are still possible after the outcome
+	private final ArrayList<SuggestionOutcome> outcomes; //The ways the outcome could go on
+
+	//Methods
+
+	/**
+	 * Creates an outcome without any outcomes under it
+	 * @param description What happens
+	 * @param numberOfDeals The number of deals consistent with the outcome, NaN if there are too many to count
+	 * @param chance The chance of the outcome given its parent's, NaN if it is not known
+	 * @param learned The deductions the outcome adds
+	 * @param envelopesLeft How many envelopes are still possible after the outcome
+	**/
+	SuggestionOutcome(String description, double numberOfDeals, double chance, ArrayList<String> learned, int envelopesLeft) {
+		this.description = description;
+		this.numberOfDeals = numberOfDeals;
+		this.chance = chance;
+		this.learned = learned;
+		this.envelopesLeft = envelopesLeft;
+		outcomes = new ArrayList<SuggestionOutcome>();
+	}
+
+	/**
+	 * Adds an outcome under this one while the tree is built
+	 * @param outcome The outcome
+	**/
+	void addOutcome(SuggestionOutcome outcome) {
+		outcomes.add(outcome);
+	}
+
+	/**
+	 * Gives what happens
+	 * @return description The description of the outcome
+	**/
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Gives how many deals are consistent with what is known after the outcome
+	 * @return numberOfDeals The number of deals, NaN if there are too many to count
+	**/
+	public double getNumberOfDeals() {
+		return numberOfDeals;
+	}
+
+	/**
+	 * Gives the chance of the outcome, treating every consistent deal as equally likely. For who disproves the
+	 * suggestion it is the chance they are the first player with one of the cards. For a card being shown it is
+	 * the chance they show the card, given they disprove the suggestion, taking a player with more than one of
+	 * the cards to show each of them equally often, so the chances of the cards they could show add up to 1.
+	 * @return chance The chance from 0 to 1, NaN if there are too many deals to count
+	**/
+	public double getChance() {
+		return chance;
+	}
+
+	/**
+	 * Gives the deductions the outcome adds to what is already known
+	 * @return learned The deductions, like "Carol has Knife" or "Bob does not have Hall"
+	**/
+	public ArrayList<String> getLearned() {
+		return new ArrayList<String>(learned);
+	}
+
+	/**
+	 * Gives how many combinations of a room, a suspect, and a weapon could still be in the envelope after the outcome
+	 * @return envelopesLeft The number of envelopes
+	**/
+	public int getEnvelopesLeft() {
+		return envelopesLeft;
+	}
+
+	/**
+	 * Gives the ways the outcome could go on, leaving out the ones no deal is consistent with
+	 * @return outcomes The outcomes, empty for the last step
+	**/
+	public ArrayList<SuggestionOutcome> getOutcomes() {
+		return new ArrayList<SuggestionOutcome>(outcomes);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder tree = new StringBuilder();
+		append(tree, "");
+		return tree.toString();
+	}
+
+	/**
+	 * Writes the outcome and the outcomes under it, each level indented further
+	 * @param tree Where to write
+	 * @param indent The indent of this outcome
+	**/
+	private void append(StringBuilder tree, String indent) {
+		tree.append(indent).append(description);
+		if (!Double.isNaN(chance)) {
+			tree.append(String.format(" (%.1f%%, %d envelopes left)", 100 * chance, envelopesLeft));
+		} else {
+			tree.append(String.format(" (%d envelopes left)", envelopesLeft));
+		}
+		tree.append('\n');
+		for (String fact : learned) {
+			tree.append(indent).append("  + ").append(fact).append('\n');
+		}
+		for (SuggestionOutcome outcome : outcomes) {
+			outcome.append(tree, indent + "    ");
+		}
+	}
+}
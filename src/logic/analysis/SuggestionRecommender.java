@@ -0,0 +1,210 @@
+package src.logic.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import src.logic.Suggestion;
+import src.logic.card.*;
+
+/**
+ * Scores every suggestion a player could make by how much it is expected to reveal about the envelope.
+ * The score is the drop in entropy of the envelope's three cards, averaged over the ways the suggestion could
+ * be answered in a set of sampled deals. Each answer is who disproves it, going around the table from the
+ * suggesting player like makeSuggestion does, and which card is shown if the suggesting player gets to see it.
+ * The work that is the same for every suggestion, like where each card is in each deal relative to the suggesting
+ * player, is done once, and the suggestions are then scored in parallel on a fork-join pool.
+**/
+public class SuggestionRecommender {
+	//Variables
+	private final ArrayList<Card> rooms;
+	private final ArrayList<Card> suspects;
+	private final ArrayList<Card> weapons;
+	private final int numberOfPlayers; //Also the distance given to cards nobody else can show
+	private final boolean seesCard; //Whether the suggesting player is shown the card that disproves the suggestion
+	private final byte[][] distances; //How many seats after the suggesting player each card's holder sits, indexed by deal then card
+	private final int[] envelopes; //The envelope of each deal, numbered from 0
+	private final int numberOfEnvelopes; //How many different envelopes the deals have
+	private final double priorEntropy; //Uncertainty about the envelope before the suggestion in bits
+	private static final int CANDIDATES_PER_TASK = 8; //Suggestions scored by one task without splitting it
+
+	//Methods
+
+	/**
+	 * Prepares to score suggestions against a set of sampled deals
+	 * @param constraints The constraints the deals were drawn from
+	 * @param deals The holder of each card in each deal, indexed by deal then card index
+	 * @param suggestingPlayer The index of the player making the suggestion
+	 * @param seesCard Whether the suggesting player will see the card that disproves the suggestion
+	**/
+	public SuggestionRecommender(DealConstraints constraints, int[][] deals, int suggestingPlayer, boolean seesCard) {
+		CardList cards = constraints.getCards();
+		rooms = cards.getRooms();
+		suspects = cards.getSuspects();
+		weapons = cards.getWeapons();
+		numberOfPlayers = constraints.getEnvelope();
+		this.seesCard = seesCard;
+		distances = new byte[deals.length][cards.getNumberOfCards()];
+		envelopes = new int[deals.length];
+		HashMap<Long, Integer> envelopeNumbers = new HashMap<Long, Integer>();
+		for (int d = 0; d < deals.length; d++) {
+			long envelope = 0; //The envelope's cards as digits of a number in base numberOfCards
+			for (int c = 0; c < deals[d].length; c++) {
+				int holder = deals[d][c];
+				if (holder == constraints.getEnvelope() || holder == suggestingPlayer) {
+					distances[d][c] = (byte)numberOfPlayers;
+				} else {
+					distances[d][c] = (byte)((holder - suggestingPlayer + numberOfPlayers) % numberOfPlayers);
+				}
+				if (holder == constraints.getEnvelope()) {
+					envelope = envelope * cards.getNumberOfCards() + c;
+				}
+			}
+			Integer number = envelopeNumbers.get(envelope);
+			if (number == null) {
+				number = envelopeNumbers.size();
+				envelopeNumbers.put(envelope, number);
+			}
+			envelopes[d] = number;
+		}
+		numberOfEnvelopes = envelopeNumbers.size();
+		double[] counts = new double[numberOfEnvelopes];
+		for (int envelope : envelopes) {
+			counts[envelope]++;
+		}
+		priorEntropy = entropy(counts, deals.length);
+	}
+
+	/**
+	 * Estimates the entropy of a distribution from sampled weights. Entropy worked out directly from a sample
+	 * is too low when there are few samples for the number of outcomes seen, so the Miller-Madow correction is added.
+	 * @param weights The weight of each outcome
+	 * @param total The sum of the weights
+	 * @return entropy The entropy in bits
+	**/
+	private static double entropy(double[] weights, double total) {
+		double entropy = 0;
+		int outcomes = 0;
+		for (double weight : weights) {
+			if (weight > 0) {
+				double p = weight / total;
+				entropy -= p * Math.log(p);
+				outcomes++;
+			}
+		}
+		return (entropy + (outcomes - 1) / (2 * total)) / Math.log(2);
+	}
+
+	/**
+	 * Scores every suggestion and gives the best ones
+	 * @param count The most suggestions to give
+	 * @return scores The best suggestions, highest expected information gain first, empty if there are no deals
+	**/
+	public ArrayList<SuggestionScore> recommend(int count) {
+		ArrayList<SuggestionScore> scores = new ArrayList<SuggestionScore>();
+		if (envelopes.length == 0) {
+			return scores; //Nothing is known to score against
+		}
+		int numberOfCandidates = rooms.size() * suspects.size() * weapons.size();
+		double[] gains = new double[numberOfCandidates];
+		double[] noDisproveChances = new double[numberOfCandidates];
+		ForkJoinPool.commonPool().invoke(new ScoringTask(gains, noDisproveChances, 0, numberOfCandidates));
+		//Keep the best few in order
+		ArrayList<Integer> best = new ArrayList<Integer>();
+		for (int i = 0; i < numberOfCandidates; i++) {
+			int position = best.size();
+			while (position > 0 && gains[best.get(position - 1)] < gains[i]) {
+				position--;
+			}
+			if (position < count) {
+				best.add(position, i);
+				if (best.size() > count) {
+					best.remove(best.size() - 1);
+				}
+			}
+		}
+		for (int i : best) {
+			scores.add(new SuggestionScore(candidate(i), gains[i], noDisproveChances[i]));
+		}
+		return scores;
+	}
+
+	/**
+	 * Gives the suggestion with a number, numbered by room, then suspect, then weapon
+	 * @param candidate The number of the suggestion
+	 * @return suggestion The suggestion
+	**/
+	private Suggestion candidate(int candidate) {
+		int weapon = candidate % weapons.size();
+		int suspect = candidate / weapons.size() % suspects.size();
+		int room = candidate / weapons.size() / suspects.size();
+		return new Suggestion(rooms.get(room), suspects.get(suspect), weapons.get(weapon));
+	}
+
+	/**
+	 * Splits the suggestions in half until each task scores only a few
+	**/
+	@SuppressWarnings("serial") //Tasks are never serialized
+	private class ScoringTask extends RecursiveAction {
+		private final double[] gains;
+		private final double[] noDisproveChances;
+		private final int first;
+		private final int last;
+
+		private ScoringTask(double[] gains, double[] noDisproveChances, int first, int last) {
+			this.gains = gains;
+			this.noDisproveChances = noDisproveChances;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first > CANDIDATES_PER_TASK) {
+				int middle = (first + last) / 2;
+				invokeAll(new ScoringTask(gains, noDisproveChances, first, middle),
+					new ScoringTask(gains, noDisproveChances, middle, last));
+				return;
+			}
+			//Answers are numbered by the distance to whoever disproves the suggestion and which of the three cards is shown
+			double[][] weights = new double[3 * (numberOfPlayers + 1)][numberOfEnvelopes];
+			double[] answerWeights = new double[weights.length];
+			for (int i = first; i < last; i++) {
+				Suggestion suggestion = candidate(i);
+				int[] suggested = {suggestion.getRoom().getIndex(), suggestion.getSuspect().getIndex(), suggestion.getWeapon().getIndex()};
+				for (int d = 0; d < envelopes.length; d++) {
+					byte[] distance = distances[d];
+					int closest = Math.min(distance[suggested[0]], Math.min(distance[suggested[1]], distance[suggested[2]]));
+					if (!seesCard || closest == numberOfPlayers) {
+						weights[3 * closest][envelopes[d]]++;
+						continue;
+					}
+					//The card shown is assumed to be any of the cards the player has, with equal chance
+					int shown = 0;
+					for (int card : suggested) {
+						shown += distance[card] == closest ? 1 : 0;
+					}
+					for (int j = 0; j < 3; j++) {
+						if (distance[suggested[j]] == closest) {
+							weights[3 * closest + j][envelopes[d]] += 1.0 / shown;
+						}
+					}
+				}
+				double remaining = 0;
+				for (int answer = 0; answer < weights.length; answer++) {
+					answerWeights[answer] = 0;
+					for (double weight : weights[answer]) {
+						answerWeights[answer] += weight;
+					}
+					if (answerWeights[answer] > 0) {
+						remaining += answerWeights[answer] / envelopes.length * entropy(weights[answer], answerWeights[answer]);
+						Arrays.fill(weights[answer], 0);
+					}
+				}
+				gains[i] = Math.max(0, priorEntropy - remaining);
+				noDisproveChances[i] = answerWeights[3 * numberOfPlayers] / envelopes.length;
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package src.logic.analysis;
+
+import src.logic.Suggestion;
+
+/**
+ * How much a suggestion is expected to reveal about the envelope
+**/
+public class SuggestionScore {
+	//Variables
+	private final Suggestion suggestion; //The suggestion that was scored
+	private final double informationGain; //Expected drop in uncertainty about the envelope in bits
+	private final double noDisproveChance; //Chance that nobody can disprove the suggestion
+
+	//Methods
+
+	/**
+	 * Creates a new score
+	 * @param suggestion The suggestion that was scored
+	 * @param informationGain The expected drop in uncertainty about the envelope in bits
+	 * @param noDisproveChance The chance that nobody can disprove the suggestion
+	**/
+	public SuggestionScore(Suggestion suggestion, double informationGain, double noDisproveChance) {
+		this.suggestion = suggestion;
+		this.informationGain = informationGain;
+		this.noDisproveChance = noDisproveChance;
+	}
+
+	/**
+	 * Gives the suggestion that was scored
+	 * @return suggestion The suggestion
+	**/
+	public Suggestion getSuggestion() {
+		return suggestion;
+	}
+
+	/**
+	 * Gives how much less uncertain the envelope is expected to be after making the suggestion
+	 * @return informationGain The expected information gain in bits
+	**/
+	public double getInformationGain() {
+		return informationGain;
+	}
+
+	/**
+	 * Gives the chance that nobody can disprove the suggestion
+	 * @return noDisproveChance The chance the suggestion goes all the way around the table
+	**/
+	public double getNoDisproveChance() {
+		return noDisproveChance;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%.2f bits, %.0f%% nobody disproves)", suggestion, informationGain, 100 * noDisproveChance);
+	}
+}
@@ -2,12 +2,13 @@ package src.logic.card;
 
 /**
  * Represents a clue card. Has a value, type and a description
+ * Cards are immutable so one deck can be shared by any number of games
 **/
 public class Card {
 	//Variables
-	private TypeOfCard cardType; //The type of card (Room, weapon or suspect)
-	private String description; //A string description of the card
-	private boolean known; //Whether or not the card is known by a player
+	private final TypeOfCard cardType; //The type of card (Room, weapon or suspect)
+	private final String description; //A string description of the card
+	private final int index; //Position of the card in the deck, used as its bit in card sets
 
 	//Methods
 
@@ -15,11 +16,12 @@ public class Card {
 	 * Creates a new cards
 	 * @param cardType The type of the card (Room, weapon, or suspect)
 	 * @param description A string description of the card, this is what will show up to the user
+	 * @param index The position of the card in the deck
 	**/
-	public Card(TypeOfCard cardType, String description) {
+	public Card(TypeOfCard cardType, String description, int index) {
 		this.cardType = cardType;
 		this.description = description;
-		known = false;
+		this.index = index;
 	}
 
 	/**
@@ -29,7 +31,7 @@ public class Card {
 	public Card(Card otherCard) {
 		cardType = otherCard.cardType;
 		description = otherCard.description;
-		known = false;
+		index = otherCard.index;
 	}
 
 	/**
@@ -48,6 +50,15 @@ public class Card {
 		return description;
 	}
 
+	/**
+	 * Gives the position of the card in the deck. Every card in a deck has a unique index
+	 * starting at 0, so it can be used as the card's bit in a set of cards (see CardSet)
+	 * @return index The position of the card in the deck
+	**/
+	public int getIndex() {
+		return index;
+	}
+
 	@Override
 	public int hashCode() {
 		return description.hashCode();
@@ -60,20 +71,4 @@ public class Card {
 		}
 		return false;
 	}
-
-	/**
-	 * Marks a card as whether it is known to be possessed by a player or not
-	 * @param newValue New boolean value of whether the card is possessed by a player or not
-	**/
-	public void setKnown(boolean newValue) {
-		known = newValue;
-	}
-
-	/**
-	 * Gives whether or not a card is known to be in a player's hand
-	 * @return known Boolean value of whether or not the card is known to be in a player's hand
-	**/
-	public boolean isKnown() {
-		return known;
-	}
 }
@@ -1,77 +1,144 @@
 package src.logic.card;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 
 /**
- * Singleton representing deck of all the Clue cards
+ * Represents deck of all the Clue cards. A deck never changes once it is created,
+ * so each game may have its own or share one with other games.
+ * Besides the standard deck, a deck may be loaded from a definition file with one card per line:
+ *   # A comment, blank lines are skipped too
+ *   suspect Professor Plum
+ *   weapon Knife
+ *   room Hall
+ * Each type may have any number of cards. Cards are numbered suspects first, then weapons, then rooms,
+ * each in the order they are listed.
 **/
 public class CardList {
 	//Variables
-	private static CardList cards = null; //The singleton
 	private ArrayList<Card> suspects; //Suspect cards
 	private ArrayList<Card> weapons; //Weapon cards
 	private ArrayList<Card> rooms; //Room cards
 	private ArrayList<Card> allCards; //All the cards
+	//The most cards a deck can have, the solver keeps card indices in 16 bits
+	public static final int MAX_CARDS = 1 << 16;
 
 	//Methods
 
 	/**
-	 * Gives the singleton group of cards
-	 * @return cards The group of cards
+	 * Creates a new card list with the standard deck
 	**/
-	public static CardList getCardList() {
-		if (cards == null) {
-			cards = new CardList();
-		}
-		return cards;
+	public CardList() {
+		this(Arrays.asList("Professor Plum", "Colonel Mustard", "Mr. Green", "Miss Scarlet", "Ms. White", "Mrs. Peacock"),
+			Arrays.asList("Bat", "Pistol", "Knife", "Candlestick", "Rope", "Ax", "Dumbbell", "Poison", "Trophy"),
+			Arrays.asList("Guest House", "Dining Room", "Kitchen", "Patio", "Spa", "Theater", "Living Room", "Observatory", "Hall"));
 	}
 
 	/**
-	 * Creates a new card list
+	 * Creates a new card list with a custom deck
+	 * @param suspectNames The descriptions of the suspect cards
+	 * @param weaponNames The descriptions of the weapon cards
+	 * @param roomNames The descriptions of the room cards
+	 * @throws IllegalArgumentException If a type has no cards, two cards have the same description, or there are too many cards
 	**/
-	private CardList() {
+	public CardList(List<String> suspectNames, List<String> weaponNames, List<String> roomNames) {
 		//Define member variables
 		suspects = new ArrayList<Card>();
 		weapons = new ArrayList<Card>();
 		rooms = new ArrayList<Card>();
 		allCards = new ArrayList<Card>();
-		//Import the suspects
-		suspects.add(new Card(TypeOfCard.SUSPECT, "Professor Plum")); //1 X
-		suspects.add(new Card(TypeOfCard.SUSPECT, "Colonel Mustard")); //2 X
-		suspects.add(new Card(TypeOfCard.SUSPECT, "Mr. Green")); //3 X
-		suspects.add(new Card(TypeOfCard.SUSPECT, "Miss Scarlet")); //4 X
-		suspects.add(new Card(TypeOfCard.SUSPECT, "Ms. White")); //5 X
-		suspects.add(new Card(TypeOfCard.SUSPECT, "Mrs. Peacock")); //6
-		//Import the weapons
-		weapons.add(new Card(TypeOfCard.WEAPON, "Bat")); //7 X
-		weapons.add(new Card(TypeOfCard.WEAPON, "Pistol")); //8 X
-		weapons.add(new Card(TypeOfCard.WEAPON, "Knife")); //9 X
-		weapons.add(new Card(TypeOfCard.WEAPON, "Candlestick")); //10 X
-		weapons.add(new Card(TypeOfCard.WEAPON, "Rope")); //11 X
-		weapons.add(new Card(TypeOfCard.WEAPON, "Ax")); //12 X
-		weapons.add(new Card(TypeOfCard.WEAPON, "Dumbbell")); //13 X
-		weapons.add(new Card(TypeOfCard.WEAPON, "Poison")); //14
-		weapons.add(new Card(TypeOfCard.WEAPON, "Trophy")); //15 X
-		//Import the rooms
-		rooms.add(new Card(TypeOfCard.ROOM, "Guest House")); //16 X
-		rooms.add(new Card(TypeOfCard.ROOM, "Dining Room")); //17 X
-		rooms.add(new Card(TypeOfCard.ROOM, "Kitchen")); //18 X
-		rooms.add(new Card(TypeOfCard.ROOM, "Patio")); //19 X
-		rooms.add(new Card(TypeOfCard.ROOM, "Spa")); //20 X
-		rooms.add(new Card(TypeOfCard.ROOM, "Theater")); //21 X
-		rooms.add(new Card(TypeOfCard.ROOM, "Living Room")); //22
-		rooms.add(new Card(TypeOfCard.ROOM, "Observatory")); //23 X
-		rooms.add(new Card(TypeOfCard.ROOM, "Hall")); //24 X
-		//Add all cards to the list of all the cardsLounge
-		for (Card c : suspects) {
-			allCards.add(c);
+		if (suspectNames.isEmpty() || weaponNames.isEmpty() || roomNames.isEmpty()) {
+			throw new IllegalArgumentException("The deck needs at least one suspect, weapon, and room");
+		}
+		if (suspectNames.size() + weaponNames.size() + roomNames.size() > MAX_CARDS) {
+			throw new IllegalArgumentException(String.format("The deck can not have more than %d cards", MAX_CARDS));
 		}
-		for (Card c : weapons) {
-			allCards.add(c);
+		addCards(TypeOfCard.SUSPECT, suspectNames, suspects);
+		addCards(TypeOfCard.WEAPON, weaponNames, weapons);
+		addCards(TypeOfCard.ROOM, roomNames, rooms);
+		//Descriptions are how users pick cards, so they must not be mistaken for each other
+		HashSet<String> descriptions = new HashSet<String>();
+		for (Card c : allCards) {
+			if (c.getDescription().length() == 0) {
+				throw new IllegalArgumentException("A card has no description");
+			}
+			if (!descriptions.add(c.getDescription().toLowerCase())) {
+				throw new IllegalArgumentException(String.format("There is more than one %s in the deck", c.getDescription()));
+			}
 		}
-		for (Card c : rooms) {
-			allCards.add(c);
+	}
+
+	/**
+	 * Adds the cards of one type to the deck
+	 * @param type The type of the cards
+	 * @param names The descriptions of the cards
+	 * @param list The list of the cards of the type
+	**/
+	private void addCards(TypeOfCard type, List<String> names, ArrayList<Card> list) {
+		for (String name : names) {
+			Card card = new Card(type, name.trim(), allCards.size());
+			list.add(card);
+			allCards.add(card);
+		}
+	}
+
+	/**
+	 * Loads a deck from a definition file
+	 * @param file The definition file
+	 * @return cards The deck
+	 * @throws IOException If the file can not be read
+	 * @throws IllegalArgumentException If the file is not a valid deck
+	**/
+	public static CardList load(Path file) throws IOException {
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Reads a deck definition
+	 * @param in The definition
+	 * @return cards The deck
+	 * @throws IOException If the definition can not be read
+	 * @throws IllegalArgumentException If the definition is not a valid deck
+	**/
+	public static CardList read(BufferedReader in) throws IOException {
+		ArrayList<String> suspectNames = new ArrayList<String>();
+		ArrayList<String> weaponNames = new ArrayList<String>();
+		ArrayList<String> roomNames = new ArrayList<String>();
+		int lineNumber = 0;
+		for (String line = in.readLine(); line != null; line = in.readLine()) {
+			lineNumber++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			String[] parts = line.split("\\s+", 2);
+			if (parts.length < 2) {
+				throw new IllegalArgumentException(String.format("Line %d: expected a card type and a description", lineNumber));
+			}
+			switch (parts[0].toLowerCase()) {
+				case "suspect":
+					suspectNames.add(parts[1]);
+					break;
+				case "weapon":
+					weaponNames.add(parts[1]);
+					break;
+				case "room":
+					roomNames.add(parts[1]);
+					break;
+				default:
+					throw new IllegalArgumentException(String.format("Line %d: unknown card type %s", lineNumber, parts[0]));
+			}
 		}
+		return new CardList(suspectNames, weaponNames, roomNames);
 	}
 
 	/**
@@ -83,6 +150,26 @@ public class CardList {
 		return allCards.size();
 	}
 
+	/**
+	 * Gives a new empty set of cards sized for the deck
+	 * @return set The empty set
+	**/
+	public CardSet newCardSet() {
+		return new CardSet(allCards.size());
+	}
+
+	/**
+	 * Gives a new set with every card in the deck
+	 * @return set The set of all the cards in the deck
+	**/
+	public CardSet getAllCardsMask() {
+		CardSet set = newCardSet();
+		for (int c = 0; c < allCards.size(); c++) {
+			set.add(c);
+		}
+		return set;
+	}
+
 	/**
 	 * Gives the integer value of how many room cards there are
 	 * @return numberOfRooms The number of room clue cards
@@ -116,6 +203,20 @@ public class CardList {
 		return allCards.get(cardNumber);
 	}
 
+	/**
+	 * Finds a card by its description, ignoring case
+	 * @param description The description of the card, like "Professor Plum"
+	 * @return card The card with the description or null if the deck has no such card
+	**/
+	public Card findCard(String description) {
+		for (Card c : allCards) {
+			if (c.getDescription().equalsIgnoreCase(description.trim())) {
+				return c;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Gives the specified suspect card from the list of suspect clue cards
 	 * @param cardNumber The index of the suspect card in the list of suspect cards
@@ -174,11 +275,20 @@ public class CardList {
 	}
 
 	/**
-	 * Clears the known flag on all cards
+	 * Gives an ArrayList containing all the clue cards of a type
+	 * @param type The type of card (Room, weapon, or suspect)
+	 * @return cards The list of all the cards of the type, empty for an unknown type
 	**/
-	public void resetCards() {
-		for (Card c : allCards) {
-			c.setKnown(false);
+	public ArrayList<Card> getCardsOfType(TypeOfCard type) {
+		switch (type) {
+			case SUSPECT:
+				return suspects;
+			case WEAPON:
+				return weapons;
+			case ROOM:
+				return rooms;
+			default:
+				return new ArrayList<Card>();
 		}
 	}
 }
@@ -0,0 +1,286 @@
+package src.logic.card;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A set of cards from one deck kept as a bitmask with one bit per card, indexed by Card.getIndex().
+ * The mask is split into as many 64 bit words as the deck needs, so decks of any size are supported
+ * and a standard deck fits in a single word.
+ * Sets from different decks can not be mixed.
+**/
+public class CardSet {
+	//Variables
+	private final long[] words; //The bits of the cards, card i is bit i % 64 of word i / 64
+
+	//Methods
+
+	/**
+	 * Creates an empty set
+	 * @param numberOfCards How many cards are in the deck the set is for
+	**/
+	public CardSet(int numberOfCards) {
+		words = new long[Math.max(1, (numberOfCards + 63) >>> 6)];
+	}
+
+	/**
+	 * Creates a copy of a set
+	 * @param other The set to copy
+	**/
+	public CardSet(CardSet other) {
+		words = other.words.clone();
+	}
+
+	/**
+	 * Gives whether a card is in the set
+	 * @param card The index of the card
+	 * @return contains True if the card is in the set
+	**/
+	public boolean contains(int card) {
+		return (words[card >>> 6] & (1L << card)) != 0;
+	}
+
+	/**
+	 * Gives whether a card is in the set
+	 * @param card The card
+	 * @return contains True if the card is in the set
+	**/
+	public boolean contains(Card card) {
+		return contains(card.getIndex());
+	}
+
+	/**
+	 * Adds a card to the set
+	 * @param card The index of the card
+	**/
+	public void add(int card) {
+		words[card >>> 6] |= 1L << card;
+	}
+
+	/**
+	 * Adds a card to the set
+	 * @param card The card
+	**/
+	public void add(Card card) {
+		add(card.getIndex());
+	}
+
+	/**
+	 * Removes a card from the set
+	 * @param card The index of the card
+	**/
+	public void remove(int card) {
+		words[card >>> 6] &= ~(1L << card);
+	}
+
+	/**
+	 * Removes a card from the set
+	 * @param card The card
+	**/
+	public void remove(Card card) {
+		remove(card.getIndex());
+	}
+
+	/**
+	 * Adds every card of another set to this one
+	 * @param other The cards to add
+	**/
+	public void addAll(CardSet other) {
+		for (int i = 0; i < words.length; i++) {
+			words[i] |= other.words[i];
+		}
+	}
+
+	/**
+	 * Removes every card of another set from this one
+	 * @param other The cards to remove
+	**/
+	public void removeAll(CardSet other) {
+		for (int i = 0; i < words.length; i++) {
+			words[i] &= ~other.words[i];
+		}
+	}
+
+	/**
+	 * Removes every card that is not in another set
+	 * @param other The cards to keep
+	**/
+	public void retainAll(CardSet other) {
+		for (int i = 0; i < words.length; i++) {
+			words[i] &= other.words[i];
+		}
+	}
+
+	/**
+	 * Gives whether the set has any card in common with another set
+	 * @param other The other set
+	 * @return intersects True if a card is in both sets
+	**/
+	public boolean intersects(CardSet other) {
+		for (int i = 0; i < words.length; i++) {
+			if ((words[i] & other.words[i]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gives whether every card of another set is in this one
+	 * @param other The other set
+	 * @return containsAll True if the other set is a subset of this one
+	**/
+	public boolean containsAll(CardSet other) {
+		for (int i = 0; i < words.length; i++) {
+			if ((other.words[i] & ~words[i]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives whether the set has no cards
+	 * @return empty True if the set is empty
+	**/
+	public boolean isEmpty() {
+		for (long word : words) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the number of cards in the set
+	 * @return size How many cards are in the set
+	**/
+	public int size() {
+		int size = 0;
+		for (long word : words) {
+			size += Long.bitCount(word);
+		}
+		return size;
+	}
+
+	/**
+	 * Gives the first card in the set at or after a card. The cards of a set are visited with
+	 * for (int c = set.nextCard(0); c >= 0; c = set.nextCard(c + 1))
+	 * @param from The index of the card to start looking at
+	 * @return card The index of the card or -1 if there is none
+	**/
+	public int nextCard(int from) {
+		int i = from >>> 6;
+		if (i >= words.length) {
+			return -1;
+		}
+		long word = words[i] & (-1L << from);
+		while (word == 0) {
+			if (++i == words.length) {
+				return -1;
+			}
+			word = words[i];
+		}
+		return (i << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Removes every card from the set
+	**/
+	public void clear() {
+		Arrays.fill(words, 0);
+	}
+
+	/**
+	 * Makes the set hold the same cards as another set
+	 * @param other The set to copy the cards of
+	**/
+	public void copyFrom(CardSet other) {
+		System.arraycopy(other.words, 0, words, 0, words.length);
+	}
+
+	/**
+	 * Writes the set compactly: the number of cards, then the index of each card as the gap from the card before.
+	 * Each number takes one byte per 7 bits, so a set from a standard deck takes about a byte per card.
+	 * @param out Where to write
+	 * @throws IOException If the set can not be written
+	**/
+	public void write(DataOutput out) throws IOException {
+		writeNumber(out, size());
+		int previous = -1;
+		for (int c = nextCard(0); c >= 0; c = nextCard(c + 1)) {
+			writeNumber(out, c - previous - 1);
+			previous = c;
+		}
+	}
+
+	/**
+	 * Reads a set written by write
+	 * @param in Where to read from
+	 * @param numberOfCards How many cards are in the deck the set is for
+	 * @return set The set
+	 * @throws IOException If the set can not be read
+	 * @throws IllegalArgumentException If the set has cards the deck does not have
+	**/
+	public static CardSet read(DataInput in, int numberOfCards) throws IOException {
+		CardSet set = new CardSet(numberOfCards);
+		int size = readNumber(in);
+		int card = -1;
+		for (int i = 0; i < size; i++) {
+			card += readNumber(in) + 1;
+			if (card < 0 || card >= numberOfCards) {
+				throw new IllegalArgumentException(String.format("Unknown card %d", card));
+			}
+			set.add(card);
+		}
+		return set;
+	}
+
+	/**
+	 * Writes a number that is not negative in as few bytes as it needs, 7 bits to a byte, lowest bits first.
+	 * The high bit of each byte says whether another byte follows.
+	 * @param out Where to write
+	 * @param number The number
+	 * @throws IOException If the number can not be written
+	**/
+	public static void writeNumber(DataOutput out, int number) throws IOException {
+		while ((number & ~0x7F) != 0) {
+			out.writeByte((number & 0x7F) | 0x80);
+			number >>>= 7;
+		}
+		out.writeByte(number);
+	}
+
+	/**
+	 * Reads a number written by writeNumber
+	 * @param in Where to read from
+	 * @return number The number
+	 * @throws IOException If the number can not be read
+	**/
+	public static int readNumber(DataInput in) throws IOException {
+		int number = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			number |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return number;
+			}
+		}
+		throw new IllegalArgumentException("Number is too long");
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+
+	public boolean equals(Object other) {
+		if (other instanceof CardSet) {
+			return Arrays.equals(words, ((CardSet)other).words);
+		}
+		return false;
+	}
+}
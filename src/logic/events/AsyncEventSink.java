@@ -0,0 +1,113 @@
+package src.logic.events;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sink that buffers events and passes them to another sink on a thread of its own, so games publishing to it
+ * never wait for the other sink's I/O. The buffer is bounded, and events published while it is full are dropped
+ * and counted rather than holding up the game. One sink can be shared by any number of games on any number of threads.
+ * An event the other sink throws on is counted as dropped too, and the thread goes on with the next one.
+**/
+public class AsyncEventSink implements EventSink, Closeable {
+	//Variables
+	private final EventSink target; //Where the events are passed on to
+	private final ArrayBlockingQueue<EngineEvent> buffer; //Events published but not yet passed on
+	private final Thread writer; //Passes the buffered events on
+	private final LongAdder dropped = new LongAdder(); //Events not passed on
+	private volatile boolean closed;
+	private static final int BATCH_SIZE = 256; //Most events passed on at once
+	private static final EngineEvent CLOSE = new EngineEvent(null, null); //Put in the buffer to stop the thread
+
+	//Methods
+
+	/**
+	 * Creates a sink and starts its thread
+	 * @param target The sink to pass the events on to, which only the new thread calls
+	 * @param capacity The most events buffered at once
+	**/
+	public AsyncEventSink(EventSink target, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The buffer must hold at least one event");
+		}
+		this.target = target;
+		buffer = new ArrayBlockingQueue<EngineEvent>(capacity);
+		writer = new Thread(this::writeLoop, "events");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@Override
+	public void publish(EngineEvent event) {
+		if (closed || !buffer.offer(event)) {
+			dropped.increment();
+		} else if (closed && buffer.remove(event)) { //Buffered while the sink closed, it may be after the thread stopped
+			dropped.increment();
+		}
+	}
+
+	/**
+	 * Passes the buffered events on, as many at once as are buffered, until the sink is closed
+	**/
+	private void writeLoop() {
+		ArrayList<EngineEvent> batch = new ArrayList<EngineEvent>(BATCH_SIZE);
+		while (true) {
+			try {
+				batch.add(buffer.take());
+			} catch (InterruptedException e) {
+				continue; //Only close stops the thread
+			}
+			buffer.drainTo(batch, BATCH_SIZE - 1);
+			for (int i = 0; i < batch.size(); i++) {
+				EngineEvent event = batch.get(i);
+				if (event == CLOSE) {
+					dropped.add(batch.size() - i - 1); //Taken with CLOSE, so published after the sink closed
+					return; //Everything published before the sink was closed is passed on
+				}
+				try {
+					target.publish(event);
+				} catch (RuntimeException e) {
+					dropped.increment(); //The thread keeps going so one bad event does not stop the rest
+				}
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Gives how many events were dropped because the buffer was full, the sink was closed, or the other sink threw
+	 * @return dropped The number of events
+	**/
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Stops taking events and waits until the ones already buffered are passed on
+	**/
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		boolean interrupted = false;
+		boolean stopping = false; //Whether the thread was told to stop
+		while (writer.isAlive()) {
+			try {
+				if (!stopping) {
+					buffer.put(CLOSE);
+					stopping = true;
+				}
+				writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
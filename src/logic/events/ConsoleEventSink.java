@@ -0,0 +1,31 @@
+package src.logic.events;
+
+import java.io.PrintStream;
+
+/**
+ * Sink that prints every event as it is published, errors in red. It writes to the stream on the game's thread,
+ * so it is meant for the interactive solver, or for the thread of an AsyncEventSink.
+**/
+public class ConsoleEventSink implements EventSink {
+	//Variables
+	private final PrintStream out; //Where the events are printed
+
+	//Methods
+
+	/**
+	 * Creates a sink that prints to a stream
+	 * @param out Where to print the events
+	**/
+	public ConsoleEventSink(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void publish(EngineEvent event) {
+		if (event.isError()) {
+			out.println(String.format("\033[31m%s\033[39m", event.getMessage()));
+		} else {
+			out.println(event.getMessage());
+		}
+	}
+}
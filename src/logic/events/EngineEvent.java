@@ -0,0 +1,57 @@
+package src.logic.events;
+
+/**
+ * Something a game reports while moves are made, like a move being undone, for an EventSink to log
+**/
+public class EngineEvent {
+	//Variables
+	private final Type type;
+	private final String message; //What happened, like "Removed [Bob] has card [Knife]"
+
+	//The kinds of events
+	public enum Type {
+		MOVE_UNDONE, //A move was taken out of the game
+		INVALID_MOVE //A move could not be made
+	}
+
+	//Methods
+
+	/**
+	 * Creates an event
+	 * @param type The kind of event
+	 * @param message What happened
+	**/
+	public EngineEvent(Type type, String message) {
+		this.type = type;
+		this.message = message;
+	}
+
+	/**
+	 * Gives the kind of event
+	 * @return type The kind of event
+	**/
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gives what happened
+	 * @return message The description of the event
+	**/
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Whether the event is about something that went wrong
+	 * @return error True if a move could not be made
+	**/
+	public boolean isError() {
+		return type == Type.INVALID_MOVE;
+	}
+
+	@Override
+	public String toString() {
+		return message;
+	}
+}
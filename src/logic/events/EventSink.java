@@ -0,0 +1,14 @@
+package src.logic.events;
+
+/**
+ * Where a game sends its events. The game calls publish on the thread making the move, so a sink must return
+ * quickly and never wait on I/O: NoOpEventSink drops the events, AsyncEventSink hands them to a thread of its own,
+ * and ConsoleEventSink prints them at once for the interactive solver.
+**/
+public interface EventSink {
+	/**
+	 * Takes an event from a game
+	 * @param event The event
+	**/
+	void publish(EngineEvent event);
+}
@@ -0,0 +1,18 @@
+package src.logic.events;
+
+/**
+ * Sink that drops every event, used by games unless they are given another sink
+**/
+public class NoOpEventSink implements EventSink {
+	//Variables
+	public static final NoOpEventSink INSTANCE = new NoOpEventSink();
+
+	//Methods
+
+	private NoOpEventSink() {
+	}
+
+	@Override
+	public void publish(EngineEvent event) {
+	}
+}
@@ -0,0 +1,522 @@
+package src.logic.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import src.logic.*;
+import src.logic.card.*;
+import src.logic.metrics.EngineMetrics;
+
+/**
+ * Append-only file of every move made in a game, so the game can be rebuilt after the process dies.
+ * The file starts with the deck and the players, followed by one record per move. Each record is its length,
+ * a CRC32 of its contents, and the move, so a record torn by a crash is found and dropped on recovery.
+ * Moves are appended to a buffer without waiting for the disk. A writer thread writes everything appended
+ * while the previous write was syncing and syncs it with one fsync, so a burst of moves shares a sync.
+ * Every SNAPSHOT_INTERVAL moves the game saves a snapshot next to the journal, so recovery restores the
+ * snapshot and replays only the moves after it.
+**/
+public class MoveJournal implements Closeable {
+	//Variables
+	public static final int SNAPSHOT_INTERVAL = 64; //How many moves are journaled between snapshots
+	private static final int MAGIC = 0x434C554A; //"CLUJ"
+	private static final int SNAPSHOT_MAGIC = 0x434C5550; //"CLUP"
+	private static final short VERSION = 3;
+	private static final int MAX_PENDING_BYTES = 1 << 20; //Appending waits for the writer once this much is unwritten
+	private static final int MAX_RECORD_BYTES = 64; //Longer than any move
+	private final Path file;
+	private final Path snapshotFile; //The latest snapshot of the game, next to the journal
+	private final FileChannel channel;
+	private final Thread writer; //Writes and syncs the appended moves
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream(MAX_RECORD_BYTES); //The move being appended
+	private final DataOutputStream recordOut = new DataOutputStream(record);
+	private ByteBuffer pending = ByteBuffer.allocate(4096); //Records appended but not yet written
+	private ByteBuffer writing = ByteBuffer.allocate(4096); //Records being written
+	private long appended; //How many moves have been appended
+	private long appendedBytes; //How long the file is once every appended move is written
+	private long durable; //How many moves are synced to the disk
+	private long syncs; //How many times the file was synced
+	private GameSnapshot pendingSnapshot; //A snapshot waiting to be saved, null if there is none
+	private long snapshotMoves; //How many moves the pending snapshot includes
+	private long snapshotOffset; //Where the moves after the pending snapshot start in the file
+	private boolean closed;
+	private IOException failure; //Why the writer stopped, if it failed
+
+	/**
+	 * A snapshot read from the disk and the point in the journal it was taken at
+	**/
+	private static class SavedSnapshot {
+		private final GameSnapshot snapshot;
+		private final long moves; //How many moves the snapshot includes
+		private final long offset; //Where the moves after the snapshot start in the journal
+
+		private SavedSnapshot(GameSnapshot snapshot, long moves, long offset) {
+			this.snapshot = snapshot;
+			this.moves = moves;
+			this.offset = offset;
+		}
+	}
+
+	//Methods
+
+	/**
+	 * Opens a journal positioned after its last whole record and starts its writer
+	 * @param file The journal's file
+	 * @param channel The file, open for writing
+	 * @param moves How many moves are already in the file
+	 * @param size How long the file is
+	**/
+	private MoveJournal(Path file, FileChannel channel, long moves, long size) {
+		this.file = file;
+		this.channel = channel;
+		snapshotFile = file.resolveSibling(file.getFileName() + ".snapshot");
+		appended = moves;
+		appendedBytes = size;
+		durable = moves;
+		writer = new Thread(this::writeLoop, String.format("journal %s", file.getFileName()));
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Creates a journal for a new game and attaches it, so every move made from now on is journaled.
+	 * The deck and the players are written and synced before this returns.
+	 * @param file The file to create, which must not exist
+	 * @param game The game, before any moves are made
+	 * @return journal The journal
+	 * @throws IOException If the file can not be created
+	**/
+	public static MoveJournal create(Path file, ClueLogic game) throws IOException {
+		if (!game.getMoves().isEmpty()) {
+			throw new IllegalStateException("A journal must be created before any moves are made");
+		}
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		ByteBuffer header = encodeHeader(game);
+		try {
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			channel.force(true);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		MoveJournal journal = new MoveJournal(file, channel, 0, header.limit());
+		Files.deleteIfExists(journal.snapshotFile); //Left by an earlier game with the same file
+		game.setJournal(journal);
+		return journal;
+	}
+
+	/**
+	 * Rebuilds a game from its journal. The game is restored from its latest snapshot, if it has a valid one,
+	 * and the moves journaled after the snapshot are replayed. A torn record at the end, left by a crash
+	 * in the middle of a write, is cut off. The journal is attached to the game so it goes on being journaled.
+	 * @param file The journal's file
+	 * @param metrics The metrics the game records its moves in
+	 * @return game The rebuilt game
+	 * @throws IOException If the file can not be read, or is not a journal
+	**/
+	public static ClueLogic recover(Path file, EngineMetrics metrics) throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+		ClueLogic game;
+		try {
+			game = decodeHeader(in, metrics);
+		} catch (RuntimeException e) {
+			throw new IOException(String.format("%s is not a valid journal", file), e);
+		}
+		long moves = 0;
+		SavedSnapshot saved = readSnapshot(file.resolveSibling(file.getFileName() + ".snapshot"));
+		if (saved != null && saved.offset >= in.position() && saved.offset <= in.limit()) {
+			game = saved.snapshot.restore(metrics);
+			moves = saved.moves;
+			in.position((int)saved.offset);
+		}
+		int end = in.position(); //The end of the last whole record
+		CRC32 crc = new CRC32();
+		while (in.remaining() >= 8) {
+			int length = in.getInt();
+			int checksum = in.getInt();
+			if (length <= 0 || length > MAX_RECORD_BYTES || length > in.remaining()) {
+				break;
+			}
+			crc.reset();
+			crc.update(in.array(), in.position(), length);
+			if ((int)crc.getValue() != checksum) {
+				break;
+			}
+			try {
+				game.doMove(Move.read(new DataInputStream(new ByteArrayInputStream(in.array(), in.position(), length)), game));
+			} catch (IOException | RuntimeException e) {
+				throw new IOException(String.format("Move %d in %s can not be replayed", moves, file), e);
+			}
+			in.position(in.position() + length);
+			end = in.position();
+			moves++;
+		}
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+		try {
+			if (end < channel.size()) {
+				channel.truncate(end);
+				channel.force(true);
+			}
+			channel.position(end);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		game.setJournal(new MoveJournal(file, channel, moves, end));
+		return game;
+	}
+
+	/**
+	 * Appends a move without waiting for it to be written. Only waits if the writer has fallen far behind.
+	 * @param move The move
+	 * @return number How many moves have been appended, counting this one, to wait for with awaitDurable
+	 * @throws UncheckedIOException If the journal could not be written
+	**/
+	public synchronized long append(Move move) {
+		while (pending.position() >= MAX_PENDING_BYTES && failure == null && !closed) {
+			waitUninterruptibly();
+		}
+		checkOpen();
+		record.reset();
+		try {
+			move.write(recordOut);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); //Not thrown when writing to memory
+		}
+		if (pending.remaining() < MAX_RECORD_BYTES + 8) {
+			ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+			pending.flip();
+			larger.put(pending);
+			pending = larger;
+		}
+		byte[] bytes = record.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		pending.putInt(bytes.length).putInt((int)crc.getValue()).put(bytes);
+		appended++;
+		appendedBytes += bytes.length + 8;
+		notifyAll();
+		return appended;
+	}
+
+	/**
+	 * Saves a snapshot of the game taken right after the latest move was appended. The snapshot is written by
+	 * the writer once the moves it includes are synced, and replaces any snapshot that has not been written yet.
+	 * @param snapshot The snapshot
+	**/
+	public synchronized void saveSnapshot(GameSnapshot snapshot) {
+		checkOpen();
+		pendingSnapshot = snapshot;
+		snapshotMoves = appended;
+		snapshotOffset = appendedBytes;
+		notifyAll();
+	}
+
+	/**
+	 * Waits until the first moves appended are synced to the disk
+	 * @param number How many moves must be synced
+	 * @throws UncheckedIOException If the journal could not be written
+	**/
+	public synchronized void awaitDurable(long number) {
+		while (durable < number && failure == null) { //The writer syncs everything appended even once closed
+			waitUninterruptibly();
+		}
+		if (durable < number) {
+			checkOpen();
+		}
+	}
+
+	/**
+	 * Waits until every move appended so far is synced to the disk
+	 * @throws UncheckedIOException If the journal could not be written
+	**/
+	public void sync() {
+		long number;
+		synchronized (this) {
+			number = appended;
+		}
+		awaitDurable(number);
+	}
+
+	/**
+	 * Syncs every move appended so far, stops the writer, and closes the file
+	 * @throws IOException If the journal could not be written
+	**/
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Closes the journal and deletes it along with its snapshot, once the game is over
+	 * @throws IOException If the files can not be deleted
+	**/
+	public void delete() throws IOException {
+		try {
+			close();
+		} finally {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(snapshotFile);
+		}
+	}
+
+	/**
+	 * Gives the journal's file
+	 * @return file The file
+	**/
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Gives how many moves are synced to the disk
+	 * @return durable The number of moves
+	**/
+	public synchronized long getNumberOfDurableMoves() {
+		return durable;
+	}
+
+	/**
+	 * Gives how many times the file was synced, which is less than the number of moves when moves share syncs
+	 * @return syncs The number of syncs
+	**/
+	public synchronized long getNumberOfSyncs() {
+		return syncs;
+	}
+
+	/**
+	 * Writes and syncs the appended moves and saves the snapshots until the journal is closed.
+	 * Everything appended while one batch is being synced goes into the next batch.
+	**/
+	private void writeLoop() {
+		while (true) {
+			long batchEnd;
+			GameSnapshot snapshot;
+			long moves;
+			long offset;
+			synchronized (this) {
+				while (pending.position() == 0 && pendingSnapshot == null && !closed) {
+					waitUninterruptibly();
+				}
+				if (pending.position() == 0 && pendingSnapshot == null) {
+					return; //Closed with nothing left to write
+				}
+				ByteBuffer full = pending;
+				pending = writing;
+				writing = full;
+				batchEnd = appended;
+				snapshot = pendingSnapshot;
+				moves = snapshotMoves;
+				offset = snapshotOffset;
+				pendingSnapshot = null;
+			}
+			try {
+				writing.flip();
+				while (writing.hasRemaining()) {
+					channel.write(writing);
+				}
+				channel.force(false);
+				//The snapshot is only written once the moves it includes are on the disk
+				if (snapshot != null) {
+					writeSnapshot(snapshot, moves, offset);
+				}
+			} catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+					notifyAll();
+				}
+				return;
+			} finally {
+				writing.clear();
+			}
+			synchronized (this) {
+				durable = batchEnd;
+				syncs++;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Replaces the snapshot file. The snapshot is written to a temporary file that is then renamed,
+	 * so a crash leaves either the old snapshot or the new one.
+	 * @param snapshot The snapshot
+	 * @param moves How many moves the snapshot includes
+	 * @param offset Where the moves after the snapshot start in the journal
+	 * @throws IOException If the snapshot can not be written
+	**/
+	private void writeSnapshot(GameSnapshot snapshot, long moves, long offset) throws IOException {
+		byte[] bytes = snapshot.toBytes();
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 28);
+		buffer.putInt(SNAPSHOT_MAGIC).putLong(moves).putLong(offset).putInt(bytes.length).putInt((int)crc.getValue()).put(bytes);
+		buffer.flip();
+		Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			out.force(true);
+		}
+		Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a snapshot file
+	 * @param snapshotFile The file
+	 * @return saved The snapshot, null if there is none or it is not valid
+	 * @throws IOException If the file exists but can not be read
+	**/
+	private static SavedSnapshot readSnapshot(Path snapshotFile) throws IOException {
+		if (!Files.exists(snapshotFile)) {
+			return null;
+		}
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+		if (in.remaining() < 28 || in.getInt() != SNAPSHOT_MAGIC) {
+			return null;
+		}
+		long moves = in.getLong();
+		long offset = in.getLong();
+		int length = in.getInt();
+		int checksum = in.getInt();
+		if (length != in.remaining()) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(in.array(), in.position(), length);
+		if ((int)crc.getValue() != checksum) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		try {
+			return new SavedSnapshot(GameSnapshot.fromBytes(bytes), moves, offset);
+		} catch (IllegalArgumentException e) {
+			return null; //Replay the whole journal instead
+		}
+	}
+
+	/**
+	 * Throws if the writer failed or the journal was closed
+	**/
+	private void checkOpen() {
+		if (failure != null) {
+			throw new UncheckedIOException(String.format("Could not write %s", file), failure);
+		}
+		if (closed) {
+			throw new IllegalStateException(String.format("%s is closed", file));
+		}
+	}
+
+	private void waitUninterruptibly() {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the journal", e);
+		}
+	}
+
+	/**
+	 * Writes the deck and the players of a game
+	 * @param game The game
+	 * @return header The header, ready to be written
+	**/
+	private static ByteBuffer encodeHeader(ClueLogic game) {
+		ArrayList<byte[]> strings = new ArrayList<byte[]>();
+		CardList cards = game.getCards();
+		for (Card c : cards.getCards()) {
+			strings.add(c.getDescription().getBytes(StandardCharsets.UTF_8));
+		}
+		for (Player p : game.getPlayers()) {
+			strings.add(p.getName().getBytes(StandardCharsets.UTF_8));
+		}
+		int size = 4 + 2 + 4 * 4 + game.getPlayers().size() * 4;
+		for (byte[] s : strings) {
+			size += 4 + s.length;
+		}
+		ByteBuffer header = ByteBuffer.allocate(size);
+		header.putInt(MAGIC).putShort(VERSION);
+		header.putInt(cards.getNumberOfSuspects()).putInt(cards.getNumberOfWeapons()).putInt(cards.getNumberOfRooms());
+		header.putInt(game.getPlayers().size());
+		//Suspects, weapons, and rooms in the order the deck numbers them, then the players
+		for (int i = 0; i < strings.size(); i++) {
+			header.putInt(strings.get(i).length).put(strings.get(i));
+			if (i >= cards.getNumberOfCards()) {
+				header.putInt(game.getPlayers().get(i - cards.getNumberOfCards()).getNumberOfCards());
+			}
+		}
+		header.flip();
+		return header;
+	}
+
+	/**
+	 * Reads the deck and the players and creates the game they play
+	 * @param in The journal, positioned at its start
+	 * @param metrics The metrics the game records its moves in
+	 * @return game The game, before any moves are made
+	**/
+	private static ClueLogic decodeHeader(ByteBuffer in, EngineMetrics metrics) {
+		if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+			throw new IllegalArgumentException("Unknown format");
+		}
+		int numberOfSuspects = in.getInt();
+		int numberOfWeapons = in.getInt();
+		int numberOfRooms = in.getInt();
+		int numberOfPlayers = in.getInt();
+		ArrayList<String> suspects = readStrings(in, numberOfSuspects);
+		ArrayList<String> weapons = readStrings(in, numberOfWeapons);
+		ArrayList<String> rooms = readStrings(in, numberOfRooms);
+		ArrayList<Player> players = new ArrayList<Player>();
+		for (int i = 0; i < numberOfPlayers; i++) {
+			String name = readStrings(in, 1).get(0);
+			players.add(new Player(name, in.getInt()));
+		}
+		return new ClueLogic(new CardList(suspects, weapons, rooms), players, metrics);
+	}
+
+	private static ArrayList<String> readStrings(ByteBuffer in, int count) {
+		if (count < 0 || count > CardList.MAX_CARDS) {
+			throw new IllegalArgumentException("Bad count");
+		}
+		ArrayList<String> strings = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			byte[] s = new byte[in.getInt()];
+			in.get(s);
+			strings.add(new String(s, StandardCharsets.UTF_8));
+		}
+		return strings;
+	}
+}
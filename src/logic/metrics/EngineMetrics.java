@@ -0,0 +1,278 @@
+package src.logic.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import src.logic.Move;
+
+/**
+ * Counters and timers filled in by ClueLogic as moves are made. One set of metrics may be shared by many games,
+ * even games played on different threads, to add them all up. The metrics can be read through the getters,
+ * registered as a JMX MBean, or written in the Prometheus text format.
+**/
+public class EngineMetrics implements EngineMetricsMXBean {
+	//Variables
+	private final LongAdder[] moves; //How many moves of each type were made
+	private final LongAdder propagationEvents = new LongAdder();
+	private final LongAdder cardsResolved = new LongAdder();
+	private final LongAdder moveNanos = new LongAdder();
+	private final LongAdder unownedCheckNanos = new LongAdder();
+	private final LongAdder lastCardCheckNanos = new LongAdder();
+	private final Histogram eventsPerMove = new Histogram(); //Deductions applied by each move
+	private final Histogram cardsResolvedPerMove = new Histogram(); //Cards resolved by each move
+	private final Histogram undoRetractedFacts = new Histogram(); //Deductions taken back by each undo
+	private final LongAdder analysisCacheHits = new LongAdder(); //Analysis queries answered from the cache
+	private final LongAdder analysisCacheMisses = new LongAdder(); //Analysis queries that had to be calculated
+	private volatile int[] openSuggestions = new int[0]; //Open suggestions of each player after the latest move
+
+	//Methods
+
+	/**
+	 * Creates a set of metrics with everything at 0
+	**/
+	public EngineMetrics() {
+		moves = new LongAdder[Move.MoveType.values().length];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a move that was made
+	 * @param type The type of the move
+	 * @param events How many deductions the move applied
+	 * @param resolved How many cards became known because of the move
+	 * @param nanos How long the move took in nanoseconds
+	**/
+	public void recordMove(Move.MoveType type, long events, long resolved, long nanos) {
+		moves[type.ordinal()].increment();
+		propagationEvents.add(events);
+		eventsPerMove.record(events);
+		cardsResolved.add(Math.max(0, resolved));
+		cardsResolvedPerMove.record(resolved);
+		moveNanos.add(nanos);
+	}
+
+	/**
+	 * Records how many open suggestions each player has
+	 * @param counts The number of open suggestions of each player in turn order
+	**/
+	public void recordOpenSuggestions(int[] counts) {
+		openSuggestions = counts;
+	}
+
+	/**
+	 * Adds time spent checking if a card is owned by nobody
+	 * @param nanos The time in nanoseconds
+	**/
+	public void addUnownedCheckTime(long nanos) {
+		unownedCheckNanos.add(nanos);
+	}
+
+	/**
+	 * Adds time spent checking if a card is the last of its type that nobody has
+	 * @param nanos The time in nanoseconds
+	**/
+	public void addLastCardCheckTime(long nanos) {
+		lastCardCheckNanos.add(nanos);
+	}
+
+	/**
+	 * Records an undo
+	 * @param retractedFacts How many deductions depended on the move and were taken back
+	**/
+	public void recordUndo(int retractedFacts) {
+		undoRetractedFacts.record(retractedFacts);
+	}
+
+	/**
+	 * Records an analysis query, like probabilities or recommended suggestions
+	 * @param hit Whether the result was found in the cache
+	**/
+	public void recordAnalysisLookup(boolean hit) {
+		(hit ? analysisCacheHits : analysisCacheMisses).increment();
+	}
+
+	/**
+	 * Gives how many moves of a type were made
+	 * @param type The type of move
+	 * @return moves The number of moves of the type
+	**/
+	public long getMoves(Move.MoveType type) {
+		return moves[type.ordinal()].sum();
+	}
+
+	@Override
+	public long getMoves() {
+		long total = 0;
+		for (LongAdder count : moves) {
+			total += count.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public long getPropagationEvents() {
+		return propagationEvents.sum();
+	}
+
+	@Override
+	public long getMaxPropagationEventsPerMove() {
+		return eventsPerMove.getMax();
+	}
+
+	@Override
+	public long getCardsResolved() {
+		return cardsResolved.sum();
+	}
+
+	@Override
+	public long getMoveNanos() {
+		return moveNanos.sum();
+	}
+
+	@Override
+	public long getUnownedCheckNanos() {
+		return unownedCheckNanos.sum();
+	}
+
+	@Override
+	public long getLastCardCheckNanos() {
+		return lastCardCheckNanos.sum();
+	}
+
+	@Override
+	public long getUndos() {
+		return undoRetractedFacts.getCount();
+	}
+
+	@Override
+	public long getUndoRetractedFacts() {
+		return undoRetractedFacts.getSum();
+	}
+
+	@Override
+	public long getMaxUndoRetractedFacts() {
+		return undoRetractedFacts.getMax();
+	}
+
+	@Override
+	public long getAnalysisCacheHits() {
+		return analysisCacheHits.sum();
+	}
+
+	@Override
+	public long getAnalysisCacheMisses() {
+		return analysisCacheMisses.sum();
+	}
+
+	@Override
+	public int[] getOpenSuggestions() {
+		return openSuggestions.clone();
+	}
+
+	/**
+	 * Gives the deductions applied by each move
+	 * @return histogram The histogram of deductions per move
+	**/
+	public Histogram getEventsPerMove() {
+		return eventsPerMove;
+	}
+
+	/**
+	 * Gives the cards resolved by each move
+	 * @return histogram The histogram of cards resolved per move
+	**/
+	public Histogram getCardsResolvedPerMove() {
+		return cardsResolvedPerMove;
+	}
+
+	/**
+	 * Gives the deductions taken back by each undo
+	 * @return histogram The histogram of deductions taken back per undo
+	**/
+	public Histogram getRetractedFactsPerUndo() {
+		return undoRetractedFacts;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server so they can be read through JMX
+	 * @param name The name to register them under, like "game"
+	 * @throws JMException If the metrics could not be registered, for example if the name is taken
+	**/
+	public void register(String name) throws JMException {
+		ObjectName objectName = new ObjectName("src.logic:type=EngineMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+	}
+
+	/**
+	 * Gives the metrics in the Prometheus text format
+	 * @return text The metrics
+	**/
+	public String toPrometheusText() {
+		StringBuilder text = new StringBuilder();
+		text.append("# HELP clue_moves_total Moves made, not counting moves replayed by an undo.\n");
+		text.append("# TYPE clue_moves_total counter\n");
+		for (Move.MoveType type : Move.MoveType.values()) {
+			text.append(String.format("clue_moves_total{type=\"%s\"} %d\n", type.name().toLowerCase(), getMoves(type)));
+		}
+		appendHistogram(text, "clue_propagation_events_per_move", "Deductions applied by each move.", eventsPerMove);
+		appendHistogram(text, "clue_cards_resolved_per_move", "Cards that became known because of each move.", cardsResolvedPerMove);
+		appendHistogram(text, "clue_undo_retracted_facts", "Deductions taken back by each undo.", undoRetractedFacts);
+		appendCounter(text, "clue_move_seconds_total", "Time spent making moves.", getMoveNanos() / 1e9);
+		appendCounter(text, "clue_unowned_check_seconds_total", "Time spent checking if cards are owned by nobody.",
+			getUnownedCheckNanos() / 1e9);
+		appendCounter(text, "clue_last_card_check_seconds_total", "Time spent checking for the last unowned card of a type.",
+			getLastCardCheckNanos() / 1e9);
+		text.append("# HELP clue_analysis_queries_total Analysis queries, by whether they were answered from the cache.\n");
+		text.append("# TYPE clue_analysis_queries_total counter\n");
+		text.append(String.format("clue_analysis_queries_total{cache=\"hit\"} %d\n", getAnalysisCacheHits()));
+		text.append(String.format("clue_analysis_queries_total{cache=\"miss\"} %d\n", getAnalysisCacheMisses()));
+		text.append("# HELP clue_open_suggestions Open suggestions of each player after the latest move.\n");
+		text.append("# TYPE clue_open_suggestions gauge\n");
+		int[] counts = openSuggestions;
+		for (int i = 0; i < counts.length; i++) {
+			text.append(String.format("clue_open_suggestions{player=\"%d\"} %d\n", i, counts[i]));
+		}
+		return text.toString();
+	}
+
+	private static void appendCounter(StringBuilder text, String name, String help, double value) {
+		text.append(String.format("# HELP %s %s\n# TYPE %s counter\n%s %s\n", name, help, name, name, Double.toString(value)));
+	}
+
+	private static void appendHistogram(StringBuilder text, String name, String help, Histogram histogram) {
+		text.append(String.format("# HELP %s %s\n# TYPE %s histogram\n", name, help, name));
+		long cumulative = 0;
+		for (int i = 0; i < Histogram.getNumberOfBuckets(); i++) {
+			cumulative += histogram.getBucketCount(i);
+			long bound = Histogram.getBound(i);
+			String le = bound == Long.MAX_VALUE ? "+Inf" : Long.toString(bound);
+			text.append(String.format("%s_bucket{le=\"%s\"} %d\n", name, le, cumulative));
+		}
+		text.append(String.format("%s_sum %d\n%s_count %d\n", name, histogram.getSum(), name, histogram.getCount()));
+	}
+
+	/**
+	 * Writes the metrics to a file in the Prometheus text format. The file is written next to its final
+	 * place and then moved, so a collector reading it never sees half a file.
+	 * @param file The file to write
+	 * @throws IOException If the file could not be written
+	**/
+	public void writePrometheusFile(Path file) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temporary, toPrometheusText().getBytes(StandardCharsets.UTF_8));
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package src.logic.metrics;
+
+/**
+ * The engine's metrics as seen through JMX
+**/
+public interface EngineMetricsMXBean {
+	/**
+	 * Gives how many moves were made, not counting moves replayed by an undo
+	 * @return moves How many moves were made, not counting moves replayed by an undo
+	**/
+	long getMoves();
+
+	/**
+	 * Gives how many deductions were applied while making moves
+	 * @return propagationEvents How many deductions were applied while making moves
+	**/
+	long getPropagationEvents();
+
+	/**
+	 * Gives the most deductions applied by one move
+	 * @return maxPropagationEvents The most deductions applied by one move
+	**/
+	long getMaxPropagationEventsPerMove();
+
+	/**
+	 * Gives how many cards became known to be in a hand or the envelope
+	 * @return cardsResolved How many cards became known to be in a hand or the envelope
+	**/
+	long getCardsResolved();
+
+	/**
+	 * Gives time spent making moves in nanoseconds
+	 * @return moveNanos Time spent making moves in nanoseconds
+	**/
+	long getMoveNanos();
+
+	/**
+	 * Gives time spent checking if cards are owned by nobody in nanoseconds
+	 * @return unownedCheckNanos Time spent checking if cards are owned by nobody in nanoseconds
+	**/
+	long getUnownedCheckNanos();
+
+	/**
+	 * Gives time spent checking for the last card of a type in nanoseconds
+	 * @return lastCardCheckNanos Time spent checking for the last card of a type in nanoseconds
+	**/
+	long getLastCardCheckNanos();
+
+	/**
+	 * Gives how many moves were undone
+	 * @return undos How many moves were undone
+	**/
+	long getUndos();
+
+	/**
+	 * Gives how many deductions were taken back by undos
+	 * @return undoRetractedFacts How many deductions depended on undone moves
+	**/
+	long getUndoRetractedFacts();
+
+	/**
+	 * Gives the most deductions taken back by one undo
+	 * @return maxUndoRetractedFacts The most deductions taken back by one undo
+	**/
+	long getMaxUndoRetractedFacts();
+
+	/**
+	 * Gives how many analysis queries were answered from the cache
+	 * @return analysisCacheHits The number of queries answered from the cache
+	**/
+	long getAnalysisCacheHits();
+
+	/**
+	 * Gives how many analysis queries had to be calculated
+	 * @return analysisCacheMisses The number of queries calculated
+	**/
+	long getAnalysisCacheMisses();
+
+	/**
+	 * Gives how many open suggestions each player had after the latest move, in turn order
+	 * @return openSuggestions How many open suggestions each player had after the latest move, in turn order
+	**/
+	int[] getOpenSuggestions();
+}
@@ -0,0 +1,95 @@
+package src.logic.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often values fall in each power of two bucket, along with their count, sum, and largest value.
+ * Values can be recorded from any number of threads at once.
+**/
+public class Histogram {
+	//Variables
+	private static final int NUMBER_OF_BUCKETS = 16; //Buckets for 0, 1, 2, 4, ... 2^13 and everything larger
+	private final LongAdder[] buckets; //How many values were at most each bucket's bound and more than the bucket before's
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	//Methods
+
+	/**
+	 * Creates an empty histogram
+	**/
+	public Histogram() {
+		buckets = new LongAdder[NUMBER_OF_BUCKETS];
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a value
+	 * @param value The value, negative values are counted as 0
+	**/
+	public void record(long value) {
+		value = Math.max(0, value);
+		int bucket = value == 0 ? 0 : 64 - Long.numberOfLeadingZeros(value - 1) + 1;
+		buckets[Math.min(bucket, NUMBER_OF_BUCKETS - 1)].increment();
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Gives the upper bound of a bucket
+	 * @param bucket The index of the bucket
+	 * @return bound The largest value counted in the bucket, Long.MAX_VALUE for the last bucket
+	**/
+	public static long getBound(int bucket) {
+		if (bucket == NUMBER_OF_BUCKETS - 1) {
+			return Long.MAX_VALUE;
+		}
+		return bucket == 0 ? 0 : 1L << (bucket - 1);
+	}
+
+	/**
+	 * Gives the number of buckets
+	 * @return numberOfBuckets How many buckets there are
+	**/
+	public static int getNumberOfBuckets() {
+		return NUMBER_OF_BUCKETS;
+	}
+
+	/**
+	 * Gives how many values fell in a bucket
+	 * @param bucket The index of the bucket
+	 * @return count The number of values more than the previous bucket's bound and at most this one's
+	**/
+	public long getBucketCount(int bucket) {
+		return buckets[bucket].sum();
+	}
+
+	/**
+	 * Gives how many values were recorded
+	 * @return count The number of values
+	**/
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gives the sum of the values recorded
+	 * @return sum The sum
+	**/
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Gives the largest value recorded
+	 * @return max The largest value, 0 if nothing was recorded
+	**/
+	public long getMax() {
+		return max.get();
+	}
+}
@@ -0,0 +1,328 @@
+package src.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import src.logic.ClueLogic;
+import src.logic.card.*;
+import src.logic.events.AsyncEventSink;
+import src.logic.events.ConsoleEventSink;
+import src.logic.journal.MoveJournal;
+import src.logic.metrics.EngineMetrics;
+
+/**
+ * Serves games over HTTP with JSON requests and responses, so many clients can follow many games at once.
+ *   POST   /games             Creates a game (see GameSession) and gives its state, including its id
+ *   GET    /games/{id}        Gives a game's state
+ *   POST   /games/{id}/moves  Makes a move (see GameSession.doMove) and gives the game's new state
+ *   DELETE /games/{id}        Ends a game
+ *   GET    /metrics           Gives the metrics of every game in the Prometheus text format
+ * Errors are given as {"error": "..."} with status 400 for bad requests and 404 for unknown games.
+ * Every request runs on its own virtual thread when the Java runtime has them, or on a pool of threads if not.
+ * The games' moves are made on a second executor of the same kind, shared by every game.
+ * With a journal directory, every game's moves are journaled there and the games are recovered when the server restarts.
+ * What the games report, like moves being undone, is logged to standard error from a thread of its own.
+**/
+public class GameServer {
+	//Variables
+	private final CardList cards; //The deck every game is played with
+	private final ConcurrentHashMap<String, GameSession> games = new ConcurrentHashMap<String, GameSession>();
+	private final AtomicLong nextGame = new AtomicLong(1); //The number of the next game created
+	private final EngineMetrics metrics = new EngineMetrics(); //Metrics of every game
+	//Logs what every game reports without holding up the requests
+	private final AsyncEventSink events = new AsyncEventSink(new ConsoleEventSink(System.err), MAX_BUFFERED_EVENTS);
+	private final HttpServer server;
+	private final ExecutorService executor; //Runs the requests
+	private final ExecutorService moveExecutor; //Makes the moves of every game
+	private final Path journalDirectory; //Where the games are journaled, null if they are not
+	private static final String JOURNAL_SUFFIX = ".journal";
+	private static final int MAX_REQUEST_BYTES = 1 << 16; //The largest request body read
+	private static final int MAX_BUFFERED_EVENTS = 1024; //Events logged once this many are waiting are dropped
+
+	//Methods
+
+	/**
+	 * Creates a server, which does not take requests until it is started
+	 * @param cards The deck every game is played with
+	 * @param port The port to listen on, 0 for any free port
+	 * @param numberOfThreads How many requests, and how many games' moves, to run at once if the runtime has no virtual threads
+	 * @param journalDirectory Where to journal the games and recover them from, null to not journal them
+	 * @throws IOException If the port can not be listened on or the journal directory can not be read
+	**/
+	public GameServer(CardList cards, int port, int numberOfThreads, Path journalDirectory) throws IOException {
+		this.cards = cards;
+		this.journalDirectory = journalDirectory;
+		moveExecutor = newExecutor(numberOfThreads);
+		if (journalDirectory != null) {
+			Files.createDirectories(journalDirectory);
+			recoverGames();
+		}
+		executor = newExecutor(numberOfThreads);
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.setExecutor(executor);
+		server.createContext("/games", this::handleGames);
+		server.createContext("/metrics", this::handleMetrics);
+	}
+
+	/**
+	 * Creates an executor for requests or for moves, one virtual thread per task if the runtime has them.
+	 * They are looked up by reflection so the solver still builds and runs on runtimes without them.
+	 * @param numberOfThreads How many threads to use if there are no virtual threads
+	 * @return executor The executor
+	**/
+	static ExecutorService newExecutor(int numberOfThreads) {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return Executors.newFixedThreadPool(numberOfThreads);
+		}
+	}
+
+	/**
+	 * Recovers every game journaled in the journal directory. A journal that can not be recovered is left
+	 * where it is and its game is skipped.
+	 * @throws IOException If the directory can not be read
+	**/
+	private void recoverGames() throws IOException {
+		long lastGame = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDirectory, "*" + JOURNAL_SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				String id = name.substring(0, name.length() - JOURNAL_SUFFIX.length());
+				try {
+					lastGame = Math.max(lastGame, Long.parseLong(id));
+					ClueLogic game = MoveJournal.recover(file, metrics);
+					games.put(id, new GameSession(id, game, events, moveExecutor));
+				} catch (IOException | NumberFormatException e) {
+					System.err.println(String.format("Could not recover game %s: %s", id, e.getMessage()));
+				}
+			}
+		}
+		nextGame.set(lastGame + 1);
+	}
+
+	/**
+	 * Starts taking requests
+	**/
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops taking requests, waits a moment for the ones running to finish, closes the games' journals,
+	 * and logs the events still waiting
+	**/
+	public void stop() {
+		server.stop(1);
+		executor.shutdown();
+		for (GameSession game : games.values()) {
+			try {
+				game.close(false);
+			} catch (IOException e) {
+				System.err.println(String.format("Could not close the journal of game %s: %s", game.getId(), e.getMessage()));
+			}
+		}
+		moveExecutor.shutdown();
+		events.close();
+		if (events.getDropped() > 0) {
+			System.err.println(String.format("%d events were not logged", events.getDropped()));
+		}
+	}
+
+	/**
+	 * Gives the port the server listens on
+	 * @return port The port
+	**/
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Gives the metrics of every game played on the server
+	 * @return metrics The metrics
+	**/
+	public EngineMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Gives how many games are open
+	 * @return numberOfGames The number of games
+	**/
+	public int getNumberOfGames() {
+		return games.size();
+	}
+
+	/**
+	 * Handles a request under /games
+	 * @param exchange The request and its response
+	 * @throws IOException If the response can not be sent
+	**/
+	private void handleGames(HttpExchange exchange) throws IOException {
+		try {
+			String[] path = exchange.getRequestURI().getPath().split("/");
+			String method = exchange.getRequestMethod();
+			//The path splits into "", "games", and then the game's id and "moves"
+			if (path.length == 2 && method.equals("POST")) {
+				String id = Long.toString(nextGame.getAndIncrement());
+				Path journalFile = journalDirectory == null ? null : journalDirectory.resolve(id + JOURNAL_SUFFIX);
+				GameSession game = new GameSession(id, cards, readObject(exchange), metrics, journalFile, events, moveExecutor);
+				games.put(id, game);
+				send(exchange, 201, game.toJson());
+				return;
+			} else if (path.length < 3 || path.length > 4 || path.length == 4 && !path[3].equals("moves")) {
+				sendError(exchange, 404, "Not found");
+				return;
+			}
+			GameSession game = games.get(path[2]);
+			if (game == null) {
+				sendError(exchange, 404, String.format("There is no game %s", path[2]));
+			} else if (path.length == 4 && method.equals("POST")) {
+				boolean done = game.doMove(readObject(exchange));
+				send(exchange, 200, String.format("{\"done\":%b,\"game\":%s}", done, game.toJson()));
+			} else if (path.length == 3 && method.equals("GET")) {
+				send(exchange, 200, game.toJson());
+			} else if (path.length == 3 && method.equals("DELETE")) {
+				games.remove(path[2]);
+				game.close(true);
+				send(exchange, 200, "{}");
+			} else {
+				sendError(exchange, 405, String.format("%s is not allowed here", method));
+			}
+		} catch (IllegalArgumentException e) {
+			sendError(exchange, 400, e.getMessage());
+		} catch (IOException | RuntimeException e) {
+			sendError(exchange, 500, e.toString());
+		}
+	}
+
+	/**
+	 * Handles a request for the metrics
+	 * @param exchange The request and its response
+	 * @throws IOException If the response can not be sent
+	**/
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+		byte[] body = metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Reads a request's body as a JSON object
+	 * @param exchange The request
+	 * @return object The object
+	 * @throws IOException If the body can not be read
+	 * @throws IllegalArgumentException If the body is too big or not a JSON object
+	**/
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> readObject(HttpExchange exchange) throws IOException {
+		byte[] body;
+		try (InputStream in = exchange.getRequestBody()) {
+			body = in.readNBytes(MAX_REQUEST_BYTES + 1);
+		}
+		if (body.length > MAX_REQUEST_BYTES) {
+			throw new IllegalArgumentException("The request is too big");
+		}
+		Object value = Json.parse(new String(body, StandardCharsets.UTF_8));
+		if (!(value instanceof Map)) {
+			throw new IllegalArgumentException("The request must be a JSON object");
+		}
+		return (Map<String, Object>)value;
+	}
+
+	/**
+	 * Sends a JSON response
+	 * @param exchange The request to respond to
+	 * @param status The HTTP status
+	 * @param json The response
+	 * @throws IOException If the response can not be sent
+	**/
+	private static void send(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Sends an error as JSON
+	 * @param exchange The request to respond to
+	 * @param status The HTTP status
+	 * @param message What went wrong
+	 * @throws IOException If the response can not be sent
+	**/
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		send(exchange, status, String.format("{\"error\":%s}", Json.quote(String.valueOf(message))));
+	}
+
+	/**
+	 * Runs the server from the command line until it is killed
+	 * Usage: --serve [--port n] [--threads n] [--deck file] [--journal directory]
+	 * @param args The command line arguments
+	**/
+	public static void main(String[] args) {
+		int port = 8080;
+		int numberOfThreads = 4 * Runtime.getRuntime().availableProcessors();
+		String deckFile = null;
+		Path journalDirectory = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--serve":
+						break;
+					case "--port":
+						port = Integer.parseInt(args[++i]);
+						break;
+					case "--threads":
+						numberOfThreads = Integer.parseInt(args[++i]);
+						break;
+					case "--deck":
+						deckFile = args[++i];
+						break;
+					case "--journal":
+						journalDirectory = Paths.get(args[++i]);
+						break;
+					default:
+						throw new IllegalArgumentException(args[i]);
+				}
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println("Usage: --serve [--port n] [--threads n] [--deck file] [--journal directory]");
+			System.exit(2);
+		}
+		try {
+			CardList cards = deckFile == null ? new CardList() : CardList.load(Paths.get(deckFile));
+			GameServer server = new GameServer(cards, port, numberOfThreads, journalDirectory);
+			try {
+				server.getMetrics().register("server");
+			} catch (JMException e) {
+				System.err.println(String.format("Metrics are not available through JMX: %s", e.getMessage()));
+			}
+			server.start();
+			System.err.println(String.format("Serving games on port %d", server.getPort()));
+			Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(String.format("Could not start the server: %s", e.getMessage()));
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package src.server;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import src.logic.*;
+import src.logic.analysis.DealConstraints;
+import src.logic.card.*;
+import src.logic.events.*;
+import src.logic.journal.MoveJournal;
+import src.logic.metrics.EngineMetrics;
+
+/**
+ * One game played through the game service. Each session has its own solver, and moves for the same game
+ * are submitted to a queue that makes them one at a time on an executor shared by the games, since a solver
+ * can only be used by one thread at a time. Reading the game's state does not wait for moves, it reads the view the solver
+ * published after its last move.
+ * Players are given in requests by their number in turn order, starting from 0, or by their name,
+ * and cards by their description.
+**/
+class GameSession {
+	//Variables
+	private final String id; //The name the game is found by
+	private final CardList cards; //The deck the game is played with
+	private final ClueLogic game; //The game's solver, only used by the queue once the session is created
+	private final MoveQueue moves; //Makes the moves requested
+	private static final int MAX_QUEUED_MOVES = 256; //Most moves waiting to be made at once
+
+	//Methods
+
+	/**
+	 * Creates a game from a request of the form
+	 * {"players": [{"name": "Alice", "cards": 6}, ...], "startCards": ["Knife", ...]}
+	 * The first player is the user and the start cards are the user's cards, which may also be given later as moves.
+	 * @param id The name the game is found by
+	 * @param cards The deck the game is played with
+	 * @param request The request
+	 * @param metrics The metrics the solver records its moves in
+	 * @param journalFile The file to journal the game's moves in, null to not journal them
+	 * @param events Where to log what the game reports
+	 * @param moveExecutor Makes the game's moves, shared with other games
+	 * @throws IllegalArgumentException If the request does not describe a valid game
+	 * @throws IOException If the journal can not be created
+	**/
+	GameSession(String id, CardList cards, Map<String, Object> request, EngineMetrics metrics, Path journalFile,
+			EventSink events, Executor moveExecutor) throws IOException {
+		this.id = id;
+		this.cards = cards;
+		ArrayList<Player> players = new ArrayList<Player>();
+		ArrayList<String> names = new ArrayList<String>();
+		int totalCards = 0;
+		ArrayList<?> playerList = getList(request, "players");
+		if (playerList.size() > DealConstraints.MAX_PLAYERS) {
+			throw new IllegalArgumentException(String.format("A game can have at most %d players", DealConstraints.MAX_PLAYERS));
+		}
+		for (Object value : playerList) {
+			if (!(value instanceof Map)) {
+				throw new IllegalArgumentException("Each player needs a name and a number of cards");
+			}
+			Map<?, ?> player = (Map<?, ?>)value;
+			if (!(player.get("name") instanceof String) || ((String)player.get("name")).length() == 0) {
+				throw new IllegalArgumentException("Each player needs a name");
+			}
+			String name = (String)player.get("name");
+			if (names.contains(name)) {
+				throw new IllegalArgumentException(String.format("There is more than one player named %s", name));
+			}
+			int numberOfCards = getInt(player.get("cards"), "cards");
+			if (numberOfCards < 0) {
+				throw new IllegalArgumentException(String.format("%s can not have %d cards", name, numberOfCards));
+			}
+			names.add(name);
+			players.add(new Player(name, numberOfCards));
+			totalCards += numberOfCards;
+		}
+		if (players.size() < 2) {
+			throw new IllegalArgumentException("A game needs at least two players");
+		}
+		if (totalCards != cards.getNumberOfCards() - 3) {
+			throw new IllegalArgumentException(String.format("The players must have %d cards between them", cards.getNumberOfCards() - 3));
+		}
+		ArrayList<Card> startCards = new ArrayList<Card>();
+		if (request.containsKey("startCards")) {
+			for (Object card : getList(request, "startCards")) {
+				startCards.add(findCard(card));
+			}
+		}
+		game = new ClueLogic(cards, players, metrics);
+		logEvents(events);
+		if (journalFile != null) {
+			MoveJournal.create(journalFile, game);
+		}
+		for (Card card : startCards) {
+			game.doMove(Move.startCard(card.getIndex()));
+		}
+		moves = new MoveQueue(game, MAX_QUEUED_MOVES, moveExecutor);
+	}
+
+	/**
+	 * Resumes a game recovered from its journal
+	 * @param id The name the game is found by
+	 * @param game The recovered game
+	 * @param events Where to log what the game reports
+	 * @param moveExecutor Makes the game's moves, shared with other games
+	**/
+	GameSession(String id, ClueLogic game, EventSink events, Executor moveExecutor) {
+		this.id = id;
+		this.cards = game.getCards();
+		this.game = game;
+		logEvents(events);
+		moves = new MoveQueue(game, MAX_QUEUED_MOVES, moveExecutor);
+	}
+
+	/**
+	 * Passes what the game reports on to a sink, naming the game in each event
+	 * @param events The sink
+	**/
+	private void logEvents(EventSink events) {
+		game.setEventSink(event -> events.publish(new EngineEvent(event.getType(), String.format("Game %s: %s", id, event.getMessage()))));
+	}
+
+	/**
+	 * Makes the moves already requested, then stops journaling the game, syncing the moves made so far
+	 * @param delete Whether to delete the journal, when the game is over
+	 * @throws IOException If the journal can not be written or deleted
+	**/
+	synchronized void close(boolean delete) throws IOException {
+		moves.close();
+		MoveJournal journal = game.getJournal();
+		if (journal != null) {
+			game.setJournal(null);
+			if (delete) {
+				journal.delete();
+			} else {
+				journal.close();
+			}
+		}
+	}
+
+	/**
+	 * Makes a move from a request, one of
+	 * {"type": "start", "card": "Knife"}
+	 * {"type": "suggestion", "player": 1, "room": "Hall", "suspect": "Mr. Green", "weapon": "Rope", "resolvingPlayer": 2}
+	 * {"type": "card", "player": 2, "card": "Rope"}
+	 * {"type": "undo", "move": 3}
+	 * A suggestion nobody could disprove has no resolving player, or null. Undo numbers moves from 0,
+	 * not counting start cards, as they are listed in the game's state.
+	 * If the game is journaled, this returns once the move is synced to the disk. The moves the queue makes
+	 * at once share a sync. If the sync fails the game takes no more moves, and the moves of that sync stay made
+	 * but fail with a MoveQueue.MoveNotSavedException since they may be lost when the server restarts.
+	 * @param request The request
+	 * @return done Whether the move could be made, false if the card was already known
+	 * @throws IllegalArgumentException If the request is not a valid move, or is an undo of a move that is no longer there
+	 * @throws IllegalStateException If the game was closed, or its journal could not be synced
+	**/
+	boolean doMove(Map<String, Object> request) {
+		Move move = toMove(request);
+		boolean done;
+		try {
+			done = moves.submit(move).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw e;
+		}
+		if (!done && move.getType() == Move.MoveType.UNDO) { //Other moves were undone before it was made
+			throw new IllegalArgumentException(String.format("There is no move %d to undo", move.getNumber()));
+		}
+		return done;
+	}
+
+	/**
+	 * Reads a move from a request. An undo is checked against the moves made so far, so it may still fail
+	 * if other moves are undone before it is made.
+	 * @param request The request
+	 * @return move The move
+	 * @throws IllegalArgumentException If the request is not a valid move
+	**/
+	private Move toMove(Map<String, Object> request) {
+		Object type = request.get("type");
+		if ("start".equals(type)) {
+			return Move.startCard(findCard(request.get("card")).getIndex());
+		} else if ("suggestion".equals(type)) {
+			int player = findPlayer(request.get("player"));
+			Object resolving = request.get("resolvingPlayer");
+			int resolvingPlayer = resolving == null ? player : findPlayer(resolving);
+			Card room = findCard(request.get("room"), TypeOfCard.ROOM);
+			Card suspect = findCard(request.get("suspect"), TypeOfCard.SUSPECT);
+			Card weapon = findCard(request.get("weapon"), TypeOfCard.WEAPON);
+			return Move.suggestion(player, new Suggestion(room, suspect, weapon), resolvingPlayer);
+		} else if ("card".equals(type)) {
+			Player player = game.getPlayers().get(findPlayer(request.get("player")));
+			return Move.addCard(findCard(request.get("card")), player);
+		} else if ("undo".equals(type)) {
+			int move = getInt(request.get("move"), "move");
+			if (move < 0 || move >= game.getView().getNumberOfMoves()) {
+				throw new IllegalArgumentException(String.format("There is no move %d to undo", move));
+			}
+			return Move.undo(move);
+		}
+		throw new IllegalArgumentException("A move's type must be start, suggestion, card, or undo");
+	}
+
+	/**
+	 * Gives everything known about the game as JSON, as of the last move made
+	 * @return json The game's state
+	**/
+	String toJson() {
+		GameView view = game.getView();
+		StringBuilder json = new StringBuilder();
+		json.append("{\"id\":").append(Json.quote(id));
+		json.append(",\"moves\":[");
+		ArrayList<String> moves = view.getMoves();
+		for (int i = 0; i < moves.size(); i++) {
+			json.append(i == 0 ? "" : ",").append(Json.quote(moves.get(i)));
+		}
+		json.append("],\"players\":[");
+		ArrayList<GameView.PlayerView> players = view.getPlayers();
+		for (int i = 0; i < players.size(); i++) {
+			json.append(i == 0 ? "" : ",");
+			appendHolder(json, players.get(i));
+		}
+		json.append("],\"envelope\":");
+		appendHolder(json, view.getSolution());
+		return json.append('}').toString();
+	}
+
+	/**
+	 * Writes what is known about a player or the envelope as JSON
+	 * @param json Where to write
+	 * @param holder The player or the solution
+	**/
+	private void appendHolder(StringBuilder json, GameView.PlayerView holder) {
+		json.append("{\"name\":").append(Json.quote(holder.getName()));
+		json.append(",\"cards\":").append(holder.getNumberOfCards());
+		json.append(",\"known\":");
+		appendCards(json, holder.getKnownMask());
+		json.append(",\"notPossible\":");
+		appendCards(json, holder.getNotPossibleMask());
+		json.append(",\"suggestions\":[");
+		CardSet[] suggestions = holder.getSuggestionMasks();
+		for (int i = 0; i < suggestions.length; i++) {
+			json.append(i == 0 ? "" : ",");
+			appendCards(json, suggestions[i]);
+		}
+		json.append("]}");
+	}
+
+	/**
+	 * Writes the descriptions of a set of cards as a JSON array
+	 * @param json Where to write
+	 * @param set The cards
+	**/
+	private void appendCards(StringBuilder json, CardSet set) {
+		json.append('[');
+		for (int c = set.nextCard(0); c >= 0; c = set.nextCard(c + 1)) {
+			json.append(json.charAt(json.length() - 1) == '[' ? "" : ",").append(Json.quote(cards.getCard(c).getDescription()));
+		}
+		json.append(']');
+	}
+
+	/**
+	 * Finds a card by its description
+	 * @param description The description
+	 * @return card The card
+	 * @throws IllegalArgumentException If there is no such card
+	**/
+	private Card findCard(Object description) {
+		Card card = description instanceof String ? cards.findCard((String)description) : null;
+		if (card == null) {
+			throw new IllegalArgumentException(String.format("Unknown card %s", description));
+		}
+		return card;
+	}
+
+	/**
+	 * Finds a card of a type by its description
+	 * @param description The description
+	 * @param type The type the card must be
+	 * @return card The card
+	 * @throws IllegalArgumentException If there is no such card of the type
+	**/
+	private Card findCard(Object description, TypeOfCard type) {
+		Card card = findCard(description);
+		if (card.getType() != type) {
+			throw new IllegalArgumentException(String.format("%s is not a %s", card.getDescription(), type.name().toLowerCase()));
+		}
+		return card;
+	}
+
+	/**
+	 * Finds a player by their number in turn order or their name
+	 * @param player The number, starting from 0, or the name
+	 * @return index The player's number in turn order
+	 * @throws IllegalArgumentException If there is no such player
+	**/
+	private int findPlayer(Object player) {
+		ArrayList<Player> players = game.getPlayers();
+		if (player instanceof String) {
+			for (int i = 0; i < players.size(); i++) {
+				if (players.get(i).getName().equalsIgnoreCase((String)player)) {
+					return i;
+				}
+			}
+		} else if (player instanceof Double) {
+			int index = getInt(player, "player");
+			if (index >= 0 && index < players.size()) {
+				return index;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unknown player %s", player));
+	}
+
+	/**
+	 * Gives a whole number from a request
+	 * @param value The value in the request
+	 * @param name The name of the value used in errors
+	 * @return number The number
+	 * @throws IllegalArgumentException If the value is not a whole number
+	**/
+	private static int getInt(Object value, String name) {
+		if (!(value instanceof Double) || (Double)value != Math.rint((Double)value)) {
+			throw new IllegalArgumentException(String.format("%s must be a whole number", name));
+		}
+		return ((Double)value).intValue();
+	}
+
+	/**
+	 * Gives a list from a request
+	 * @param request The request
+	 * @param name The name of the list
+	 * @return list The list
+	 * @throws IllegalArgumentException If the request has no such list
+	**/
+	private static ArrayList<?> getList(Map<String, Object> request, String name) {
+		if (!(request.get(name) instanceof ArrayList)) {
+			throw new IllegalArgumentException(String.format("%s must be a list", name));
+		}
+		return (ArrayList<?>)request.get(name);
+	}
+
+	/**
+	 * Gives the name the game is found by
+	 * @return id The game's name
+	**/
+	String getId() {
+		return id;
+	}
+}
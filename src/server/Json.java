@@ -0,0 +1,241 @@
+package src.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Just enough JSON for the game service. Objects are read into LinkedHashMaps, arrays into ArrayLists,
+ * numbers into Doubles, and true, false, and null into Booleans and null.
+ * Text is written by the callers with quote() for the strings. Values nested more than MAX_DEPTH deep are refused.
+**/
+class Json {
+	//Variables
+	private final String text; //The JSON being read
+	private int position; //Where the next character is read from
+	private int depth; //How many objects and arrays the value being read is in
+	private static final int MAX_DEPTH = 64; //The most objects and arrays read inside each other, so the stack can not overflow
+
+	//Methods
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Reads a JSON value
+	 * @param text The JSON text
+	 * @return value The value, a LinkedHashMap, ArrayList, String, Double, Boolean, or null
+	 * @throws IllegalArgumentException If the text is not valid JSON
+	**/
+	static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.readValue();
+		json.skipWhitespace();
+		if (json.position != text.length()) {
+			throw json.error("Unexpected text after the value");
+		}
+		return value;
+	}
+
+	/**
+	 * Writes a string as a JSON string, with quotes
+	 * @param value The string
+	 * @return json The quoted string
+	**/
+	static String quote(String value) {
+		StringBuilder quoted = new StringBuilder(value.length() + 2);
+		quoted.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					quoted.append("\\\"");
+					break;
+				case '\\':
+					quoted.append("\\\\");
+					break;
+				case '\n':
+					quoted.append("\\n");
+					break;
+				case '\r':
+					quoted.append("\\r");
+					break;
+				case '\t':
+					quoted.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						quoted.append(String.format("\\u%04x", (int)c));
+					} else {
+						quoted.append(c);
+					}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(String.format("%s at character %d", message, position));
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+
+	private char peek() {
+		skipWhitespace();
+		if (position == text.length()) {
+			throw error("Unexpected end of JSON");
+		}
+		return text.charAt(position);
+	}
+
+	private void expect(char c) {
+		if (peek() != c) {
+			throw error(String.format("Expected '%c'", c));
+		}
+		position++;
+	}
+
+	private Object readValue() {
+		char c = peek();
+		if (c == '{' || c == '[') {
+			if (depth == MAX_DEPTH) {
+				throw error(String.format("More than %d objects and arrays inside each other", MAX_DEPTH));
+			}
+			depth++;
+			try {
+				return c == '{' ? readObject() : readArray();
+			} finally {
+				depth--;
+			}
+		}
+		switch (c) {
+			case '"':
+				return readString();
+			case 't':
+				return readWord("true", Boolean.TRUE);
+			case 'f':
+				return readWord("false", Boolean.FALSE);
+			case 'n':
+				return readWord("null", null);
+			default:
+				return readNumber();
+		}
+	}
+
+	private LinkedHashMap<String, Object> readObject() {
+		LinkedHashMap<String, Object> object = new LinkedHashMap<String, Object>();
+		expect('{');
+		if (peek() == '}') {
+			position++;
+			return object;
+		}
+		while (true) {
+			if (peek() != '"') {
+				throw error("Expected a name");
+			}
+			String name = readString();
+			expect(':');
+			object.put(name, readValue());
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect('}');
+				return object;
+			}
+		}
+	}
+
+	private ArrayList<Object> readArray() {
+		ArrayList<Object> array = new ArrayList<Object>();
+		expect('[');
+		if (peek() == ']') {
+			position++;
+			return array;
+		}
+		while (true) {
+			array.add(readValue());
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect(']');
+				return array;
+			}
+		}
+	}
+
+	private String readString() {
+		expect('"');
+		StringBuilder value = new StringBuilder();
+		while (true) {
+			if (position >= text.length()) {
+				throw error("Unterminated string");
+			}
+			char c = text.charAt(position++);
+			if (c == '"') {
+				return value.toString();
+			} else if (c != '\\') {
+				value.append(c);
+				continue;
+			}
+			if (position >= text.length()) {
+				throw error("Unterminated string");
+			}
+			char escaped = text.charAt(position++);
+			switch (escaped) {
+				case 'b':
+					value.append('\b');
+					break;
+				case 'f':
+					value.append('\f');
+					break;
+				case 'n':
+					value.append('\n');
+					break;
+				case 'r':
+					value.append('\r');
+					break;
+				case 't':
+					value.append('\t');
+					break;
+				case 'u':
+					if (position + 4 > text.length()) {
+						throw error("Bad unicode escape");
+					}
+					try {
+						value.append((char)Integer.parseInt(text.substring(position, position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Bad unicode escape");
+					}
+					position += 4;
+					break;
+				default:
+					value.append(escaped);
+			}
+		}
+	}
+
+	private Object readWord(String word, Object value) {
+		if (!text.startsWith(word, position)) {
+			throw error("Unexpected value");
+		}
+		position += word.length();
+		return value;
+	}
+
+	private Double readNumber() {
+		int start = position;
+		while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+			position++;
+		}
+		try {
+			return Double.valueOf(text.substring(start, position));
+		} catch (NumberFormatException e) {
+			position = start;
+			throw error("Unexpected value");
+		}
+	}
+}
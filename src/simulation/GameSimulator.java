@@ -0,0 +1,266 @@
+package src.simulation;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import javax.management.JMException;
+import src.logic.analysis.DealConstraints;
+import src.logic.card.*;
+import src.logic.metrics.EngineMetrics;
+
+/**
+ * Plays many simulated games on several threads and streams their logs to a writer as each game finishes.
+ * Game numbers are handed out to the threads one at a time and every game is seeded from its number,
+ * so the same seed gives the same games however many threads there are, only in a different order.
+**/
+public class GameSimulator {
+	//Variables
+	private final CardList cards; //The deck every game is dealt from
+	private final int numberOfPlayers; //Players in each game, 0 for a random number from MIN_PLAYERS to MAX_RANDOM_PLAYERS
+	private final int maxTurns; //The most suggestions in a game
+	private final long seed; //The seed every game's own seed is made from
+	private final AtomicLong nextGame = new AtomicLong(); //The number of the next game to play
+	private final AtomicLong gamesPlayed = new AtomicLong(); //Games finished
+	private final AtomicLong gamesWon = new AtomicLong(); //Games a player solved before the turns ran out
+	private final AtomicLong gamesSolved = new AtomicLong(); //Games where the solver knew the envelope
+	private final AtomicLong totalTurns = new AtomicLong(); //Turns played in all the games
+	private final AtomicLong solverTurns = new AtomicLong(); //Turns until the solver knew the envelope, in solved games
+	private final AtomicLong mistakes = new AtomicLong(); //Deductions that disagreed with the real deal
+	private final AtomicLong gamesAccused = new AtomicLong(); //Games where the advisor told the user to accuse
+	private final AtomicLong accusationTurns = new AtomicLong(); //Turns until the advisor told the user to accuse
+	private final AtomicLong wrongAccusations = new AtomicLong(); //Accusations the advisor got wrong
+	private double accusationThreshold; //The chance the advisor needs to tell the user to accuse, 0 for no advisor
+	private final EngineMetrics metrics = new EngineMetrics(); //Metrics of the solvers of every game
+	private volatile IOException writeError; //The first error writing a log, which stops every thread
+	private static final int MIN_PLAYERS = 3;
+	private static final int MAX_RANDOM_PLAYERS = 6; //The most players in a game when the number is not given
+
+	//Methods
+
+	/**
+	 * Creates a simulator
+	 * @param cards The deck every game is dealt from
+	 * @param numberOfPlayers Players in each game, 0 for a random number of players in each game
+	 * @param maxTurns The most suggestions in a game
+	 * @param seed The seed all the games are made from
+	**/
+	public GameSimulator(CardList cards, int numberOfPlayers, int maxTurns, long seed) {
+		this.cards = cards;
+		this.numberOfPlayers = numberOfPlayers;
+		this.maxTurns = maxTurns;
+		this.seed = seed;
+	}
+
+	/**
+	 * Has an accusation advisor follow the solver of every game played from now on
+	 * @param threshold The chance the most likely envelope needs for the user to accuse, 0 for no advisor
+	**/
+	public void setAccusationThreshold(double threshold) {
+		if (threshold < 0 || threshold > 1) {
+			throw new IllegalArgumentException("The threshold must be from 0 to 1");
+		}
+		accusationThreshold = threshold;
+	}
+
+	/**
+	 * Plays games and writes each one's log as soon as it is finished
+	 * @param numberOfGames How many games to play
+	 * @param out Where to write the logs, null to not keep them
+	 * @param numberOfThreads How many games to play at once
+	 * @throws IOException If a log could not be written
+	 * @throws InterruptedException If interrupted while waiting for the games
+	**/
+	public void run(long numberOfGames, Writer out, int numberOfThreads) throws IOException, InterruptedException {
+		ExecutorService threads = Executors.newFixedThreadPool(numberOfThreads);
+		for (int t = 0; t < numberOfThreads; t++) {
+			threads.execute(() -> {
+				for (long game = nextGame.getAndIncrement(); game < numberOfGames && writeError == null; game = nextGame.getAndIncrement()) {
+					playGame(game, out);
+				}
+			});
+		}
+		threads.shutdown();
+		threads.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		if (writeError != null) {
+			throw writeError;
+		}
+	}
+
+	/**
+	 * Plays one game, counts how it went, and writes its log
+	 * @param number The number of the game
+	 * @param out Where to write the log, null to not keep it
+	**/
+	private void playGame(long number, Writer out) {
+		long gameSeed = seed * 0x9E3779B97F4A7C15L + number;
+		int players = numberOfPlayers;
+		if (players == 0) {
+			players = MIN_PLAYERS + (int)Math.floorMod(gameSeed ^ (gameSeed >>> 29), (long)(MAX_RANDOM_PLAYERS - MIN_PLAYERS + 1));
+		}
+		SimulatedGame game = new SimulatedGame(cards, players, gameSeed, metrics);
+		if (accusationThreshold > 0) {
+			game.adviseAccusations(accusationThreshold);
+		}
+		game.play(maxTurns);
+		gamesPlayed.incrementAndGet();
+		totalTurns.addAndGet(game.getTurns());
+		mistakes.addAndGet(game.countMistakes());
+		if (game.getWinner() != -1) {
+			gamesWon.incrementAndGet();
+		}
+		if (game.getSolverTurn() != -1) {
+			gamesSolved.incrementAndGet();
+			solverTurns.addAndGet(game.getSolverTurn());
+		}
+		if (game.getAccusationTurn() != -1) {
+			gamesAccused.incrementAndGet();
+			accusationTurns.addAndGet(game.getAccusationTurn());
+			if (!game.isAccusationRight()) {
+				wrongAccusations.incrementAndGet();
+			}
+		}
+		if (out != null) {
+			String log = String.format("# game %d\n%s", number, game.getLog());
+			try {
+				synchronized (out) {
+					out.write(log);
+				}
+			} catch (IOException e) {
+				writeError = e;
+			}
+		}
+	}
+
+	/**
+	 * Gives a summary of the games played so far
+	 * @return summary How many games were won and solved, how long they took, how many mistakes the solver made,
+	 * and with an advisor, how soon it told the user to accuse and how often it was wrong
+	**/
+	public String getSummary() {
+		long games = gamesPlayed.get();
+		String summary = String.format("games=%d won=%d solverSolved=%d averageTurns=%.1f averageSolverTurns=%.1f mistakes=%d",
+			games, gamesWon.get(), gamesSolved.get(), (double)totalTurns.get() / Math.max(1, games),
+			(double)solverTurns.get() / Math.max(1, gamesSolved.get()), mistakes.get());
+		if (accusationThreshold > 0) {
+			summary += String.format(" accused=%d averageAccusationTurns=%.1f wrongAccusations=%d", gamesAccused.get(),
+				(double)accusationTurns.get() / Math.max(1, gamesAccused.get()), wrongAccusations.get());
+		}
+		return summary;
+	}
+
+	/**
+	 * Gives the metrics of the solvers of every game played so far
+	 * @return metrics The metrics
+	**/
+	public EngineMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Runs the simulator from the command line. The logs are compressed if the output's name ends in .gz
+	 * Usage: --simulate <games> <output or -> [--players n] [--turns n] [--seed n] [--threads n] [--deck file] [--metrics file] [--accuse-at p]
+	 * Games are dealt from the deck in the deck file (see CardList) or the standard deck. The solvers' metrics can be read through JMX while the games are played and are written to the metrics file
+	 * in the Prometheus text format at the end. With --accuse-at, an advisor follows each game's solver and the summary gives
+	 * how many turns it took for the most likely envelope to reach the chance p, and how often that envelope was wrong.
+	 * @param args The command line arguments
+	**/
+	public static void main(String[] args) {
+		long numberOfGames = 0;
+		String output = null;
+		int players = 0;
+		int turns = 200;
+		long seed = System.nanoTime();
+		int numberOfThreads = Runtime.getRuntime().availableProcessors();
+		String metricsFile = null;
+		String deckFile = null;
+		double accuseAt = 0;
+		try {
+			int position = 0;
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--simulate":
+						break;
+					case "--players":
+						players = Integer.parseInt(args[++i]);
+						break;
+					case "--turns":
+						turns = Integer.parseInt(args[++i]);
+						break;
+					case "--seed":
+						seed = Long.parseLong(args[++i]);
+						break;
+					case "--threads":
+						numberOfThreads = Integer.parseInt(args[++i]);
+						break;
+					case "--metrics":
+						metricsFile = args[++i];
+						break;
+					case "--deck":
+						deckFile = args[++i];
+						break;
+					case "--accuse-at":
+						accuseAt = Double.parseDouble(args[++i]);
+						break;
+					default:
+						if (position++ == 0) {
+							numberOfGames = Long.parseLong(args[i]);
+						} else {
+							output = args[i];
+						}
+				}
+			}
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			output = null;
+		}
+		CardList cards = new CardList();
+		if (deckFile != null) {
+			try {
+				cards = CardList.load(Paths.get(deckFile));
+			} catch (IOException | IllegalArgumentException e) {
+				System.err.println(String.format("%s: %s", deckFile, e.getMessage()));
+				System.exit(1);
+			}
+		}
+		//Every player needs at least one card
+		int maxPlayers = Math.min(DealConstraints.MAX_PLAYERS, cards.getNumberOfCards() - 3);
+		if (output == null || numberOfGames <= 0 || players != 0 && (players < MIN_PLAYERS || players > maxPlayers)
+				|| !(accuseAt >= 0 && accuseAt <= 1)) {
+			System.err.println("Usage: --simulate <games> <output or -> [--players n] [--turns n] [--seed n] [--threads n] [--deck file] [--metrics file] [--accuse-at p]");
+			System.exit(2);
+		}
+		GameSimulator simulator = new GameSimulator(cards, players, turns, seed);
+		simulator.setAccusationThreshold(accuseAt);
+		try {
+			simulator.getMetrics().register("simulator");
+		} catch (JMException e) {
+			System.err.println(String.format("Metrics are not available through JMX: %s", e.getMessage()));
+		}
+		try {
+			OutputStream stream = output.equals("-") ? System.out : new FileOutputStream(output);
+			if (output.endsWith(".gz")) {
+				stream = new GZIPOutputStream(stream, 1 << 16);
+			}
+			try (Writer out = new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"), 1 << 16)) {
+				simulator.run(numberOfGames, out, numberOfThreads);
+			}
+			if (metricsFile != null) {
+				simulator.getMetrics().writePrometheusFile(Paths.get(metricsFile));
+			}
+		} catch (IOException e) {
+			System.err.println(String.format("Could not write the output: %s", e.getMessage()));
+			System.exit(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		System.err.println(simulator.getSummary());
+	}
+}
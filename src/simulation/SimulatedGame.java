@@ -0,0 +1,293 @@
+package src.simulation;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import src.logic.*;
+import src.logic.analysis.AccusationAdvisor;
+import src.logic.card.*;
+import src.logic.metrics.EngineMetrics;
+
+/**
+ * One game of clue played by automated players from a random deal. Every move is fed to a solver for the
+ * first player, the user, as it happens and is written to a log in the batch script format (see BatchSolver),
+ * with the real hands and the envelope as comments so the log can be replayed and checked later.
+ * Each automated player suggests cards they have not seen, shows a random matching card when they can disprove
+ * a suggestion, and wins once they have seen every card but one of each type.
+ * An accusation advisor can follow the solver to find when the user could have accused and whether they would have been right.
+**/
+public class SimulatedGame {
+	//Variables
+	private final CardList cards;
+	private final int numberOfPlayers;
+	private final SplittableRandom random;
+	private final int[] owners; //The holder of each card, numberOfPlayers for the envelope
+	private final CardSet[] seen; //Cards each player knows are not in the envelope
+	private final CardSet envelope; //The cards in the envelope
+	private final ArrayList<String> names; //The players' names in turn order
+	private final ClueLogic solver; //The solver following the game for the user
+	private final StringBuilder log; //The game as a batch script
+	private int turns; //How many suggestions were made
+	private int winner; //The player who solved the game, -1 if nobody did
+	private int solverTurn; //The turn the solver knew the whole envelope, -1 if it never did
+	private AccusationAdvisor advisor; //Advises the user when to accuse, null if there is no advice
+	private int accusationTurn; //The turn the advisor first told the user to accuse, -1 if it never did
+	private boolean accusationRight; //Whether the envelope the advisor first told the user to accuse was right
+	//Chance that a player suggests a card they have already seen, to hide what they know
+	private static final double BLUFF_CHANCE = 0.1;
+
+	//Methods
+
+	/**
+	 * Deals a new game
+	 * @param cards The deck to deal
+	 * @param numberOfPlayers How many players are in the game
+	 * @param seed The seed for the deal and every choice the players make
+	 * @param metrics The metrics the solver records its moves in
+	**/
+	public SimulatedGame(CardList cards, int numberOfPlayers, long seed, EngineMetrics metrics) {
+		this.cards = cards;
+		this.numberOfPlayers = numberOfPlayers;
+		random = new SplittableRandom(seed);
+		owners = new int[cards.getNumberOfCards()];
+		seen = new CardSet[numberOfPlayers];
+		envelope = cards.newCardSet();
+		names = new ArrayList<String>();
+		log = new StringBuilder();
+		winner = -1;
+		solverTurn = -1;
+		accusationTurn = -1;
+		//Pick the envelope and deal the rest of the cards around the table
+		owners[cards.getRoom(random.nextInt(cards.getNumberOfRooms())).getIndex()] = -1;
+		owners[cards.getSuspect(random.nextInt(cards.getNumberOfSuspects())).getIndex()] = -1;
+		owners[cards.getWeapon(random.nextInt(cards.getNumberOfWeapons())).getIndex()] = -1;
+		int[] deck = new int[cards.getNumberOfCards() - 3];
+		for (int c = 0, i = 0; c < owners.length; c++) {
+			if (owners[c] == -1) {
+				owners[c] = numberOfPlayers;
+				envelope.add(c);
+			} else {
+				deck[i++] = c;
+			}
+		}
+		for (int i = deck.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int card = deck[i];
+			deck[i] = deck[j];
+			deck[j] = card;
+		}
+		int[] handSizes = new int[numberOfPlayers];
+		for (int p = 0; p < numberOfPlayers; p++) {
+			seen[p] = cards.newCardSet();
+		}
+		for (int i = 0; i < deck.length; i++) {
+			owners[deck[i]] = i % numberOfPlayers;
+			seen[i % numberOfPlayers].add(deck[i]);
+			handSizes[i % numberOfPlayers]++;
+		}
+		//Write down the truth and set up the solver
+		log.append(String.format("# seed %d\n", seed));
+		ArrayList<Player> players = new ArrayList<Player>();
+		for (int p = 0; p < numberOfPlayers; p++) {
+			names.add(String.format("P%d", p + 1));
+			players.add(new Player(names.get(p), handSizes[p]));
+			log.append(String.format("# hand %s: %s\n", names.get(p), describe(seen[p])));
+		}
+		log.append(String.format("# envelope: %s\n", describe(envelope)));
+		for (int p = 0; p < numberOfPlayers; p++) {
+			log.append(String.format("player %s %d\n", names.get(p), handSizes[p]));
+		}
+		solver = new ClueLogic(cards, players, metrics);
+		for (int c = seen[0].nextCard(0); c >= 0; c = seen[0].nextCard(c + 1)) {
+			log.append(String.format("start %s\n", cards.getCard(c).getDescription()));
+			solver.doMove(Move.startCard(c));
+		}
+	}
+
+	/**
+	 * Has an accusation advisor follow the solver from now on
+	 * @param threshold The chance the most likely envelope needs for the user to accuse
+	**/
+	public void adviseAccusations(double threshold) {
+		advisor = new AccusationAdvisor(solver, threshold);
+	}
+
+	/**
+	 * Plays until someone solves the game or the turns run out
+	 * @param maxTurns The most suggestions to make
+	**/
+	public void play(int maxTurns) {
+		for (turns = 0; turns < maxTurns && winner == -1; turns++) {
+			int player = turns % numberOfPlayers;
+			if (canSolve(player)) {
+				winner = player;
+				break;
+			}
+			Card room = pick(player, cards.getRooms());
+			Card suspect = pick(player, cards.getSuspects());
+			Card weapon = pick(player, cards.getWeapons());
+			//Go around the table until someone can disprove the suggestion
+			int resolvingPlayer = player;
+			Card shown = null;
+			for (int i = (player + 1) % numberOfPlayers; i != player && shown == null; i = (i + 1) % numberOfPlayers) {
+				ArrayList<Card> held = new ArrayList<Card>();
+				for (Card c : new Card[] {room, suspect, weapon}) {
+					if (owners[c.getIndex()] == i) {
+						held.add(c);
+					}
+				}
+				if (held.size() > 0) {
+					resolvingPlayer = i;
+					shown = held.get(random.nextInt(held.size()));
+					seen[player].add(shown);
+				}
+			}
+			log.append(String.format("suggest %s: %s, %s, %s -> %s\n", names.get(player), room.getDescription(),
+				suspect.getDescription(), weapon.getDescription(), shown == null ? "none" : names.get(resolvingPlayer)));
+			makeMove(Move.suggestion(player, new Suggestion(room, suspect, weapon), resolvingPlayer));
+			if (player == 0 && shown != null) { //The user sees the card
+				log.append(String.format("card %s: %s\n", names.get(resolvingPlayer), shown.getDescription()));
+				makeMove(Move.addCard(shown, solver.getPlayers().get(resolvingPlayer)));
+			}
+			if (solverTurn == -1 && solver.getSolution().getNumberOfKnownCards() == 3) {
+				solverTurn = turns + 1;
+			}
+		}
+		if (winner != -1) {
+			log.append(String.format("# winner %s after %d turns\n", names.get(winner), turns));
+		}
+		if (solverTurn != -1) {
+			log.append(String.format("# solver knew the envelope after %d turns\n", solverTurn));
+		}
+		if (accusationTurn != -1) {
+			log.append(String.format("# advisor would accuse after %d turns, %s\n", accusationTurn, accusationRight ? "right" : "wrong"));
+		}
+		log.append("end\n");
+	}
+
+	/**
+	 * Feeds a move to the solver and updates the advisor until it is first confident, then checks its envelope against the real one
+	 * @param move The move
+	**/
+	private void makeMove(Move move) {
+		solver.doMove(move);
+		if (advisor != null && accusationTurn == -1 && advisor.update()) {
+			accusationTurn = turns + 1;
+			Suggestion accusation = advisor.getBestEnvelope();
+			accusationRight = envelope.contains(accusation.getRoom()) && envelope.contains(accusation.getSuspect())
+				&& envelope.contains(accusation.getWeapon());
+		}
+	}
+
+	/**
+	 * Picks a card for a player to suggest, usually one they have not seen
+	 * @param player The player making the suggestion
+	 * @param options The cards of one type
+	 * @return card The card to suggest
+	**/
+	private Card pick(int player, ArrayList<Card> options) {
+		if (random.nextDouble() >= BLUFF_CHANCE) {
+			ArrayList<Card> unseen = new ArrayList<Card>();
+			for (Card c : options) {
+				if (!seen[player].contains(c)) {
+					unseen.add(c);
+				}
+			}
+			if (unseen.size() > 0) {
+				return unseen.get(random.nextInt(unseen.size()));
+			}
+		}
+		return options.get(random.nextInt(options.size()));
+	}
+
+	/**
+	 * Whether a player has seen every card but the envelope's
+	 * @param player The player
+	 * @return canSolve True if the player knows the envelope
+	**/
+	private boolean canSolve(int player) {
+		return seen[player].size() + envelope.size() == owners.length;
+	}
+
+	/**
+	 * Gives the descriptions of a set of cards
+	 * @param set The cards
+	 * @return description The descriptions separated by commas
+	**/
+	private String describe(CardSet set) {
+		String description = "";
+		for (int c = set.nextCard(0); c >= 0; c = set.nextCard(c + 1)) {
+			description += (description.length() == 0 ? "" : ", ") + cards.getCard(c).getDescription();
+		}
+		return description;
+	}
+
+	/**
+	 * Counts the solver's deductions that disagree with the real deal. Anything but 0 is a bug in the solver.
+	 * @return mistakes How many cards the solver put in the wrong hand or ruled out of the right one
+	**/
+	public int countMistakes() {
+		int mistakes = 0;
+		ArrayList<Player> holders = new ArrayList<Player>(solver.getPlayers());
+		holders.add(solver.getSolution());
+		for (int h = 0; h < holders.size(); h++) {
+			CardSet knownCards = holders.get(h).getKnownMask();
+			CardSet cardsNotPossible = holders.get(h).getNotPossibleMask();
+			for (int c = 0; c < owners.length; c++) {
+				boolean known = knownCards.contains(c);
+				boolean notPossible = cardsNotPossible.contains(c);
+				if (known && owners[c] != h || notPossible && owners[c] == h) {
+					mistakes++;
+				}
+			}
+		}
+		return mistakes;
+	}
+
+	/**
+	 * Gives the game as a batch script with the real deal as comments
+	 * @return log The game's log
+	**/
+	public String getLog() {
+		return log.toString();
+	}
+
+	/**
+	 * Gives how many suggestions were made
+	 * @return turns The number of turns played
+	**/
+	public int getTurns() {
+		return turns;
+	}
+
+	/**
+	 * Gives the player who solved the game
+	 * @return winner The index of the player, -1 if the turns ran out first
+	**/
+	public int getWinner() {
+		return winner;
+	}
+
+	/**
+	 * Gives the turn the solver knew the whole envelope
+	 * @return solverTurn The number of suggestions made by then, -1 if it never did
+	**/
+	public int getSolverTurn() {
+		return solverTurn;
+	}
+
+	/**
+	 * Gives the turn the advisor first told the user to accuse
+	 * @return accusationTurn The number of suggestions made by then, -1 if it never did or there was no advisor
+	**/
+	public int getAccusationTurn() {
+		return accusationTurn;
+	}
+
+	/**
+	 * Gives whether the user would have been right to accuse when the advisor first told them to
+	 * @return right True if the advised envelope was the real one
+	**/
+	public boolean isAccusationRight() {
+		return accusationRight;
+	}
+}